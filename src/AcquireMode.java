@@ -0,0 +1,33 @@
+public enum AcquireMode {
+    // 原有方式：资源忙时休眠 200 毫秒再检查
+    // The original scheme: sleep 200 ms and check again while the resource is busy
+    POLLING("polling"),
+
+    // 阻塞方式：在锁或条件变量上挂起，释放时被直接唤醒
+    // Blocking: park on the lock or a condition and be woken directly on release
+    BLOCKING("blocking");
+
+    // 命令行和界面中使用的名称
+    // Name used on the command line and in the UI
+    private final String label;
+
+    AcquireMode(String label) {
+        this.label = label;
+    }
+
+    // 按名称查找
+    // Look up by name
+    public static AcquireMode of(String label) {
+        for (AcquireMode mode : values()) {
+            if (mode.label.equals(label)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown acquire mode " + label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ArrivalSchedule {
+    // 到达方式
+    // Kind of arrivals
+    enum Kind { CONSTANT, POISSON, BURSTY }
+
+    private final Kind kind;
+
+    // 所有生产者合计的平均到达率（每秒）
+    // Average arrival rate over all producers, per second
+    final double rate;
+
+    // 突发模式下每个周期先有 onMillis 毫秒的突发，再有 offMillis 毫秒的静默；平均到达率不变，突发期间的到达率相应提高
+    // In bursty mode each period is onMillis of burst followed by offMillis of silence; the average rate is kept, so the rate during a burst is higher
+    private final double onMillis;
+    private final double offMillis;
+
+    private ArrivalSchedule(Kind kind, double rate, double onMillis, double offMillis) {
+        this.kind = kind;
+        this.rate = rate;
+        this.onMillis = onMillis;
+        this.offMillis = offMillis;
+    }
+
+    // 解析描述，到达率可以省略（默认每秒 1000 个）：
+    //   constant:5000        每秒 5000 个，间隔固定
+    //   poisson:5000         每秒 5000 个的泊松到达
+    //   bursty:5000:50/450   平均每秒 5000 个，每 500 毫秒中只在前 50 毫秒内泊松到达
+    // Parse a specification; the rate may be left out (1000 per second by default):
+    //   constant:5000        5000 per second at fixed intervals
+    //   poisson:5000         Poisson arrivals at 5000 per second
+    //   bursty:5000:50/450   5000 per second on average, Poisson arrivals during the first 50 ms of every 500 ms only
+    public static ArrivalSchedule parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            Kind kind = switch (parts[0]) {
+                case "constant" -> Kind.CONSTANT;
+                case "poisson" -> Kind.POISSON;
+                case "bursty" -> Kind.BURSTY;
+                default -> throw new IllegalArgumentException("Unknown arrivals " + parts[0] + " (constant, poisson or bursty)");
+            };
+            double rate = parts.length > 1 ? Double.parseDouble(parts[1]) : 1000;
+            double on = 50;
+            double off = 450;
+            if (parts.length > 2) {
+                String[] period = parts[2].split("/");
+                on = Double.parseDouble(period[0]);
+                off = Double.parseDouble(period[1]);
+            }
+            if (rate <= 0 || on <= 0 || off < 0 || parts.length > 3 || (kind != Kind.BURSTY && parts.length > 2)) {
+                throw new IllegalArgumentException("Invalid arrivals " + spec);
+            }
+            return new ArrivalSchedule(kind, rate, on, off);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid arrivals " + spec, e);
+        }
+    }
+
+    // 同样的到达方式，换一个到达率
+    // The same kind of arrivals at another rate
+    public ArrivalSchedule withRate(double rate) {
+        return new ArrivalSchedule(kind, rate, onMillis, offMillis);
+    }
+
+    // 每个生产者按 rate / producers 的到达率独立安排，从 originNanos 开始；突发周期对所有生产者对齐
+    // Every producer schedules independently at rate / producers from originNanos; burst periods line up across producers
+    // 给定上一个数据项的预定时间，返回下一个的预定时间（System.nanoTime 的时间轴）
+    // Given the previous item's due time, return the next one's (on the System.nanoTime time line)
+    public long next(long previousDue, long originNanos, int producers) {
+        double perProducer = rate / producers;
+        return switch (kind) {
+            case CONSTANT -> previousDue + (long) (1e9 / perProducer);
+            case POISSON -> previousDue + exponentialNanos(perProducer);
+            case BURSTY -> {
+                long period = (long) ((onMillis + offMillis) * 1e6);
+                long on = (long) (onMillis * 1e6);
+                long due = previousDue + exponentialNanos(perProducer * period / on);
+                long phase = Math.floorMod(due - originNanos, period);
+                yield phase < on ? due : due + period - phase; // 落在静默期的推迟到下一次突发开始 // One landing in the silence moves to the start of the next burst
+            }
+        };
+    }
+
+    private static long exponentialNanos(double ratePerSecond) {
+        return (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) / ratePerSecond * 1e9);
+    }
+
+    @Override
+    public String toString() {
+        String text = kind.name().toLowerCase() + ":" + (long) rate;
+        return kind == Kind.BURSTY ? text + ":" + (long) onMillis + "/" + (long) offMillis : text;
+    }
+}
@@ -0,0 +1,25 @@
+public interface BoundedBuffer {
+    // 生产一个数据项，缓冲区满时等待；返回所用的缓冲区位置
+    // Produce one item, waiting while the buffer is full; returns the buffer position used
+    int put(BufferCursor cursor) throws InterruptedException;
+
+    // 消费一个数据项，缓冲区空时等待；返回所用的缓冲区位置
+    // Consume one item, waiting while the buffer is empty; returns the buffer position used
+    int take(BufferCursor cursor) throws InterruptedException;
+
+    // 批量生产：缓冲区满时等待，之后在一次加锁（或一次 CAS）中连续生产最多 max 个数据项；返回实际生产的个数（至少 1）
+    // Batched produce: wait while the buffer is full, then produce up to max contiguous items under one acquisition (or one CAS); returns how many were produced (at least 1)
+    int putBatch(BufferCursor cursor, int max) throws InterruptedException;
+
+    // 批量消费：缓冲区空时等待，之后一次取出最多 max 个数据项；返回实际消费的个数（至少 1）
+    // Batched consume: wait while the buffer is empty, then drain up to max items at once; returns how many were consumed (at least 1)
+    int takeBatch(BufferCursor cursor, int max) throws InterruptedException;
+
+    // 不等待地消费一个数据项，缓冲区空时返回 false；用于在缓冲区满时丢弃最旧的数据项
+    // Consume one item without waiting; returns false when the buffer is empty. Used to drop the oldest item from a full buffer
+    boolean tryTake(BufferCursor cursor);
+
+    // 缓冲区容量
+    // Capacity of the buffer
+    int capacity();
+}
@@ -0,0 +1,420 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class BufferBenchmark {
+    // 每个计数器占 16 个 long（128 字节），避免线程之间的伪共享
+    // Each counter occupies 16 longs (128 bytes) so threads do not false-share
+    private static final int STRIDE = 16;
+
+    // 每隔多少次消费测量一次取数据的耗时；只测一部分，读时钟的开销不会明显拉低吞吐量
+    // Time one take out of this many; timing only a sample keeps the cost of reading the clock from dragging throughput down
+    private static final int LATENCY_SAMPLE = 8;
+
+    // 子进程输出测量结果的那一行的前缀
+    // Prefix of the line a child process reports its measurements on
+    static final String RESULT_PREFIX = "bench-trial ";
+
+    // 基准测试的参数
+    // Benchmark parameters
+    static class Options {
+        List<BufferEngine> engines = Arrays.asList(BufferEngine.values());
+        List<WaitStrategy> waits = Arrays.asList(WaitStrategy.values());
+        int[] producers = {1, 8, 64};
+        int[] consumers = {1, 8, 64};
+        int[] bufferSizes = {1, 64, 4096, 65536};
+        int warmupIterations = 1;
+        int iterations = 3;
+        long iterationMillis = 500;
+        Path output = Path.of("bench_output.json");
+
+        // 每组参数在新的 JVM 中测量：同一个 JVM 里先测的缓冲区会让 put/take 的调用点变成多态，后测的吃亏，卡死的线程也会拖到后面的测量里
+        // Measure every combination in a fresh JVM: in one JVM the buffers measured first turn the put/take call sites megamorphic and penalise the later ones, and stuck threads run on into later measurements
+        boolean fork = true;
+
+        // 作为子进程只测量给定的一组参数，并把结果打印成一行
+        // As a child process, measure the single given combination and print the result as one line
+        boolean child = false;
+
+        // 解析命令行参数，列表用逗号分隔，例如 --producers 1,4,16,64
+        // Parse command line arguments; lists are comma separated, e.g. --producers 1,4,16,64
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--engines" -> options.engines = Arrays.stream(value.split(",")).map(BufferEngine::of).toList();
+                    case "--waits" -> options.waits = Arrays.stream(value.split(",")).map(WaitStrategy::of).toList();
+                    case "--producers" -> options.producers = ints(value, 1, 64);
+                    case "--consumers" -> options.consumers = ints(value, 1, 64);
+                    case "--sizes" -> options.bufferSizes = ints(value, 1, 65536);
+                    case "--warmup" -> options.warmupIterations = Integer.parseInt(value);
+                    case "--iterations" -> options.iterations = Integer.parseInt(value);
+                    case "--iteration-ms" -> options.iterationMillis = Long.parseLong(value);
+                    case "--out" -> options.output = Path.of(value);
+                    case "--fork" -> options.fork = on(value);
+                    case "--child" -> options.child = on(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            if (options.iterations < 1 || options.warmupIterations < 0 || options.iterationMillis < 1) {
+                throw new IllegalArgumentException("Iterations must be positive");
+            }
+            return options;
+        }
+
+        static boolean on(String value) {
+            return switch (value) {
+                case "on" -> true;
+                case "off" -> false;
+                default -> throw new IllegalArgumentException("Expected on or off, got " + value);
+            };
+        }
+
+        static int[] ints(String list, int min, int max) {
+            int[] values = Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).toArray();
+            for (int value : values) {
+                if (value < min || value > max) {
+                    throw new IllegalArgumentException(value + " is outside " + min + ".." + max);
+                }
+            }
+            return values;
+        }
+    }
+
+    // 一组参数的测量结果，单位为每秒消费的数据项数；另有取数据的耗时分布和测量期间工作线程占用的处理器
+    // Measurements of one parameter combination, in items consumed per second; also the take latency distribution and the processor time the workers used while measuring
+    static class Trial {
+        final BufferEngine engine;
+        final WaitStrategy wait;
+        final int producers;
+        final int consumers;
+        final int bufferSize;
+        final double[] scores;
+        // 取数据耗时的中位数和 99 百分位数（纳秒）
+        // Median and 99th percentile take latency (ns)
+        final double p50;
+        final double p99;
+        final double cpuCores;
+        final boolean stuck;
+
+        // 子进程没有给出结果时的原因，成功时为 null
+        // Why a child process gave no result; null on success
+        String error;
+
+        Trial(BufferEngine engine, WaitStrategy wait, int producers, int consumers, int bufferSize, double[] scores,
+              double p50, double p99, double cpuCores, boolean stuck) {
+            this.engine = engine;
+            this.wait = wait;
+            this.producers = producers;
+            this.consumers = consumers;
+            this.bufferSize = bufferSize;
+            this.scores = scores;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.cpuCores = cpuCores;
+            this.stuck = stuck;
+        }
+
+        double mean() {
+            return Arrays.stream(scores).average().orElse(0);
+        }
+
+        // 实际分配的位置数；环形缓冲区向上取整到 2 的幂
+        // Positions actually allocated; the ring rounds up to a power of two
+        int capacity() {
+            return engine.capacity(bufferSize, ShardedBuffer.shardsFor(producers, consumers));
+        }
+
+        // 每消费一个数据项花费的处理器时间（纳秒）
+        // Processor time spent per item consumed (ns)
+        double cpuNanosPerOp() {
+            double ops = mean();
+            return ops == 0 ? Double.NaN : cpuCores * 1e9 / ops;
+        }
+
+        // 99.9% 置信区间的半宽（正态近似）
+        // Half width of the 99.9% confidence interval (normal approximation)
+        double error() {
+            if (scores.length < 2) {
+                return Double.NaN;
+            }
+            double mean = mean();
+            double variance = Arrays.stream(scores).map(s -> (s - mean) * (s - mean)).sum() / (scores.length - 1);
+            return 3.291 * Math.sqrt(variance / scores.length);
+        }
+    }
+
+    // 运行一组参数：先预热，再按固定时长测量若干次
+    // Run one parameter combination: warm up, then measure a number of fixed-length iterations
+    static Trial runTrial(BufferEngine engine, WaitStrategy wait, int producers, int consumers, int bufferSize, Options options) throws InterruptedException {
+        BoundedBuffer buffer = engine.create(bufferSize, ShardedBuffer.shardsFor(producers, consumers), wait, EventLog.DISABLED, SyncProbe.NONE);
+        AtomicLongArray counters = new AtomicLongArray((consumers + 1) * STRIDE);
+        LatencyHistogram[] latencies = new LatencyHistogram[consumers]; // 每个消费者一个，互不争用 // One per consumer so they never contend
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            BufferCursor cursor = new BufferCursor(EventLog.PRODUCER, i);
+            threads.add(worker("bench-producer-" + i, () -> {
+                while (true) {
+                    buffer.put(cursor);
+                }
+            }));
+        }
+        for (int i = 0; i < consumers; i++) {
+            BufferCursor cursor = new BufferCursor(EventLog.CONSUMER, i);
+            int index = (i + 1) * STRIDE;
+            LatencyHistogram latency = latencies[i] = new LatencyHistogram();
+            threads.add(worker("bench-consumer-" + i, () -> {
+                long done = 0;
+                while (true) {
+                    if (done % LATENCY_SAMPLE == 0) {
+                        long start = System.nanoTime();
+                        buffer.take(cursor);
+                        latency.record(System.nanoTime() - start);
+                    } else {
+                        buffer.take(cursor);
+                    }
+                    counters.lazySet(index, ++done); // 只有本线程写入 // Only this thread writes it
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        // 预热结束时清空耗时分布并记下各线程的处理器时间
+        // When the warm-up ends, clear the latency distributions and note every thread's processor time
+        double[] scores = new double[options.iterations];
+        long cpuBefore = 0;
+        long measureStart = 0;
+        for (int i = -options.warmupIterations; i < options.iterations; i++) {
+            if (i == 0) {
+                for (LatencyHistogram latency : latencies) {
+                    latency.reset();
+                }
+                cpuBefore = cpuTime(threads);
+                measureStart = System.nanoTime();
+            }
+            long before = total(counters, consumers);
+            long start = System.nanoTime();
+            Thread.sleep(options.iterationMillis);
+            long elapsed = System.nanoTime() - start;
+            long after = total(counters, consumers);
+            if (i >= 0) {
+                scores[i] = (after - before) / (elapsed / 1e9);
+            }
+        }
+        double cpuCores = (cpuTime(threads) - cpuBefore) / (double) (System.nanoTime() - measureStart);
+        LatencyHistogram latency = new LatencyHistogram();
+        for (LatencyHistogram each : latencies) {
+            latency.add(each);
+        }
+
+        // 中断并等待所有线程结束；长时间不结束的线程视为卡死
+        // Interrupt and join every thread; a thread that does not finish in time counts as stuck
+        threads.forEach(Thread::interrupt);
+        boolean stuck = false;
+        for (Thread thread : threads) {
+            thread.join(5000);
+            stuck |= thread.isAlive();
+        }
+        return new Trial(engine, wait, producers, consumers, bufferSize, scores, latency.percentile(50), latency.percentile(99), cpuCores, stuck);
+    }
+
+    // 在新的 JVM 中测量一组参数；子进程卡死的线程随子进程一起结束。超时或没有结果时记下原因，各项指标为空
+    // Measure one combination in a fresh JVM; stuck threads die with the child. On a timeout or a missing result, the reason is kept and the measurements are empty
+    static Trial forkTrial(BufferEngine engine, WaitStrategy wait, int producers, int consumers, int bufferSize, Options options) throws InterruptedException {
+        List<String> args = List.of("bench", "--child", "on", "--engines", engine.toString(), "--waits", wait.toString(),
+                "--producers", String.valueOf(producers), "--consumers", String.valueOf(consumers), "--sizes", String.valueOf(bufferSize),
+                "--warmup", String.valueOf(options.warmupIterations), "--iterations", String.valueOf(options.iterations),
+                "--iteration-ms", String.valueOf(options.iterationMillis));
+        // 测量时间加上停止时等待线程的 5 秒和 JVM 启动的余量
+        // The measuring time, plus the 5 s join on stopping and some room for the JVM to start
+        long timeoutSeconds = (options.warmupIterations + options.iterations) * options.iterationMillis / 1000 + 30;
+        String error;
+        try {
+            ChildJvm.Result result = ChildJvm.run(ChildJvm.command(List.of(), List.of(), args), timeoutSeconds);
+            String line = result.line(RESULT_PREFIX);
+            if (line != null) {
+                return parseTrial(engine, wait, producers, consumers, bufferSize, line);
+            }
+            error = result.failure(timeoutSeconds);
+        } catch (IOException e) {
+            error = e.toString();
+        }
+        Trial trial = new Trial(engine, wait, producers, consumers, bufferSize, new double[0], Double.NaN, Double.NaN, Double.NaN, false);
+        trial.error = error;
+        return trial;
+    }
+
+    // 结果行的格式：scores=1.0,2.0;p50=..;p99=..;cpu=..;stuck=false
+    // Result line format: scores=1.0,2.0;p50=..;p99=..;cpu=..;stuck=false
+    static String formatTrial(Trial trial) {
+        StringBuilder scores = new StringBuilder();
+        for (double score : trial.scores) {
+            scores.append(scores.isEmpty() ? "" : ",").append(score);
+        }
+        return "scores=" + scores + ";p50=" + trial.p50 + ";p99=" + trial.p99 + ";cpu=" + trial.cpuCores + ";stuck=" + trial.stuck;
+    }
+
+    static Trial parseTrial(BufferEngine engine, WaitStrategy wait, int producers, int consumers, int bufferSize, String line) {
+        Map<String, String> fields = new HashMap<>();
+        for (String pair : line.split(";")) {
+            int equals = pair.indexOf('=');
+            fields.put(pair.substring(0, equals), pair.substring(equals + 1));
+        }
+        double[] scores = Arrays.stream(fields.get("scores").split(",")).mapToDouble(Double::parseDouble).toArray();
+        return new Trial(engine, wait, producers, consumers, bufferSize, scores, Double.parseDouble(fields.get("p50")),
+                Double.parseDouble(fields.get("p99")), Double.parseDouble(fields.get("cpu")), Boolean.parseBoolean(fields.get("stuck")));
+    }
+
+    // 所有工作线程到目前为止用掉的处理器时间（纳秒）；平台不支持时为 0
+    // Processor time used so far by all the workers (ns); 0 where the platform does not support it
+    private static long cpuTime(List<Thread> threads) {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!mx.isThreadCpuTimeSupported()) {
+            return 0;
+        }
+        long sum = 0;
+        for (Thread thread : threads) {
+            sum += Math.max(0, mx.getThreadCpuTime(thread.threadId())); // 已结束的线程返回 -1 // Ended threads report -1
+        }
+        return sum;
+    }
+
+    private static long total(AtomicLongArray counters, int consumers) {
+        long sum = 0;
+        for (int i = 1; i <= consumers; i++) {
+            sum += counters.get(i * STRIDE);
+        }
+        return sum;
+    }
+
+    private static Thread worker(String name, Body body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // 恢复中断状态 // Restore interrupt status
+            }
+        }, name);
+        thread.setDaemon(true); // 卡死的线程不阻止程序退出 // A stuck thread must not keep the JVM alive
+        return thread;
+    }
+
+    interface Body {
+        void run() throws InterruptedException;
+    }
+
+    // 以类似 JMH 的格式输出 JSON 结果
+    // Write the results as JSON in a JMH-like layout
+    static String toJson(List<Trial> trials, Options options) {
+        JsonWriter json = new JsonWriter().beginArray();
+        for (Trial trial : trials) {
+            json.beginObject()
+                    .name("benchmark").value("BufferBenchmark.throughput")
+                    .name("mode").value("thrpt")
+                    .name("warmupIterations").value(options.warmupIterations)
+                    .name("measurementIterations").value(options.iterations)
+                    .name("measurementTime").value(options.iterationMillis + " ms")
+                    .name("params").beginObject()
+                    .name("engine").value(trial.engine.toString())
+                    .name("wait").value(trial.wait.toString())
+                    .name("producers").value(trial.producers)
+                    .name("consumers").value(trial.consumers)
+                    .name("bufferSize").value(trial.bufferSize)
+                    .name("capacity").value(trial.capacity())
+                    .endObject()
+                    .name("primaryMetric").beginObject()
+                    .name("score").value(trial.mean())
+                    .name("scoreError").value(trial.error())
+                    .name("scoreUnit").value("ops/s")
+                    .name("rawData").beginArray().beginArray();
+            for (double score : trial.scores) {
+                json.value(score);
+            }
+            json.endArray().endArray()
+                    .endObject()
+                    .name("secondaryMetrics").beginObject()
+                    .name("takeLatencyP50").beginObject().name("score").value(trial.p50 / 1e3).name("scoreUnit").value("us").endObject()
+                    .name("takeLatencyP99").beginObject().name("score").value(trial.p99 / 1e3).name("scoreUnit").value("us").endObject()
+                    .name("cpuCores").beginObject().name("score").value(trial.cpuCores).name("scoreUnit").value("cores").endObject()
+                    .name("cpuPerOp").beginObject().name("score").value(trial.cpuNanosPerOp()).name("scoreUnit").value("ns/op").endObject()
+                    .endObject()
+                    .name("stuck").value(trial.stuck)
+                    .name("error").value(trial.error)
+                    .endObject();
+        }
+        return json.endArray().toString();
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: bench [--engines slot-lock,monitor,array-blocking,linked-transfer,ring,sharded] [--waits blocking,busy-spin,spin-yield,adaptive] [--producers 1,8,64]"
+                    + " [--consumers 1,8,64] [--sizes 1,64,4096,65536] [--warmup N] [--iterations N] [--iteration-ms MS] [--out FILE] [--fork on|off]");
+            System.exit(2);
+            return;
+        }
+
+        // 子进程：测量给定的一组参数后直接退出，卡死的守护线程不会拖住它
+        // Child process: measure the given combination and exit at once, so stuck daemon threads cannot hold it up
+        if (options.child) {
+            Trial trial = runTrial(options.engines.get(0), options.waits.get(0), options.producers[0], options.consumers[0], options.bufferSizes[0], options);
+            System.out.println(RESULT_PREFIX + formatTrial(trial));
+            System.exit(0);
+            return;
+        }
+
+        List<Trial> trials = new ArrayList<>();
+        System.out.printf("%-16s %-11s %9s %9s %9s %9s %16s %14s %10s %10s %6s %10s%n", "engine", "wait", "producers", "consumers", "buffer", "capacity",
+                "ops/s", "error", "p50 us", "p99 us", "cpu", "cpu ns/op");
+        sweep:
+        for (BufferEngine engine : options.engines) {
+            // 等待策略只影响部分缓冲区，其他缓冲区只测一次
+            // The wait strategy only affects some buffers; the others are measured once
+            List<WaitStrategy> waits = engine.hasWaitStrategy() ? options.waits : List.of(WaitStrategy.BLOCKING);
+            for (WaitStrategy wait : waits) {
+                for (int producers : options.producers) {
+                    for (int consumers : options.consumers) {
+                        for (int bufferSize : options.bufferSizes) {
+                            Trial trial = options.fork ? forkTrial(engine, wait, producers, consumers, bufferSize, options)
+                                    : runTrial(engine, wait, producers, consumers, bufferSize, options);
+                            trials.add(trial);
+                            int capacity = trial.capacity();
+                            if (trial.error != null) {
+                                System.out.printf("%-16s %-11s %9d %9d %9d %9d  failed: %s%n", engine, wait, producers, consumers, bufferSize, capacity, trial.error);
+                                continue;
+                            }
+                            System.out.printf("%-16s %-11s %9d %9d %9d %9d %16.0f %14.0f %10.1f %10.1f %6.2f %10.0f%s%n", engine, wait,
+                                    producers, consumers, bufferSize, capacity, trial.mean(), trial.error(),
+                                    trial.p50 / 1e3, trial.p99 / 1e3, trial.cpuCores,
+                                    trial.cpuNanosPerOp(), trial.stuck ? "  (stuck threads)" : "");
+                            // 不分进程时卡死的线程会一直跑下去，之后的测量都不可信，因此停止
+                            // Without forking, stuck threads keep running and every later measurement is suspect, so stop here
+                            if (trial.stuck && !options.fork) {
+                                System.out.println("Stopping the sweep: stuck threads would distort every later trial in this JVM");
+                                break sweep;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        Files.writeString(options.output, toJson(trials, options));
+        System.out.println("Results written to " + options.output);
+    }
+}
@@ -0,0 +1,42 @@
+public class BufferCursor {
+    // 参与者类型（EventLog.PRODUCER 或 EventLog.CONSUMER）
+    // Actor kind (EventLog.PRODUCER or EventLog.CONSUMER)
+    final int kind;
+
+    // 参与者的唯一标识符
+    // Unique identifier of the actor
+    final int id;
+
+    // 下一次开始扫描的缓冲区位置
+    // Buffer position where the next scan starts
+    int position = 0;
+
+    // 该参与者因缓冲区满或空而等待的次数
+    // Number of times this actor waited on a full or empty buffer
+    long waits = 0;
+
+    // 在位置被占下、尚未交给对方之前调用的访问者，用于原地写入或读取数据；为 null 时不携带数据
+    // Visitor called once a position is claimed and before it is handed over, to write or read data in place; null when no data is carried
+    SlotVisitor visitor = null;
+
+    // 自适应等待：本次等待开始的时间、最近等待时间的加权平均，以及据此得出的自旋时长（纳秒）
+    // Adaptive waiting: when the current wait began, the weighted average of recent waits, and the spin length derived from it (ns)
+    long waitStartedAt = 0;
+    long waitEstimate = 0;
+    long spinNanos = WaitStrategy.MIN_SPIN_NANOS;
+
+    // 丢弃最旧策略替这个生产者取走数据项时用的游标，第一次丢弃时创建，之后一直重复使用；不带访问者
+    // Cursor the drop-oldest policy uses to take items out on this producer's behalf; created on the first drop and reused from then on, with no visitor
+    BufferCursor dropper = null;
+
+    public BufferCursor(int kind, int id) {
+        this.kind = kind;
+        this.id = id;
+    }
+
+    // 位置访问者
+    // Position visitor
+    public interface SlotVisitor {
+        void visit(int slot);
+    }
+}
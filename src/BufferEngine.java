@@ -0,0 +1,94 @@
+public enum BufferEngine {
+    // 原有方案：每个位置一把锁和一个条件变量，生产者和消费者扫描缓冲区
+    // The original scheme: one lock and condition per position, producers and consumers scan the buffer
+    SLOT_LOCK("slot-lock"),
+
+    // 整个缓冲区一把锁，两个条件变量
+    // One lock for the whole buffer with two condition variables
+    MONITOR("monitor"),
+
+    // JDK 的 ArrayBlockingQueue
+    // The JDK's ArrayBlockingQueue
+    ARRAY_BLOCKING("array-blocking"),
+
+    // JDK 的 LinkedTransferQueue，用信号量限制容量
+    // The JDK's LinkedTransferQueue, capped with a semaphore
+    LINKED_TRANSFER("linked-transfer"),
+
+    // 无锁的 MPMC 环形缓冲区
+    // Lock-free MPMC ring buffer
+    RING("ring"),
+
+    // 每对生产者和消费者一个子环形缓冲区，空闲的消费者从别的分片偷取；只保证各分片内先进先出
+    // One sub-ring per producer/consumer pair, idle consumers steal from other shards; only FIFO within each shard
+    SHARDED("sharded");
+
+    // 命令行和结果中使用的名称
+    // Name used on the command line and in results
+    private final String label;
+
+    BufferEngine(String label) {
+        this.label = label;
+    }
+
+    // 创建该类型的缓冲区；JDK 队列内部的锁无法统计，不使用探针
+    // Create a buffer of this kind; the JDK queues' internal locks cannot be measured, so they ignore the probe
+    // 等待策略只对逐位置加锁、环形和分片缓冲区有效；管程和 JDK 队列总是挂起等待
+    // The wait strategy only applies to the slot-lock, ring and sharded buffers; the monitor and the JDK queues always park
+    // 分片数只有分片缓冲区使用
+    // The shard count is only used by the sharded buffer
+    public BoundedBuffer create(int bufferSize, int shards, WaitStrategy wait, EventLog log, SyncProbe probe) {
+        return switch (this) {
+            case SLOT_LOCK -> new SlotLockBuffer(bufferSize, wait, log, probe);
+            case MONITOR -> new MonitorBuffer(bufferSize, log, probe);
+            case ARRAY_BLOCKING -> QueueBuffer.arrayBlocking(bufferSize);
+            case LINKED_TRANSFER -> QueueBuffer.linkedTransfer(bufferSize);
+            case RING -> new RingBuffer(bufferSize, wait, log, probe);
+            case SHARDED -> new ShardedBuffer(bufferSize, shards, wait, log, probe);
+        };
+    }
+
+    // create 实际分配的位置数；环形和分片缓冲区会向上取整，其余的与 bufferSize 相同
+    // Number of positions create actually allocates; the ring and sharded buffers round up, the others match bufferSize
+    public int capacity(int bufferSize, int shards) {
+        return switch (this) {
+            case RING -> RingBuffer.capacityFor(bufferSize);
+            case SHARDED -> ShardedBuffer.capacityFor(bufferSize, shards);
+            default -> bufferSize;
+        };
+    }
+
+    // 是否暴露缓冲区位置；JDK 队列不暴露位置，因此不能原地携带数据
+    // Whether buffer positions are exposed; the JDK queues expose none, so they cannot carry data in place
+    public boolean hasPositions() {
+        return this != ARRAY_BLOCKING && this != LINKED_TRANSFER;
+    }
+
+    // 是否按等待策略等待
+    // Whether waits follow the wait strategy
+    public boolean hasWaitStrategy() {
+        return this == SLOT_LOCK || this == RING || this == SHARDED;
+    }
+
+    // 未指定时使用的等待策略：逐位置加锁的缓冲区原本每扫描一圈让出一次，环形缓冲区原本立即挂起
+    // Wait strategy used when none is given: the slot-lock buffer always yielded once per lap, the ring always parked at once
+    public WaitStrategy defaultWait() {
+        return this == SLOT_LOCK ? WaitStrategy.SPIN_YIELD : WaitStrategy.BLOCKING;
+    }
+
+    // 按名称查找
+    // Look up by name
+    public static BufferEngine of(String label) {
+        for (BufferEngine engine : values()) {
+            if (engine.label.equals(label)) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("Unknown buffer engine " + label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
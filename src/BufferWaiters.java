@@ -0,0 +1,59 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+public class BufferWaiters {
+    // 只在缓冲区满或空时使用的等待锁和条件变量；交接本身从不加这把锁
+    // Lock and conditions used only when the buffer is full or empty; the hand-over itself never takes this lock
+    private final ReentrantLock waitLock = new ReentrantLock();
+    private final Condition notFull = waitLock.newCondition();
+    private final Condition notEmpty = waitLock.newCondition();
+
+    // 正在等待的生产者和消费者数；为 0 时交接之后不必加等待锁
+    // Number of producers and consumers currently waiting; while 0, a hand-over never takes the wait lock
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+
+    // 生产者（produce 为 true）等位置或消费者等数据：先登记再复查 attempt，仍然失败才挂起，直到对方交接之后唤醒；返回 attempt 第一次成功的结果
+    // A producer (produce is true) waits for space or a consumer for items: register, then re-check attempt, and park only if that fails too, until the other side hands over and wakes us; returns attempt's first successful result
+    int await(boolean produce, IntSupplier attempt) throws InterruptedException {
+        AtomicInteger waiting = produce ? waitingProducers : waitingConsumers;
+        Condition condition = produce ? notFull : notEmpty;
+        int result;
+        waitLock.lockInterruptibly();
+        try {
+            waiting.incrementAndGet(); // 先登记再复查，避免丢失唤醒 // Register before re-checking so no wakeup is lost
+            try {
+                while ((result = attempt.getAsInt()) < 0) {
+                    condition.await();
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } finally {
+            waitLock.unlock();
+        }
+        return result;
+    }
+
+    // 生产（produced 为 true）或消费了 count 项之后，唤醒对方最多 count 个等待者；只有确有对方在等待时才加锁。
+    // 被唤醒的一方不会把唤醒传下去，批量操作之后只 signal 一次会让其余的数据或位置无人处理
+    // After producing (produced is true) or consuming count items, wake up to count waiters on the other side, taking the lock only when one is actually waiting.
+    // A woken waiter does not pass the wakeup on, so a single signal after a batch would leave the other items or positions unattended
+    void wake(boolean produced, int count) {
+        int n = Math.min(count, (produced ? waitingConsumers : waitingProducers).get());
+        if (n <= 0) {
+            return;
+        }
+        Condition condition = produced ? notEmpty : notFull;
+        waitLock.lock();
+        try {
+            for (int k = 0; k < n; k++) {
+                condition.signal();
+            }
+        } finally {
+            waitLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class CancellationToken {
+    // 是否已取消、是否暂停；进程在每次循环开始时检查
+    // Whether the run is cancelled or paused; processes check at the top of every loop
+    private volatile boolean cancelled = false;
+    private volatile boolean paused = false;
+
+    // 暂停中的进程在这里等待恢复或取消
+    // Paused processes wait here to be resumed or cancelled
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // 累计暂停时间，统计吞吐量时扣除
+    // Total time spent paused, left out when computing throughput
+    private long pausedAt = 0;
+    private long pausedNanos = 0;
+
+    // 进程调度器，为 null 时进程直接由操作系统调度
+    // Process scheduler; null leaves the processes to the operating system
+    private volatile ProcessScheduler scheduler;
+
+    // 进程是否继续下一次循环：暂停时在此等待，取消或线程被中断时返回 false；未暂停且不受调度时只读几个 volatile 字段
+    // Whether a process should go round its loop again: waits here while paused, returns false once cancelled or interrupted; when not paused and not scheduled it only reads a few volatile fields
+    public boolean proceed() {
+        if (paused && !cancelled) {
+            lock.lock();
+            try {
+                while (paused && !cancelled) {
+                    changed.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // 恢复中断状态 // Restore interrupt status
+            } finally {
+                lock.unlock();
+            }
+        }
+        ProcessScheduler scheduler = this.scheduler;
+        if (scheduler != null && !cancelled) {
+            scheduler.dispatch(); // 每次循环开头是让出处理器的时机 // The top of every loop is where a processor may be given up
+        }
+        return !cancelled && !Thread.currentThread().isInterrupted();
+    }
+
+    // 让这次运行的进程经过调度器；取消时一并停止调度器
+    // Route the processes of this run through a scheduler, which is stopped along with the run
+    public void schedule(ProcessScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void cancel() {
+        lock.lock();
+        try {
+            cancelled = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    public void pause() {
+        lock.lock();
+        try {
+            if (!paused) {
+                paused = true;
+                pausedAt = System.nanoTime();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void resume() {
+        lock.lock();
+        try {
+            if (paused) {
+                paused = false;
+                pausedNanos += System.nanoTime() - pausedAt;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 到目前为止的累计暂停时间
+    // Time spent paused so far
+    public long pausedNanos() {
+        lock.lock();
+        try {
+            return pausedNanos + (paused ? System.nanoTime() - pausedAt : 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 等待 millis 毫秒的运行时间，暂停的时间不计；取消时提前返回 false
+    // Wait for millis of running time, not counting pauses; returns false early once cancelled
+    public boolean sleepRunning(long millis) throws InterruptedException {
+        lock.lock();
+        try {
+            // 截止时间随之后的每次暂停顺延
+            // The deadline moves out by every pause from now on
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis) - pausedNanos;
+            while (!cancelled) {
+                if (paused) {
+                    changed.await();
+                    continue;
+                }
+                long remaining = deadline + pausedNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    return true;
+                }
+                changed.awaitNanos(remaining);
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
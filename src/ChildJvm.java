@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ChildJvm {
+    // 子进程运行一次的结果：是否超时、退出码，以及合并了标准错误的全部输出
+    // Outcome of one child run: whether it timed out, its exit code, and all its output with standard error merged in
+    static class Result {
+        final boolean timedOut;
+        final int exitCode;
+        final String output;
+
+        Result(boolean timedOut, int exitCode, String output) {
+            this.timedOut = timedOut;
+            this.exitCode = exitCode;
+            this.output = output;
+        }
+
+        // 以 prefix 开头的第一行去掉前缀后的内容，没有时为 null
+        // The first line starting with prefix, without the prefix; null if there is none
+        String line(String prefix) {
+            for (String line : output.split("\\R")) {
+                if (line.startsWith(prefix)) {
+                    return line.substring(prefix.length());
+                }
+            }
+            return null;
+        }
+
+        // 失败时的说明：超时，或者最后一行非空输出，或者退出码
+        // What went wrong: a timeout, else the last non-empty line of output, else the exit code
+        String failure(long timeoutSeconds) {
+            if (timedOut) {
+                return "timed out after " + timeoutSeconds + " s";
+            }
+            String last = "exit code " + exitCode;
+            for (String line : output.split("\\R")) {
+                if (!line.isBlank()) {
+                    last = line.trim();
+                }
+            }
+            return last;
+        }
+    }
+
+    // 在新的 JVM 中运行 Main，使用与本进程相同的 java 和类路径；prefix 放在 java 之前（例如 taskset），jvmOptions 放在类路径之前
+    // The command running Main in a fresh JVM with this process's java and class path; prefix goes before java (taskset, say) and jvmOptions before the class path
+    static List<String> command(List<String> prefix, List<String> jvmOptions, List<String> mainArgs) {
+        List<String> command = new ArrayList<>(prefix);
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), "Main"));
+        command.addAll(mainArgs);
+        return command;
+    }
+
+    // 运行子进程，最多等 timeoutSeconds 秒，超时就强行结束它
+    // Run a child process, waiting at most timeoutSeconds and killing it after that
+    static Result run(List<String> command, long timeoutSeconds) throws IOException, InterruptedException {
+        Process child = new ProcessBuilder(command).redirectErrorStream(true).start();
+        // 另起线程读输出，子进程不会因管道写满而卡住
+        // Read the output on another thread so the child never stalls on a full pipe
+        try (ExecutorService reader = Executors.newSingleThreadExecutor()) {
+            Future<String> output = reader.submit(() -> new String(child.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            if (!child.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                child.destroyForcibly();
+                child.waitFor();
+                return new Result(true, -1, "");
+            }
+            try {
+                return new Result(false, child.exitValue(), output.get());
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+}
@@ -1,71 +1,97 @@
-import javax.swing.JTextArea;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-
 public class Consumer implements Runnable {
-    // 锁数组，用于同步各个缓冲区位置
-    // Lock array used to synchronize each buffer position
-    private final Lock[] locks;
-
-    // 条件变量数组
-    // Condition variable array
-    private final Condition[] conditions;
+    // 生产者和消费者共享的缓冲区
+    // Buffer shared by producers and consumers
+    private final BoundedBuffer buffer;
 
-    // 标记缓冲区位置是否有生产的数据
-    // Indicates whether each buffer position has produced data
-    private final boolean[] bufferProduced;
+    // 运行统计
+    // Run statistics
+    private final RunStats stats;
 
-    // 用于显示输出的文本区域
-    // Text area used to display output
-    private final JTextArea outputArea;
+    // 每次操作最多消费的数据项数，为 1 时逐个消费
+    // Maximum items per operation; 1 means one item at a time
+    private final int batchSize;
 
-    // 缓冲区大小
-    // Size of the buffer
-    private final int bufferSize;
+    // 每次消费后的处理时间（毫秒），为 0 时不休眠
+    // Processing time after each item in milliseconds; 0 means no sleep
+    private final long thinkMillis;
 
     // 消费者的唯一标识符
     // Unique identifier for the consumer
     private final int id;
 
-    public Consumer(Lock[] locks, Condition[] conditions, boolean[] bufferProduced, JTextArea outputArea, int bufferSize, int id) {
-        this.locks = locks;
-        this.conditions = conditions;
-        this.bufferProduced = bufferProduced;
-        this.outputArea = outputArea;
-        this.bufferSize = bufferSize;
+    // 存放数据记录的堆外区域，为 null 时只传递位置不携带数据
+    // Off-heap arena holding the records; null to pass positions only, without data
+    private final PayloadArena arena;
+
+    // 本次运行的取消令牌，暂停和停止都通过它
+    // Cancellation token of this run, through which it is paused and stopped
+    private final CancellationToken cancellation;
+
+    // 开环模式下据此记录端到端延迟，闭环模式时为 null
+    // Used to record end-to-end latency in open-loop mode; null in closed-loop mode
+    private final OpenLoop openLoop;
+
+    public Consumer(BoundedBuffer buffer, PayloadArena arena, OpenLoop openLoop, RunStats stats, CancellationToken cancellation, int batchSize, long thinkMillis, int id) {
+        this.cancellation = cancellation;
+        this.buffer = buffer;
+        this.arena = arena;
+        this.openLoop = openLoop;
+        this.stats = stats;
+        this.batchSize = batchSize;
+        this.thinkMillis = thinkMillis;
         this.id = id;
     }
 
     @Override
     public void run() {
+        // 记录本消费者扫描到的位置和等待次数
+        // Tracks where this consumer's scan is and how often it waited
+        BufferCursor cursor = new BufferCursor(EventLog.CONSUMER, id);
+        PayloadArena.View view = arena != null ? arena.newView() : null;
+        if (arena != null || openLoop != null) {
+            cursor.visitor = slot -> {
+                if (view != null) {
+                    read(view.moveTo(slot));
+                }
+                if (openLoop != null) {
+                    stats.endToEndLatency.record(openLoop.latency(slot));
+                }
+            };
+        }
         try {
-            // 遍历缓冲区的每个位置，进行消费操作
-            // Iterate over each position in the buffer to perform consumption
-            for (int i = 0; i < bufferSize; i = (i + 1) % bufferSize) {
-                // 初步检查，减少锁定时间
-                // Preliminary check to reduce lock holding time
-                if (bufferProduced[i]) {
-                    locks[i].lock(); // 锁定当前缓冲区位置 // Lock the current buffer position
-                    try {
-                        // 如果当前缓冲区位置未生产数据，则等待生产
-                        // Wait for production if the current buffer position has not produced data
-                        while (!bufferProduced[i]) {
-                            outputArea.append("Consumer " + id + " waiting, buffer of position " + i + " is empty...\n");
-                            conditions[i].await(); // 等待生产者信号 // Wait for producer signal
-                        }
-                        // 消费数据
-                        // Consume data
-                        bufferProduced[i] = false;
-                        outputArea.append("Consumer " + id + " consumed in position " + i + "\n");
-                        conditions[i].signalAll(); // 唤醒生产者 // Wake up producers
-                    } finally {
-                        locks[i].unlock(); // 解锁当前缓冲区位置 // Unlock the current buffer position
-                    }
-                    Thread.sleep(700); // 模拟消费后处理时间 // Simulate processing time after consumption
+            while (cancellation.proceed()) { // 循环直到运行被取消或线程被中断，暂停时在此等待 // Loop until the run is cancelled or the thread is interrupted, waiting here while paused
+                long start = System.nanoTime(); // 本次操作的开始时间 // Start time of the current operation
+                long waits = cursor.waits;
+                int n = 1;
+                if (batchSize > 1) {
+                    n = buffer.takeBatch(cursor, batchSize); // 一次加锁消费最多 batchSize 个 // Up to batchSize items per acquisition
+                } else {
+                    buffer.take(cursor); // 消费数据，缓冲区空时等待 // Consume data, waiting while the buffer is empty
+                }
+                stats.consumed.add(n);
+                if (arena != null) {
+                    stats.bytes.add((long) n * arena.recordSize);
+                }
+                stats.consumerWaits.add(cursor.waits - waits);
+                stats.consumeLatency.record(System.nanoTime() - start);
+                if (thinkMillis > 0) {
+                    Thread.sleep(thinkMillis); // 模拟消费后处理时间 // Simulate processing time after consumption
                 }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // 恢复中断状态 // Restore interrupt status
         }
     }
+
+    // 不复制地在原地读取整条记录，并检查每 8 个字节的标记是否一致
+    // Read the whole record in place without copying and check that every 8-byte stamp matches
+    private void read(PayloadArena.View record) {
+        long stamp = record.getLong(0);
+        for (int i = Long.BYTES; i < record.length(); i += Long.BYTES) {
+            if (record.getLong(i) != stamp) {
+                stats.tornRecords.increment();
+                return;
+            }
+        }
+    }
 }
@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ContentionMetrics implements SyncProbe {
+    // 热力图最多显示的行数；位置多于此数时相邻位置合并为一行，内存不随缓冲区大小增长
+    // Maximum heatmap rows; with more positions, neighbouring positions share a row so memory does not grow with the buffer
+    static final int MAX_SLOT_ROWS = 256;
+
+    // 参与者类型的名称，下标为 EventLog 中的参与者类型
+    // Actor kind names, indexed by the actor kinds in EventLog
+    static final String[] KIND_NAMES = {"System", "Producer", "Consumer", "Reader", "Writer"};
+
+    // 被统计的位置数和热力图行数
+    // Number of positions measured and number of heatmap rows
+    final int slots;
+    final int rows;
+
+    // 每行（一个或多个位置）的计数器
+    // Counters per row (one or more positions)
+    private final Counters[] slotCounters;
+
+    // 每个参与者的计数器，键为类型和编号
+    // Counters per actor, keyed by kind and id
+    private final ConcurrentHashMap<Long, Counters> actorCounters = new ConcurrentHashMap<>();
+
+    // 每种参与者的加锁、持有和等待时间直方图
+    // Acquire, hold and wait time histograms per actor kind
+    final LatencyHistogram[] acquireTime = new LatencyHistogram[KIND_NAMES.length];
+    final LatencyHistogram[] holdTime = new LatencyHistogram[KIND_NAMES.length];
+    final LatencyHistogram[] waitTime = new LatencyHistogram[KIND_NAMES.length];
+
+    public ContentionMetrics(int slots) {
+        this.slots = Math.max(1, slots);
+        this.rows = Math.min(this.slots, MAX_SLOT_ROWS);
+        this.slotCounters = new Counters[rows];
+        for (int i = 0; i < rows; i++) {
+            slotCounters[i] = new Counters();
+        }
+        for (int i = 0; i < KIND_NAMES.length; i++) {
+            acquireTime[i] = new LatencyHistogram();
+            holdTime[i] = new LatencyHistogram();
+            waitTime[i] = new LatencyHistogram();
+        }
+    }
+
+    // 一组计数器；都是 LongAdder，多线程并发累加时互不争用
+    // A set of counters; all LongAdders, so concurrent updates from many threads do not contend
+    static class Counters {
+        final LongAdder acquisitions = new LongAdder();
+        final LongAdder waits = new LongAdder();
+        final LongAdder acquireNanos = new LongAdder();
+        final LongAdder holdNanos = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        double meanAcquireMicros() {
+            long n = acquisitions.sum();
+            return n == 0 ? 0 : acquireNanos.sum() / 1e3 / n;
+        }
+
+        double meanHoldMicros() {
+            long n = acquisitions.sum();
+            return n == 0 ? 0 : holdNanos.sum() / 1e3 / n;
+        }
+
+        double meanWaitMicros() {
+            long n = waits.sum();
+            return n == 0 ? 0 : waitNanos.sum() / 1e3 / n;
+        }
+    }
+
+    // 一个参与者的统计快照
+    // Snapshot of one actor's counters
+    record ActorRow(int kind, int id, Counters counters) {
+    }
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    // 位置所在的行；没有位置的缓冲区（-1）记到第 0 行
+    // Row a position falls into; buffers without positions (-1) count against row 0
+    int rowOf(int slot) {
+        return slot <= 0 ? 0 : (int) Math.min(rows - 1, (long) slot * rows / slots);
+    }
+
+    // 行覆盖的第一个位置
+    // First position covered by a row
+    int firstSlotOf(int row) {
+        return (int) (((long) row * slots + rows - 1) / rows);
+    }
+
+    private Counters actor(int kind, int id) {
+        return actorCounters.computeIfAbsent(((long) kind << 32) | (id & 0xFFFFFFFFL), key -> new Counters());
+    }
+
+    @Override
+    public void acquired(int kind, int id, int slot, long acquireNanos) {
+        Counters row = slotCounters[rowOf(slot)];
+        row.acquisitions.increment();
+        row.acquireNanos.add(acquireNanos);
+        Counters actor = actor(kind, id);
+        actor.acquisitions.increment();
+        actor.acquireNanos.add(acquireNanos);
+        acquireTime[kind].record(acquireNanos);
+    }
+
+    @Override
+    public void released(int kind, int id, int slot, long holdNanos) {
+        slotCounters[rowOf(slot)].holdNanos.add(holdNanos);
+        actor(kind, id).holdNanos.add(holdNanos);
+        holdTime[kind].record(holdNanos);
+    }
+
+    @Override
+    public void waited(int kind, int id, int slot, long waitNanos) {
+        recordWait(slotCounters[rowOf(slot)], waitNanos);
+        recordWait(actor(kind, id), waitNanos);
+        waitTime[kind].record(waitNanos);
+    }
+
+    private static void recordWait(Counters counters, long waitNanos) {
+        counters.waits.increment();
+        counters.waitNanos.add(waitNanos);
+        if (waitNanos > counters.maxWaitNanos.get()) {
+            counters.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+    }
+
+    Counters slotRow(int row) {
+        return slotCounters[row];
+    }
+
+    // 所有参与者的快照，按类型和编号排序
+    // Snapshot of every actor, sorted by kind and id
+    List<ActorRow> actors() {
+        List<ActorRow> result = new ArrayList<>();
+        actorCounters.forEach((key, counters) -> result.add(new ActorRow((int) (key >>> 32), (int) (long) key, counters)));
+        result.sort((a, b) -> a.kind != b.kind ? Integer.compare(a.kind, b.kind) : Integer.compare(a.id, b.id));
+        return result;
+    }
+
+    // 生成文字报告：每种参与者的时间分布和等待最多的几个位置
+    // Build a text report: time distributions per actor kind and the positions waited on most
+    public String report(int hottest) {
+        StringBuilder out = new StringBuilder();
+        for (int kind = 0; kind < KIND_NAMES.length; kind++) {
+            if (acquireTime[kind].count() == 0 && waitTime[kind].count() == 0) {
+                continue;
+            }
+            out.append(String.format("%-9s acquire: %s%n", KIND_NAMES[kind], acquireTime[kind].summary()));
+            if (holdTime[kind].count() > 0) { // 无锁的环形缓冲区没有持有时间 // The lock-free ring has no hold time
+                out.append(String.format("%-9s hold:    %s%n", KIND_NAMES[kind], holdTime[kind].summary()));
+            }
+            out.append(String.format("%-9s wait:    %s%n", KIND_NAMES[kind], waitTime[kind].summary()));
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> Long.compare(slotCounters[b].waits.sum(), slotCounters[a].waits.sum()));
+        out.append("hottest positions (most waits):").append(System.lineSeparator());
+        for (int i = 0; i < Math.min(hottest, rows); i++) {
+            int row = order.get(i);
+            Counters c = slotCounters[row];
+            out.append(String.format("  %-11s acquisitions=%d waits=%d mean wait=%.1fus max wait=%.1fus mean hold=%.1fus%n",
+                    slotLabel(row), c.acquisitions.sum(), c.waits.sum(), c.meanWaitMicros(), c.maxWaitNanos.get() / 1e3, c.meanHoldMicros()));
+        }
+        return out.toString();
+    }
+
+    // 行的显示名称：单个位置或位置区间
+    // Display name of a row: a single position or a range of positions
+    String slotLabel(int row) {
+        int first = firstSlotOf(row);
+        int last = row == rows - 1 ? slots - 1 : firstSlotOf(row + 1) - 1;
+        return first == last ? String.valueOf(first) : first + "-" + last;
+    }
+}
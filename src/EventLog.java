@@ -0,0 +1,205 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class EventLog {
+    // 事件的参与者类型
+    // Actor kinds of an event
+    public static final int SYSTEM = 0;
+    public static final int PRODUCER = 1;
+    public static final int CONSUMER = 2;
+    public static final int READER = 3;
+    public static final int WRITER = 4;
+
+    // 事件的动作类型，对应原来输出的每一行文字
+    // Action kinds of an event, one per line of text the simulation used to print
+    public static final int PRODUCED = 0;
+    public static final int CONSUMED = 1;
+    public static final int WAIT_FULL = 2;
+    public static final int WAIT_EMPTY = 3;
+    public static final int READ_LOCK = 4;
+    public static final int READING = 5; // slot 字段为当前读者数 // The slot field carries the current reader count
+    public static final int READ_DONE = 6;
+    public static final int READ_UNLOCK = 7;
+    public static final int READ_WAIT_PRIORITY = 8;
+    public static final int READ_WAIT_WRITE = 9;
+    public static final int PRIORITY_LOCK = 10;
+    public static final int WRITE_LOCK = 11;
+    public static final int PRIORITY_UNLOCK = 12;
+    public static final int WRITING = 13;
+    public static final int WRITE_DONE = 14;
+    public static final int WRITE_UNLOCK = 15;
+    public static final int WRITE_WAIT = 16;
+    public static final int TIME_UP = 17;
+    public static final int PRODUCER_CONSUMER_OVER = 18;
+    public static final int PINNED_CARRIERS = 19; // slot 字段为钉住次数 // The slot field carries the pinned count
+    public static final int READ_RETRY = 20;
+    public static final int DROPPED_NEWEST = 21;
+    public static final int TIMED_OUT = 22; // slot 字段为等待的毫秒数 // The slot field carries the milliseconds waited
+    public static final int REJECTED = 23;
+    public static final int RESIZED = 24; // slot 字段为新的容量 // The slot field carries the new capacity
+
+    // 不记录任何事件的日志，用于无界面运行
+    // A log that records nothing, used when running without a UI
+    public static final EventLog DISABLED = new EventLog(1, false);
+
+    // 环形缓冲区的容量（2 的幂）和下标掩码
+    // Capacity of the ring buffer (a power of two) and the index mask
+    private final int capacity;
+    private final int mask;
+
+    // 是否记录事件
+    // Whether events are recorded at all
+    private final boolean enabled;
+
+    // 每个槽位的序号，用于多生产者之间无锁地认领槽位（Vyukov 算法）
+    // Per-slot sequence numbers used to claim slots lock-free among many publishers (Vyukov's algorithm)
+    private final AtomicLongArray sequences;
+
+    // 预先分配的事件字段，发布事件时不产生任何对象
+    // Preallocated event fields, so publishing an event allocates nothing
+    private final int[] kinds;
+    private final int[] ids;
+    private final int[] slots;
+    private final int[] actions;
+    private final long[] times;
+
+    // 发布者的写入位置和唯一读取者的读取位置
+    // Write cursor of the publishers and read cursor of the single drainer
+    private final AtomicLong tail = new AtomicLong();
+    private long head = 0;
+
+    // 缓冲区满时被丢弃的事件数
+    // Number of events dropped because the ring was full
+    private final AtomicLong dropped = new AtomicLong();
+
+    public EventLog(int capacity) {
+        this(capacity, true);
+    }
+
+    private EventLog(int capacity, boolean enabled) {
+        // 容量向上取整到 2 的幂
+        // Round the capacity up to a power of two
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.enabled = enabled;
+        this.sequences = new AtomicLongArray(size);
+        this.kinds = new int[size];
+        this.ids = new int[size];
+        this.slots = new int[size];
+        this.actions = new int[size];
+        this.times = new long[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // 发布一个事件；缓冲区满时直接丢弃而不是阻塞工作线程
+    // Publish an event; when the ring is full the event is dropped instead of blocking the worker
+    public boolean publish(int kind, int id, int slot, int action) {
+        if (!enabled) {
+            return false;
+        }
+        long pos = tail.get();
+        int index;
+        while (true) {
+            index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break; // 认领成功 // Slot claimed
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                dropped.incrementAndGet(); // 缓冲区已满 // The ring is full
+                return false;
+            } else {
+                pos = tail.get(); // 被其他发布者抢先 // Another publisher got there first
+            }
+        }
+        kinds[index] = kind;
+        ids[index] = id;
+        slots[index] = slot;
+        actions[index] = action;
+        times[index] = System.nanoTime();
+        sequences.set(index, pos + 1); // 发布，读取者此后可见 // Publish; visible to the drainer from here on
+        return true;
+    }
+
+    // 系统消息的简写
+    // Shorthand for system messages
+    public boolean system(int action) {
+        return publish(SYSTEM, 0, 0, action);
+    }
+
+    // 取出已发布的事件交给访问者，只能由唯一的读取者调用；返回取出的事件数
+    // Hand published events to the visitor; only the single drainer may call this. Returns the number drained
+    public int drain(Visitor visitor, int limit) {
+        int count = 0;
+        while (count < limit) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break; // 没有更多已发布的事件 // No more published events
+            }
+            if (visitor != null) {
+                visitor.visit(kinds[index], ids[index], slots[index], actions[index], times[index]);
+            }
+            sequences.set(index, head + capacity); // 释放槽位给发布者 // Release the slot back to publishers
+            head++;
+            count++;
+        }
+        return count;
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 把一个事件格式化为原来输出的那一行文字
+    // Format an event into the line of text the simulation used to print
+    public static void format(StringBuilder out, int kind, int id, int slot, int action) {
+        switch (action) {
+            case PRODUCED -> out.append("Producer ").append(id).append(" produced in position ").append(slot);
+            // 生产者取走数据项只会是丢弃最旧的数据项
+            // A producer only ever takes an item to drop the oldest one
+            case CONSUMED -> out.append(kind == PRODUCER ? "Producer " : "Consumer ").append(id)
+                    .append(kind == PRODUCER ? " dropped the oldest item, in position " : " consumed in position ").append(slot);
+            case WAIT_FULL -> out.append("Producer ").append(id).append(" waiting, buffer of position ").append(slot).append(" is full...");
+            case WAIT_EMPTY -> out.append("Consumer ").append(id).append(" waiting, buffer of position ").append(slot).append(" is empty...");
+            case READ_LOCK -> out.append("Reader process: Reader process ").append(id).append(" locks the resource.");
+            case READING -> out.append("Reader process: Reader process ").append(id).append(" is reading...\n")
+                    .append("Currently ").append(slot).append(" readers are accessing the resource.");
+            case READ_DONE -> out.append("Reader process: Reader process ").append(id).append(" finished reading.");
+            case READ_UNLOCK -> out.append("Reader process: Reader process ").append(id).append(" unlocks the resource.");
+            case READ_WAIT_PRIORITY -> out.append("Reader process: Reader process ").append(id).append(" waiting, write priority lock is active...");
+            case READ_WAIT_WRITE -> out.append("Reader process: Reader process ").append(id).append(" waiting, write lock is active...");
+            case PRIORITY_LOCK -> out.append("Writer process: Writer process ").append(id).append(" locks the priority lock.");
+            case WRITE_LOCK -> out.append("Writer process: Writer process ").append(id).append(" locks the resource.");
+            case PRIORITY_UNLOCK -> out.append("Writer process: Writer process ").append(id).append(" unlocks the priority lock.");
+            case WRITING -> out.append("Writer process: Writer process ").append(id).append(" is writing...");
+            case WRITE_DONE -> out.append("Writer process: Writer process ").append(id).append(" finished writing.");
+            case WRITE_UNLOCK -> out.append("Writer process: Writer process ").append(id).append(" unlocks the resource.");
+            case WRITE_WAIT -> out.append("Writer process: Writer process ").append(id).append(" waiting, read locks or another write lock are active...");
+            case TIME_UP -> out.append("Time is up! Stopping all processes.");
+            case PRODUCER_CONSUMER_OVER -> out.append("Simulation of Producer-Consumer is over.");
+            case PINNED_CARRIERS -> out.append("Virtual threads have pinned their carrier thread ").append(slot).append(" times so far.");
+            case READ_RETRY -> out.append("Reader process: Reader process ").append(id).append(" optimistic read was invalidated by a writer, reading again...");
+            case DROPPED_NEWEST -> out.append("Producer ").append(id).append(" dropped its item, the buffer is full.");
+            case TIMED_OUT -> out.append("Producer ").append(id).append(" gave up after waiting ").append(slot).append(" ms for a free position.");
+            case REJECTED -> out.append("Producer ").append(id).append(" was rejected, the buffer is full.");
+            case RESIZED -> out.append("The buffer grew to ").append(slot).append(" positions.");
+            default -> out.append("Unknown event ").append(action).append(" of actor ").append(kind).append(' ').append(id);
+        }
+        out.append('\n');
+    }
+
+    // 事件访问者，参数都是基本类型，避免装箱
+    // Event visitor; all parameters are primitives to avoid boxing
+    public interface Visitor {
+        void visit(int kind, int id, int slot, int action, long nanoTime);
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public enum ExecutionMode {
+    // 每个模拟进程一个平台线程
+    // One platform thread per simulated process
+    PLATFORM("platform"),
+
+    // 每个模拟进程一个虚拟线程，可以同时运行上万个进程
+    // One virtual thread per simulated process, so tens of thousands of processes are practical
+    VIRTUAL("virtual");
+
+    // 命令行中使用的名称
+    // Name used on the command line
+    private final String label;
+
+    ExecutionMode(String label) {
+        this.label = label;
+    }
+
+    // 创建每个任务一个线程的执行器；关闭执行器时会等待所有任务结束
+    // Create a thread-per-task executor; closing it waits for every task to finish
+    public ExecutorService newExecutor(String namePrefix) {
+        return switch (this) {
+            case PLATFORM -> Executors.newThreadPerTaskExecutor(Thread.ofPlatform().name(namePrefix, 0).factory());
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 0).factory());
+        };
+    }
+
+    // 创建可在多次运行之间重复使用的执行器：平台线程空闲后保留 60 秒供下一次运行复用；虚拟线程本身很便宜，不做池化
+    // Create an executor reused across runs: idle platform threads stay for 60 seconds so the next run reuses them; virtual threads are cheap and never pooled
+    public ExecutorService newPool(String namePrefix) {
+        return switch (this) {
+            case PLATFORM -> new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    Thread.ofPlatform().name(namePrefix, 0).daemon().factory());
+            case VIRTUAL -> newExecutor(namePrefix);
+        };
+    }
+
+    // 按名称查找
+    // Look up by name
+    public static ExecutionMode of(String label) {
+        for (ExecutionMode mode : values()) {
+            if (mode.label.equals(label)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown execution mode " + label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class FairPolicy implements ReadWritePolicy {
+    // 公平的读写锁：按到达顺序授予读锁和写锁
+    // Fair read-write lock: read and write locks are granted in arrival order
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+    // 不带超时的 tryLock() 会插队，无视公平性；超时为 0 的 tryLock 会尊重排队顺序
+    // The untimed tryLock() barges and ignores fairness; a timed tryLock with a zero timeout honours the queue
+    @Override
+    public long tryAcquireRead() {
+        try {
+            return lock.readLock().tryLock(0, TimeUnit.NANOSECONDS) ? 1 : 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // 恢复中断状态 // Restore interrupt status
+            return 0;
+        }
+    }
+
+    @Override
+    public long acquireRead() throws InterruptedException {
+        lock.readLock().lockInterruptibly();
+        return 1;
+    }
+
+    @Override
+    public boolean releaseRead(long token) {
+        lock.readLock().unlock();
+        return true;
+    }
+
+    @Override
+    public boolean tryAcquireWrite() {
+        try {
+            return lock.writeLock().tryLock(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void acquireWrite() throws InterruptedException {
+        lock.writeLock().lockInterruptibly();
+    }
+
+    @Override
+    public void releaseWrite() {
+        lock.writeLock().unlock();
+    }
+
+    @Override
+    public int readerCount() {
+        return lock.getReadLockCount();
+    }
+
+    @Override
+    public boolean isWriteLocked() {
+        return lock.isWriteLocked();
+    }
+}
@@ -0,0 +1,361 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+public class HeadlessRunner {
+    // 无界面运行的参数
+    // Parameters of a headless run
+    public static class Options {
+        int producers = 4;
+        int consumers = 4;
+        int bufferSize = 16;
+        double seconds = 5;
+        long thinkMillis = 0;
+        BufferEngine engine = BufferEngine.SLOT_LOCK;
+        // 等待策略，为 null 时使用缓冲区的默认策略
+        // Wait strategy; null uses the buffer's default
+        WaitStrategy wait = null;
+        ExecutionMode mode = ExecutionMode.PLATFORM;
+        boolean metrics = false;
+
+        // 每条数据记录的字节数，为 0 时不携带数据
+        // Bytes per data record; 0 carries no data
+        int recordBytes = 0;
+
+        // 每次操作的批量大小；命令行可以给出多个，依次运行并比较吞吐量
+        // Items per operation; several may be given on the command line, run one after another and compared
+        int batch = 1;
+        int[] batchSizes = {1};
+
+        // 轨迹文件和大小上限（MB），为 null 时不录制
+        // Trace file and its size limit (MB); null records nothing
+        Path trace = null;
+        long traceMb = TraceRecorder.DEFAULT_MAX_MB;
+
+        // 开环模式的到达方式，为 null 时是闭环模式
+        // Arrival schedule for open-loop mode; null runs closed-loop
+        ArrivalSchedule arrivals = null;
+
+        // 缓冲区满时的过载策略
+        // Overload policy for a full buffer
+        OverloadPolicy overload = OverloadPolicy.BLOCK;
+
+        // 进程调度策略，为 null 时不经调度器；命令行可以给出多个，依次运行并比较
+        // Process scheduling policy; null bypasses the scheduler. Several may be given on the command line, run one after another and compared
+        SchedulingPolicy scheduling = null;
+        SchedulingPolicy[] schedulings = {null};
+
+        // 调度器模拟的处理器个数、按进程编号循环取用的权重，以及各组绑定的核心
+        // Processors the scheduler simulates, weights handed out by process id in turn, and the cores each group is pinned to
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int[] weights = {1, 2, 3, 4};
+        Map<String, String> pins = Map.of();
+
+        // 解析命令行参数，例如 --engine ring --producers 8 --consumers 8 --buffer 64 --seconds 10 --think-ms 0
+        // Parse command line arguments, e.g. --engine ring --producers 8 --consumers 8 --buffer 64 --seconds 10 --think-ms 0
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--producers" -> options.producers = Integer.parseInt(value);
+                    case "--consumers" -> options.consumers = Integer.parseInt(value);
+                    case "--buffer" -> options.bufferSize = Integer.parseInt(value);
+                    case "--seconds" -> options.seconds = Double.parseDouble(value);
+                    case "--think-ms" -> options.thinkMillis = Long.parseLong(value);
+                    case "--batch" -> {
+                        String[] parts = value.split(",");
+                        options.batchSizes = new int[parts.length];
+                        for (int j = 0; j < parts.length; j++) {
+                            options.batchSizes[j] = Integer.parseInt(parts[j].trim());
+                        }
+                        options.batch = options.batchSizes[0];
+                    }
+                    case "--record-bytes" -> options.recordBytes = Integer.parseInt(value);
+                    case "--trace" -> options.trace = Path.of(value);
+                    case "--trace-mb" -> options.traceMb = Long.parseLong(value);
+                    case "--arrivals" -> options.arrivals = ArrivalSchedule.parse(value);
+                    case "--overload" -> options.overload = OverloadPolicy.parse(value);
+                    case "--scheduler" -> {
+                        options.schedulings = Arrays.stream(value.split(",")).map(SchedulingPolicy::parse).toArray(SchedulingPolicy[]::new);
+                        options.scheduling = options.schedulings[0];
+                    }
+                    case "--cpus" -> options.cpus = Integer.parseInt(value);
+                    case "--weights" -> options.weights = ProcessScheduler.parseWeights(value);
+                    case "--pin" -> options.pins = ProcessScheduler.parsePins(value);
+                    case "--engine" -> options.engine = BufferEngine.of(value);
+                    case "--wait" -> options.wait = WaitStrategy.of(value);
+                    case "--threads" -> options.mode = ExecutionMode.of(value);
+                    case "--metrics" -> options.metrics = switch (value) {
+                        case "on" -> true;
+                        case "off" -> false;
+                        default -> throw new IllegalArgumentException("--metrics takes on or off");
+                    };
+                    default -> throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            if (options.producers < 1 || options.consumers < 1 || options.bufferSize < 1 || options.seconds <= 0 || options.thinkMillis < 0) {
+                throw new IllegalArgumentException("Counts and buffer size must be positive, seconds positive and think time non-negative");
+            }
+            if (options.recordBytes != 0) {
+                PayloadArena.checkRecordSize(options.recordBytes);
+            }
+            if (options.recordBytes > 0 && !options.engine.hasPositions()) {
+                throw new IllegalArgumentException("Engine " + options.engine + " has no positions and cannot carry records");
+            }
+            if (options.trace != null && (!options.engine.hasPositions() || options.batchSizes.length > 1 || options.traceMb < 1)) {
+                throw new IllegalArgumentException("--trace needs an engine with positions, a single batch size and a positive --trace-mb");
+            }
+            // 重放时按轨迹里的交接顺序推进，被丢弃或拒绝的数据项会让它无法对上
+            // A replay follows the recorded hand-overs, which dropped or rejected items would throw out
+            if (options.trace != null && options.overload != OverloadPolicy.BLOCK) {
+                throw new IllegalArgumentException("--trace needs the block overload policy");
+            }
+            options.overload.check(options.bufferSize);
+            if (options.arrivals != null && (!options.engine.hasPositions() || options.batchSizes.length > 1 || options.batch > 1)) {
+                throw new IllegalArgumentException("--arrivals needs an engine with positions and a batch size of 1");
+            }
+            // 调度器在自己的平台线程上运行进程，靠每次循环开头让出处理器；开环生产者在一次循环里会多次检查令牌
+            // The scheduler runs processes on its own platform threads and relies on each loop top to give up a processor; an open-loop producer checks the token several times per loop
+            if (options.scheduling != null && (options.mode != ExecutionMode.PLATFORM || options.arrivals != null || options.cpus < 1)) {
+                throw new IllegalArgumentException("--scheduler needs platform threads, closed-loop arrivals and a positive --cpus");
+            }
+            // 一直自旋的等待者从不阻塞，不会交还模拟的处理器，等的那个进程就永远排不上；有真正的调度策略时默认改为阻塞等待
+            // A waiter that keeps spinning never blocks, so it never gives its simulated processor back and the process it waits for never gets one; with a real scheduling policy the default becomes a blocking wait
+            boolean simulated = Arrays.stream(options.schedulings).anyMatch(p -> p != null && p != SchedulingPolicy.OS);
+            if (simulated && options.engine.hasWaitStrategy()) {
+                if (options.wait == null) {
+                    options.wait = WaitStrategy.BLOCKING;
+                } else if (options.wait == WaitStrategy.BUSY_SPIN || options.wait == WaitStrategy.SPIN_YIELD) {
+                    throw new IllegalArgumentException("--scheduler needs a wait strategy that parks (blocking or adaptive)");
+                }
+            }
+            if (options.wait == null) {
+                options.wait = options.engine.defaultWait();
+            }
+            for (int size : options.batchSizes) {
+                if (size < 1) {
+                    throw new IllegalArgumentException("Batch sizes must be positive");
+                }
+            }
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            return "engine=" + engine + " wait=" + wait + " threads=" + mode + " producers=" + producers + " consumers=" + consumers + " buffer=" + bufferSize
+                    + " capacity=" + engine.capacity(bufferSize, ShardedBuffer.shardsFor(producers, consumers))
+                    + " seconds=" + seconds + " think-ms=" + thinkMillis + " batch=" + batch + " record-bytes=" + recordBytes + " metrics=" + (metrics ? "on" : "off")
+                    + (trace != null ? " trace=" + trace : "") + (arrivals != null ? " arrivals=" + arrivals : "") + (overload != OverloadPolicy.BLOCK ? " overload=" + overload : "")
+                    + (scheduling != null ? " scheduler=" + scheduling + (scheduling != SchedulingPolicy.OS ? " cpus=" + cpus : "") : "");
+        }
+    }
+
+    // 一次运行的结果
+    // Result of one run
+    public static class Result {
+        final Options options;
+        final int batch;
+        final RunStats stats;
+        final long elapsedNanos;
+
+        // 虚拟线程钉住载体线程的次数，平台线程模式下为 -1
+        // Number of times a virtual thread pinned its carrier; -1 in platform thread mode
+        final long pinnedCarriers;
+
+        // 竞争统计，未开启时为 null
+        // Contention metrics; null when not enabled
+        final ContentionMetrics metrics;
+
+        // 数据记录占用的堆外字节数，不携带数据时为 0
+        // Off-heap bytes taken by the records; 0 when no data is carried
+        final long arenaBytes;
+
+        // 轨迹录制器，未录制时为 null
+        // Trace recorder; null when nothing was recorded
+        final TraceRecorder trace;
+
+        // 分片缓冲区，用于报告偷取和溢出的次数；其他缓冲区时为 null
+        // The sharded buffer, for reporting steals and spills; null for other buffers
+        final ShardedBuffer sharded;
+
+        // 过载策略的包装，用于报告丢弃、超时、拒绝和扩容的次数；阻塞策略时为 null
+        // The overload wrapper, for reporting drops, timeouts, rejections and resizes; null for the block policy
+        final OverloadBuffer overload;
+
+        // 进程调度器，用于报告公平指数和上下文切换次数；不经调度器时为 null
+        // The process scheduler, for reporting fairness and context switches; null when no scheduler was used
+        final ProcessScheduler scheduler;
+        final SchedulingPolicy scheduling;
+
+        Result(Options options, RunStats stats, long elapsedNanos, long pinnedCarriers, ContentionMetrics metrics, long arenaBytes, TraceRecorder trace,
+               ShardedBuffer sharded, OverloadBuffer overload, ProcessScheduler scheduler) {
+            this.options = options;
+            this.batch = options.batch;
+            this.scheduling = options.scheduling;
+            this.scheduler = scheduler;
+            this.stats = stats;
+            this.elapsedNanos = elapsedNanos;
+            this.pinnedCarriers = pinnedCarriers;
+            this.metrics = metrics;
+            this.arenaBytes = arenaBytes;
+            this.trace = trace;
+            this.sharded = sharded;
+            this.overload = overload;
+        }
+
+        double itemsPerSecond() {
+            return stats.consumed() / (elapsedNanos / 1e9);
+        }
+    }
+
+    // 不使用界面运行生产者-消费者模拟，结束后返回统计结果
+    // Run the producer-consumer simulation without any UI and return the statistics when done
+    public static Result run(Options options) throws InterruptedException, IOException {
+        // 统计按底层缓冲区的实际容量分行，环形和分片缓冲区报告的位置可能超过 bufferSize
+        // Metrics rows follow the underlying buffer's actual capacity, since the ring and sharded buffers may report positions beyond bufferSize
+        int shards = ShardedBuffer.shardsFor(options.producers, options.consumers);
+        int innerSize = options.overload.innerSize(options.bufferSize);
+        ContentionMetrics metrics = options.metrics ? new ContentionMetrics(options.engine.capacity(innerSize, shards)) : null;
+        // 录制时文件头记下缓冲区类型、容量和分片数，重放时据此新建同样的缓冲区
+        // When recording, the header keeps the engine, capacity and shard count so a replay can build the same buffer
+        TraceRecorder trace = options.trace != null
+                ? new TraceRecorder(options.trace, options.traceMb << 20, TraceRecorder.PRODUCER_CONSUMER, options.engine.ordinal(), options.bufferSize,
+                        options.engine == BufferEngine.SHARDED ? shards : 0)
+                : null;
+        SyncProbe probe = SyncProbe.combine(metrics != null ? metrics : SyncProbe.NONE, trace != null ? trace : SyncProbe.NONE);
+        // 弹性策略下底层缓冲区按上限分配
+        // Under the elastic policy the underlying buffer is allocated at the cap
+        BoundedBuffer inner = options.engine.create(innerSize, shards, options.wait, EventLog.DISABLED, probe);
+        BoundedBuffer buffer = options.overload.wrap(inner, options.bufferSize, EventLog.DISABLED, null);
+        // 数据记录放在堆外区域，大小按实际容量（环形缓冲区会向上取整到 2 的幂）
+        // Records live in an off-heap arena sized by the actual capacity (the ring rounds up to a power of two)
+        PayloadArena arena = options.recordBytes > 0 ? new PayloadArena(buffer.capacity(), options.recordBytes) : null;
+        RunStats stats = new RunStats();
+        PinnedCarrierMonitor pinnedMonitor = options.mode == ExecutionMode.VIRTUAL ? new PinnedCarrierMonitor() : null;
+
+        // 所有进程都在同一个执行器中运行，关闭执行器时会等待它们全部结束
+        // Every process runs in one executor; closing the executor waits for all of them to finish
+        CancellationToken cancellation = new CancellationToken();
+        ProcessScheduler scheduler = options.scheduling != null ? new ProcessScheduler(options.scheduling, options.cpus, options.weights, options.pins) : null;
+        if (scheduler != null) {
+            cancellation.schedule(scheduler);
+        }
+        long start;
+        long elapsed;
+        try (ExecutorService executor = options.mode.newExecutor("pc-")) {
+            start = System.nanoTime();
+            // 开环计划从进程启动时算起，不含前面的准备时间
+            // The open-loop schedule counts from when the processes start, not from the set-up before
+            OpenLoop openLoop = options.arrivals != null ? new OpenLoop(options.arrivals, options.producers, buffer.capacity()) : null;
+            for (int i = 0; i < options.producers; i++) {
+                Runnable producer = new Producer(buffer, arena, openLoop, stats, cancellation, options.batch, options.thinkMillis, i);
+                executor.submit(scheduler != null ? scheduler.wrap("producer", i, producer) : producer);
+            }
+            for (int i = 0; i < options.consumers; i++) {
+                Runnable consumer = new Consumer(buffer, arena, openLoop, stats, cancellation, options.batch, options.thinkMillis, i);
+                executor.submit(scheduler != null ? scheduler.wrap("consumer", i, consumer) : consumer);
+            }
+            try {
+                Thread.sleep((long) (options.seconds * 1000)); // 运行指定时间 // Run for the specified time
+            } finally {
+                cancellation.cancel();
+                executor.shutdownNow(); // 中断所有进程 // Interrupt every process
+            }
+            elapsed = System.nanoTime() - start;
+        }
+
+        if (trace != null) {
+            trace.close(); // 执行器关闭时所有进程都已结束 // Every process has ended once the executor is closed
+        }
+
+        long pinned = -1;
+        if (pinnedMonitor != null) {
+            pinnedMonitor.close();
+            pinned = pinnedMonitor.pinnedCount();
+        }
+        return new Result(options, stats, elapsed, pinned, metrics, arena != null ? arena.bytes() : 0, trace,
+                inner instanceof ShardedBuffer sharded ? sharded : null, buffer instanceof OverloadBuffer overload ? overload : null, scheduler);
+    }
+
+    // 分片数以及跨分片取走和放入的数据项占比；占比越低，各对生产者和消费者越少争用同一缓存行
+    // Shard count and the share of items taken from or put into another shard; the lower the share, the less the pairs contend on shared cache lines
+    static String shardSummary(ShardedBuffer buffer, long consumed) {
+        double total = Math.max(1, consumed);
+        return String.format("shards:       %d, %d stolen (%.1f%%), %d spilled (%.1f%%)%n", buffer.shardCount(),
+                buffer.stolen(), 100 * buffer.stolen() / total, buffer.spilled(), 100 * buffer.spilled() / total);
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: headless [--engine slot-lock|monitor|ring|sharded|...] [--wait blocking|busy-spin|spin-yield|adaptive] [--threads platform|virtual] [--producers N] [--consumers N] [--buffer N] [--seconds S] [--think-ms T] [--batch K[,K...]] [--record-bytes 64..65536] [--metrics on|off] [--trace FILE] [--trace-mb N] [--arrivals constant|poisson|bursty[:RATE[:ON/OFF]]] [--overload block|timeout:MS|drop-newest|drop-oldest|reject|elastic:CAP]"
+                    + " [--scheduler os|fifo|rr:MS|priority:MS|lottery:MS[,...]] [--cpus N] [--weights W1,W2,...] [--pin GROUP=CORES;...]");
+            System.exit(2);
+            return;
+        }
+        // 依次运行每个调度策略和批量大小，最后比较
+        // Run each scheduling policy and batch size in turn, then compare them
+        List<Result> results = new ArrayList<>();
+        for (SchedulingPolicy scheduling : options.schedulings) {
+            for (int batch : options.batchSizes) {
+                options.scheduling = scheduling;
+                options.batch = batch;
+                System.out.println("Producer-Consumer headless run: " + options);
+                Result result = run(options);
+                results.add(result);
+                System.out.print(result.stats.report(result.elapsedNanos));
+                if (result.pinnedCarriers >= 0) {
+                    System.out.printf("pinned:       %d virtual thread pinning events%n", result.pinnedCarriers);
+                }
+                if (result.arenaBytes > 0) {
+                    // 堆外区域的大小与缓冲区成正比，而堆的占用应当保持平稳
+                    // The off-heap arena grows with the buffer while heap usage should stay flat
+                    System.out.printf("memory:       %.2f MB off-heap arena, %.1f MB heap used%n",
+                            result.arenaBytes / 1e6, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1e6);
+                }
+                if (result.sharded != null) {
+                    System.out.print(shardSummary(result.sharded, result.stats.consumed()));
+                }
+                if (result.overload != null) {
+                    System.out.print(result.overload.summary());
+                }
+                if (result.scheduler != null) {
+                    System.out.print(result.scheduler.summary());
+                }
+                if (result.metrics != null) {
+                    System.out.print(result.metrics.report(5));
+                }
+                if (result.trace != null) {
+                    System.out.print(result.trace.summary());
+                }
+            }
+        }
+        if (options.schedulings.length > 1) {
+            System.out.println("scheduler comparison:");
+            System.out.printf("  %-14s %6s %12s %9s %10s %12s%n", "scheduler", "batch", "items/s", "fairness", "switches", "os switches");
+            for (Result result : results) {
+                System.out.printf("  %-14s %6d %12.0f %9.3f %10d %12d%n", result.scheduling, result.batch, result.itemsPerSecond(),
+                        result.scheduler.fairness(), result.scheduler.switches(), result.scheduler.osSwitches());
+            }
+        } else if (results.size() > 1) {
+            double baseline = results.get(0).itemsPerSecond();
+            System.out.println("batch size comparison:");
+            for (Result result : results) {
+                System.out.printf("  batch %-6d %12.0f items/s  x%.2f%n", result.batch, result.itemsPerSecond(), result.itemsPerSecond() / baseline);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+public class JsonWriter {
+    // 输出内容
+    // Output text
+    private final StringBuilder out = new StringBuilder();
+
+    // 下一个值之前是否需要逗号
+    // Whether the next value needs a leading comma
+    private boolean needComma = false;
+
+    public JsonWriter beginObject() {
+        separator();
+        out.append('{');
+        needComma = false;
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        out.append('}');
+        needComma = true;
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        separator();
+        out.append('[');
+        needComma = false;
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        out.append(']');
+        needComma = true;
+        return this;
+    }
+
+    // 对象中的字段名，之后必须跟一个值
+    // Field name inside an object; must be followed by a value
+    public JsonWriter name(String name) {
+        separator();
+        quote(name);
+        out.append(':');
+        needComma = false;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        separator();
+        if (value == null) {
+            out.append("null");
+        } else {
+            quote(value);
+        }
+        needComma = true;
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        separator();
+        out.append(value);
+        needComma = true;
+        return this;
+    }
+
+    public JsonWriter value(double value) {
+        separator();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null"); // JSON 不支持 NaN 和无穷大 // JSON has no NaN or infinity
+        } else {
+            out.append(value);
+        }
+        needComma = true;
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        separator();
+        out.append(value);
+        needComma = true;
+        return this;
+    }
+
+    private void separator() {
+        if (needComma) {
+            out.append(',');
+        }
+    }
+
+    private void quote(String text) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
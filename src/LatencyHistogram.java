@@ -0,0 +1,125 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+    // 每个 2 的幂区间再线性划分为 32 个子桶，相对误差约 3%
+    // Every power-of-two range is split linearly into 32 sub-buckets, about 3% relative error
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    // 各个桶的计数，可以被多个线程无锁地并发记录
+    // Per-bucket counts, recorded concurrently by many threads without locks
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    // 总数、总和与最大值
+    // Total count, sum and maximum
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    // 记录一个纳秒值
+    // Record one value in nanoseconds
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(indexOf(nanos));
+        total.increment();
+        sum.add(nanos);
+        // 用 CAS 更新最大值而不是 synchronized，虚拟线程不会因此钉住载体线程
+        // Update the maximum with CAS rather than synchronized, so virtual threads never pin their carrier here
+        if (nanos > max.get()) {
+            max.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    // 计算值所在的桶
+    // Compute the bucket a value falls into
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int group = exponent - SUB_BITS + 1;
+        int sub = (int) (value >>> (exponent - SUB_BITS)) - SUB_COUNT;
+        return group * SUB_COUNT + sub;
+    }
+
+    // 桶内能表示的最大值
+    // Highest value represented by a bucket
+    static long highestValueOf(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int group = index / SUB_COUNT;
+        int sub = index % SUB_COUNT;
+        return ((long) (SUB_COUNT + sub + 1) << (group - 1)) - 1;
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    // 返回百分位数（0-100）对应的纳秒值
+    // Return the value in nanoseconds at the given percentile (0-100)
+    public long percentile(double percentile) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // 把另一个直方图的数据合并进来
+    // Merge the data of another histogram into this one
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        total.add(other.total.sum());
+        sum.add(other.sum.sum());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    // 以微秒为单位的摘要：p50/p90/p99/p99.9/max
+    // Summary in microseconds: p50/p90/p99/p99.9/max
+    public String summary() {
+        return String.format("n=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                count(), mean() / 1000.0, percentile(50) / 1000.0, percentile(90) / 1000.0,
+                percentile(99) / 1000.0, percentile(99.9) / 1000.0, max() / 1000.0);
+    }
+}
@@ -0,0 +1,346 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+public class LitmusTests {
+    // 每一轮同时准备的状态数：两个参与者各自在一轮里连续跑完所有状态，减少同步的开销，也让两边更可能真正交错
+    // States prepared per round: each actor runs through all of them back to back, which cuts the synchronization cost and makes real interleavings more likely
+    static final int STATES_PER_ROUND = 1024;
+
+    // 结果的等级，与 jcstress 相同：允许的、允许但值得注意的（说明存在数据竞争）、禁止的
+    // Outcome grades as in jcstress: acceptable, acceptable but interesting (a data race shows through), and forbidden
+    enum Grade { ACCEPTABLE, INTERESTING, FORBIDDEN }
+
+    // 一个试金石测试：两个参与者并发地操作同一个新状态，之后由裁判读出结果
+    // One litmus test: two actors work concurrently on the same fresh state, then the arbiter reads the outcome
+    abstract static class Test<S> {
+        final String name;
+
+        Test(String name) {
+            this.name = name;
+        }
+
+        abstract S newState();
+
+        abstract void actor1(S state);
+
+        abstract void actor2(S state);
+
+        // 两个参与者都结束后调用，返回描述结果的文字
+        // Called once both actors are done; returns text describing the outcome
+        abstract String arbiter(S state);
+
+        abstract Grade grade(String outcome);
+    }
+
+    // 一个测试的结果：每种结果出现的次数，以及是否出现过禁止的结果
+    // Result of one test: how often each outcome occurred, and whether a forbidden one did
+    static class Result {
+        final String name;
+        final Map<String, Long> outcomes = new TreeMap<>();
+        final Map<String, Grade> grades = new TreeMap<>();
+
+        Result(String name) {
+            this.name = name;
+        }
+
+        boolean forbidden() {
+            return grades.containsValue(Grade.FORBIDDEN);
+        }
+
+        boolean interesting() {
+            return grades.containsValue(Grade.INTERESTING);
+        }
+
+        String report() {
+            StringBuilder out = new StringBuilder(String.format("%-10s %s%n", forbidden() ? "FORBIDDEN" : interesting() ? "RACY" : "PASS", name));
+            for (Map.Entry<String, Long> entry : outcomes.entrySet()) {
+                Grade grade = grades.get(entry.getKey());
+                out.append(String.format("           %12d  %-40s %s%n", entry.getValue(), entry.getKey(), grade == Grade.ACCEPTABLE ? "" : grade));
+            }
+            return out.toString();
+        }
+    }
+
+    // 用两个平台线程运行 iterations 次
+    // Run the test iterations times on two platform threads
+    static <S> Result run(Test<S> test, int iterations) throws InterruptedException {
+        Result result = new Result(test.name);
+        List<S> states = new ArrayList<>();
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        Thread[] actors = new Thread[2];
+        for (int a = 0; a < 2; a++) {
+            int which = a;
+            actors[a] = Thread.ofPlatform().daemon().name("litmus-actor-" + (a + 1)).start(() -> {
+                try {
+                    while (true) {
+                        barrier.await(); // 一轮开始 // A round begins
+                        if (states.isEmpty()) {
+                            return; // 没有状态表示结束 // No states means done
+                        }
+                        for (S state : states) {
+                            if (which == 0) {
+                                test.actor1(state);
+                            } else {
+                                test.actor2(state);
+                            }
+                        }
+                        barrier.await(); // 一轮结束 // A round ends
+                    }
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        try {
+            for (int done = 0; done < iterations; done += STATES_PER_ROUND) {
+                states.clear();
+                for (int i = 0; i < Math.min(STATES_PER_ROUND, iterations - done); i++) {
+                    states.add(test.newState());
+                }
+                barrier.await();
+                barrier.await();
+                for (S state : states) {
+                    String outcome = test.arbiter(state);
+                    result.outcomes.merge(outcome, 1L, Long::sum);
+                    result.grades.computeIfAbsent(outcome, test::grade);
+                }
+            }
+            states.clear();
+            barrier.await(); // 放参与者退出 // Let the actors leave
+        } catch (BrokenBarrierException e) {
+            throw new IllegalStateException("Litmus actor failed in " + test.name, e);
+        }
+        for (Thread actor : actors) {
+            actor.join();
+        }
+        return result;
+    }
+
+    // 原来的做法：普通的 boolean 数组标记加普通的数据写入，没有任何可见性保证；看到标记却读到旧数据说明存在数据竞争
+    // The original scheme: a plain boolean flag next to plain data, with no visibility guarantee at all; seeing the flag but stale data shows the race
+    static class PlainFlag {
+        final boolean[] produced = new boolean[1];
+        final long[] data = new long[1];
+        boolean sawFlag;
+        long sawData;
+    }
+
+    static Test<PlainFlag> plainFlag() {
+        return new Test<>("plain boolean[] flag (the original scheme)") {
+            PlainFlag newState() {
+                return new PlainFlag();
+            }
+
+            void actor1(PlainFlag s) {
+                s.data[0] = 42;
+                s.produced[0] = true;
+            }
+
+            void actor2(PlainFlag s) {
+                s.sawFlag = s.produced[0];
+                s.sawData = s.data[0];
+            }
+
+            String arbiter(PlainFlag s) {
+                return "flag=" + s.sawFlag + " data=" + s.sawData;
+            }
+
+            Grade grade(String outcome) {
+                return outcome.equals("flag=true data=0") ? Grade.INTERESTING : Grade.ACCEPTABLE;
+            }
+        };
+    }
+
+    // 缓冲区的消息传递：生产者在位置上写入数据后交出，消费者取到位置时必须看到这个数据
+    // Message passing through a buffer: the producer writes data at its position before handing it over, and a consumer that takes the position must see that data
+    static class Handover {
+        final BoundedBuffer buffer;
+        final long[] data;
+        final BufferCursor producer = new BufferCursor(EventLog.PRODUCER, 0);
+        final BufferCursor consumer = new BufferCursor(EventLog.CONSUMER, 0);
+        boolean took;
+        long seen;
+
+        Handover(BufferEngine engine) {
+            buffer = engine.create(1, 1, engine.defaultWait(), EventLog.DISABLED, SyncProbe.NONE);
+            data = new long[buffer.capacity()];
+            producer.visitor = slot -> data[slot] = 42;
+            consumer.visitor = slot -> seen = data[slot];
+        }
+    }
+
+    static Test<Handover> handover(BufferEngine engine) {
+        return new Test<>(engine + " put / tryTake message passing") {
+            Handover newState() {
+                return new Handover(engine);
+            }
+
+            void actor1(Handover s) {
+                try {
+                    s.buffer.put(s.producer); // 空缓冲区，不会等待 // The buffer is empty, so this never waits
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            void actor2(Handover s) {
+                s.took = s.buffer.tryTake(s.consumer);
+            }
+
+            String arbiter(Handover s) {
+                return s.took ? "took, saw " + s.seen : "empty";
+            }
+
+            Grade grade(String outcome) {
+                return outcome.equals("empty") || outcome.equals("took, saw 42") ? Grade.ACCEPTABLE : Grade.FORBIDDEN;
+            }
+        };
+    }
+
+    // 读写互斥：读者和写者各自在持有锁时举旗并查看对方的旗；有效的读与写同时在内就是违反互斥
+    // Reader-writer exclusion: reader and writer each raise a flag while holding the lock and look at the other's; a valid read inside together with a write breaks exclusion
+    static class Exclusion {
+        final ReadWritePolicy lock;
+        volatile boolean readerIn;
+        volatile boolean writerIn;
+        String reader = "no read";
+        boolean readerSawWriter;
+        boolean writer;
+        boolean writerSawReader;
+
+        Exclusion(LockPolicy policy) {
+            lock = policy.create();
+        }
+    }
+
+    static Test<Exclusion> exclusion(LockPolicy policy) {
+        return new Test<>(policy + " read / write exclusion") {
+            Exclusion newState() {
+                return new Exclusion(policy);
+            }
+
+            void actor1(Exclusion s) {
+                long token = s.lock.tryAcquireRead();
+                if (token == 0) {
+                    return;
+                }
+                s.readerIn = true;
+                s.readerSawWriter = s.writerIn;
+                s.readerIn = false;
+                // 乐观读失效时读到的东西会被丢弃，与写者同时在内是允许的
+                // An invalidated optimistic read is thrown away, so overlapping a writer is allowed
+                s.reader = s.lock.releaseRead(token) ? "read" : "invalid read";
+            }
+
+            void actor2(Exclusion s) {
+                if (!s.lock.tryAcquireWrite()) {
+                    return;
+                }
+                s.writer = true;
+                s.writerIn = true;
+                s.writerSawReader = s.readerIn;
+                s.writerIn = false;
+                s.lock.releaseWrite();
+            }
+
+            String arbiter(Exclusion s) {
+                boolean overlap = s.reader.equals("read") && (s.readerSawWriter || s.writerSawReader);
+                return s.reader + ", " + (s.writer ? "write" : "no write") + (overlap ? ", overlapped" : "");
+            }
+
+            Grade grade(String outcome) {
+                return outcome.endsWith("overlapped") ? Grade.FORBIDDEN : Grade.ACCEPTABLE;
+            }
+        };
+    }
+
+    // RCU 快照：读者与连续两次发布并发时，读到的版本必须完整；开启回收时第二次发布可能重新使用第一个版本的数组
+    // RCU snapshots: a reader racing two publishes must always see a whole version; with reclamation on, the second publish may reuse the first version's array
+    static Test<RcuPolicy> snapshot(LockPolicy policy) {
+        return new Test<>(policy + " snapshot / publish") {
+            RcuPolicy newState() {
+                return (RcuPolicy) policy.create();
+            }
+
+            void actor1(RcuPolicy s) {
+                s.releaseRead(s.tryAcquireRead());
+            }
+
+            void actor2(RcuPolicy s) {
+                for (int i = 0; i < 2; i++) {
+                    s.tryAcquireWrite();
+                    s.releaseWrite();
+                }
+            }
+
+            String arbiter(RcuPolicy s) {
+                return s.tornReads() > 0 ? "torn snapshot" : "whole snapshot";
+            }
+
+            Grade grade(String outcome) {
+                return outcome.equals("torn snapshot") ? Grade.FORBIDDEN : Grade.ACCEPTABLE;
+            }
+        };
+    }
+
+    // 事件日志的消息传递：读取者取到的事件必须是发布者写完整的那一条
+    // Event log message passing: an event the drainer takes must be the whole one the publisher wrote
+    static class Publish {
+        final EventLog log = new EventLog(2);
+        int drained;
+        boolean intact = true;
+    }
+
+    static Test<Publish> publish() {
+        return new Test<>("event log publish / drain") {
+            Publish newState() {
+                return new Publish();
+            }
+
+            void actor1(Publish s) {
+                s.log.publish(EventLog.PRODUCER, 7, 7, EventLog.PRODUCED);
+            }
+
+            void actor2(Publish s) {
+                s.drained = s.log.drain((kind, id, slot, action, nanoTime) -> {
+                    if (kind != EventLog.PRODUCER || id != 7 || slot != 7 || action != EventLog.PRODUCED) {
+                        s.intact = false;
+                    }
+                }, 1);
+            }
+
+            String arbiter(Publish s) {
+                return s.drained == 0 ? "empty" : s.intact ? "drained whole event" : "drained torn event";
+            }
+
+            Grade grade(String outcome) {
+                return outcome.equals("drained torn event") ? Grade.FORBIDDEN : Grade.ACCEPTABLE;
+            }
+        };
+    }
+
+    // 所有测试：原来的做法作为对照，每种有位置的缓冲区、每种读写策略，以及事件日志
+    // Every test: the original scheme as a baseline, each buffer with positions, each read-write policy and the event log
+    static List<Test<?>> all() {
+        List<Test<?>> tests = new ArrayList<>();
+        tests.add(plainFlag());
+        for (BufferEngine engine : BufferEngine.values()) {
+            if (engine.hasPositions()) {
+                tests.add(handover(engine));
+            }
+        }
+        for (LockPolicy policy : LockPolicy.values()) {
+            if (policy == LockPolicy.RCU || policy == LockPolicy.RCU_REFCOUNT) {
+                tests.add(snapshot(policy)); // 读者本来就与写者并发 // Readers run alongside writers by design
+            } else {
+                tests.add(exclusion(policy));
+            }
+        }
+        tests.add(publish());
+        return tests;
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LoadSweep {
+    // 扫描的参数；其余参数交给无界面运行，例如 --engine、--consumers、--think-ms
+    // Sweep parameters; every other argument goes to the headless run, e.g. --engine, --consumers, --think-ms
+    static class Options {
+        double[] rates = {1000, 2000, 5000, 10000, 20000, 50000, 100000};
+        Path csv = Path.of("load_sweep.csv");
+        Path output = Path.of("load_sweep.json");
+        HeadlessRunner.Options run;
+
+        // 解析命令行参数，例如 --rates 1000,5000,20000 --arrivals poisson --engine ring --consumers 2 --seconds 3
+        // Parse command line arguments, e.g. --rates 1000,5000,20000 --arrivals poisson --engine ring --consumers 2 --seconds 3
+        static Options parse(String[] args) {
+            Options options = new Options();
+            List<String> rest = new ArrayList<>();
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--rates" -> options.rates = Arrays.stream(value.split(",")).mapToDouble(Double::parseDouble).toArray();
+                    case "--csv" -> options.csv = Path.of(value);
+                    case "--out" -> options.output = Path.of(value);
+                    default -> {
+                        rest.add(name);
+                        rest.add(value);
+                    }
+                }
+            }
+            for (double rate : options.rates) {
+                if (rate <= 0) {
+                    throw new IllegalArgumentException("Rates must be positive");
+                }
+            }
+            if (!rest.contains("--arrivals")) {
+                rest.add("--arrivals");
+                rest.add("poisson");
+            }
+            options.run = HeadlessRunner.Options.parse(rest.toArray(new String[0]));
+            return options;
+        }
+    }
+
+    // 一个负载点的结果：提供的负载、实际吞吐量和端到端延迟分布
+    // Result of one load point: offered load, achieved throughput and end-to-end latency distribution
+    static class Point {
+        final double offered;
+        final double achieved;
+        final LatencyHistogram latency;
+
+        Point(double offered, double achieved, LatencyHistogram latency) {
+            this.offered = offered;
+            this.achieved = achieved;
+            this.latency = latency;
+        }
+    }
+
+    static String toCsv(List<Point> points) {
+        StringBuilder out = new StringBuilder("offered_per_s,achieved_per_s,p50_us,p99_us,p999_us,max_us\n");
+        for (Point point : points) {
+            out.append(String.format("%.0f,%.0f,%.1f,%.1f,%.1f,%.1f%n", point.offered, point.achieved,
+                    point.latency.percentile(50) / 1e3, point.latency.percentile(99) / 1e3,
+                    point.latency.percentile(99.9) / 1e3, point.latency.max() / 1e3));
+        }
+        return out.toString();
+    }
+
+    static String toJson(List<Point> points, String settings) {
+        JsonWriter json = new JsonWriter().beginObject()
+                .name("settings").value(settings)
+                .name("points").beginArray();
+        for (Point point : points) {
+            json.beginObject()
+                    .name("offered").value(point.offered)
+                    .name("achieved").value(point.achieved)
+                    .name("p50Us").value(point.latency.percentile(50) / 1e3)
+                    .name("p99Us").value(point.latency.percentile(99) / 1e3)
+                    .name("p999Us").value(point.latency.percentile(99.9) / 1e3)
+                    .name("maxUs").value(point.latency.max() / 1e3)
+                    .endObject();
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    // 对每个提供的负载运行一次开环模拟，输出吞吐量和延迟的关系；超过系统容量后实际吞吐量不再增长，而延迟急剧上升
+    // Run one open-loop simulation per offered load and report throughput against latency; past capacity the achieved throughput levels off while latency shoots up
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: load [--rates R1,R2,...] [--csv FILE] [--out FILE] [--arrivals constant|poisson|bursty] [headless options]");
+            System.exit(2);
+            return;
+        }
+        ArrivalSchedule arrivals = options.run.arrivals;
+        String settings = options.run.toString();
+        System.out.println("Open-loop load sweep: " + settings);
+        System.out.printf("%12s %12s %10s %10s %10s %10s%n", "offered/s", "achieved/s", "p50 us", "p99 us", "p99.9 us", "max us");
+        List<Point> points = new ArrayList<>();
+        for (double rate : options.rates) {
+            options.run.arrivals = arrivals.withRate(rate);
+            HeadlessRunner.Result result = HeadlessRunner.run(options.run);
+            Point point = new Point(rate, result.itemsPerSecond(), result.stats.endToEndLatency);
+            points.add(point);
+            System.out.printf("%12.0f %12.0f %10.1f %10.1f %10.1f %10.1f%n", point.offered, point.achieved,
+                    point.latency.percentile(50) / 1e3, point.latency.percentile(99) / 1e3,
+                    point.latency.percentile(99.9) / 1e3, point.latency.max() / 1e3);
+        }
+        Files.writeString(options.csv, toCsv(points));
+        Files.writeString(options.output, toJson(points, settings));
+        System.out.println("Results written to " + options.csv + " and " + options.output);
+    }
+}
@@ -0,0 +1,67 @@
+public enum LockPolicy {
+    // 读者优先：只要没有写者在写，读者就能进入，写者可能饿死
+    // Reader preference: readers enter whenever no writer is writing, writers may starve
+    READER_PREFERENCE("reader-preference"),
+
+    // 写者优先：有写者等待时新读者不能进入，读者可能饿死
+    // Writer preference: new readers cannot enter while a writer waits, readers may starve
+    WRITER_PREFERENCE("writer-preference"),
+
+    // 公平的 ReentrantReadWriteLock，按到达顺序授予；原有模拟使用的就是它
+    // Fair ReentrantReadWriteLock granting in arrival order; the one the original simulation used
+    FAIR("fair"),
+
+    // StampedLock 乐观读，校验失败时加读锁重读
+    // StampedLock optimistic reads, re-read under a read lock when validation fails
+    STAMPED("stamped"),
+
+    // BRAVO 风格的分片读者计数，读者之间不争用同一个缓存行
+    // BRAVO-style striped read indicator, readers never contend on a shared cache line
+    STRIPED("striped"),
+
+    // RCU 风格的写时复制：写者复制出新版本后用原子替换发布，读者从不等待，旧版本交给垃圾回收
+    // RCU-style copy-on-write: writers copy out a new version and publish it with an atomic swap, readers never wait, old versions go to the garbage collector
+    RCU("rcu"),
+
+    // 同上，但每个版本记着自己的读者数，读者全部离开后回收并重新使用它的数组
+    // As above, but every version counts its own readers, and its array is reclaimed and reused once all of them have left
+    RCU_REFCOUNT("rcu-refcount");
+
+    // 命令行和界面中使用的名称
+    // Name used on the command line and in the UI
+    private final String label;
+
+    LockPolicy(String label) {
+        this.label = label;
+    }
+
+    // 创建该策略的读写锁
+    // Create a read-write lock with this policy
+    public ReadWritePolicy create() {
+        return switch (this) {
+            case READER_PREFERENCE -> new MonitorPolicy(false);
+            case WRITER_PREFERENCE -> new MonitorPolicy(true);
+            case FAIR -> new FairPolicy();
+            case STAMPED -> new StampedPolicy();
+            case STRIPED -> new StripedReadPolicy();
+            case RCU -> new RcuPolicy(false);
+            case RCU_REFCOUNT -> new RcuPolicy(true);
+        };
+    }
+
+    // 按名称查找
+    // Look up by name
+    public static LockPolicy of(String label) {
+        for (LockPolicy policy : values()) {
+            if (policy.label.equals(label)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown lock policy " + label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,112 @@
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class LogDrainer implements EventLog.Visitor {
+    // 每帧最多取出的事件数，防止一帧的文字过多
+    // Maximum events drained per frame so a single frame never carries too much text
+    private static final int MAX_EVENTS_PER_FRAME = 4096;
+
+    // 被取出的事件日志
+    // The event log being drained
+    private final EventLog log;
+
+    // 用于显示输出的文本区域
+    // Text area used to display output
+    private final JTextArea outputArea;
+
+    // 文本区域保留的最大行数
+    // Maximum number of lines kept in the text area
+    private final int maxLines;
+
+    // 在后台线程中合并文字，每帧只向事件分发线程提交一次
+    // Text is coalesced on a background thread and handed to the EDT once per frame
+    private final StringBuilder pending = new StringBuilder();
+    private final ScheduledExecutorService executor;
+
+    // 清屏的代数，丢弃清屏前已提交但尚未显示的文字
+    // Generation of the last clear, used to discard text queued before the clear
+    private volatile int generation = 0;
+
+    // 上一帧统计到的丢弃事件数
+    // Dropped event count seen at the previous frame
+    private long reportedDropped = 0;
+
+    public LogDrainer(EventLog log, JTextArea outputArea, int framesPerSecond, int maxLines) {
+        this.log = log;
+        this.outputArea = outputArea;
+        this.maxLines = maxLines;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "event-log-drainer");
+            thread.setDaemon(true); // 不阻止程序退出 // Do not keep the JVM alive
+            return thread;
+        });
+        long period = Math.max(1, 1000 / framesPerSecond);
+        executor.scheduleAtFixedRate(this::flush, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // 取出一帧的事件并一次性追加到文本区域
+    // Drain one frame of events and append them to the text area in one go
+    private synchronized void flush() {
+        log.drain(this, MAX_EVENTS_PER_FRAME);
+        long dropped = log.dropped();
+        if (dropped != reportedDropped) {
+            pending.append("... ").append(dropped - reportedDropped).append(" events dropped, the log cannot keep up ...\n");
+            reportedDropped = dropped;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        String text = pending.toString();
+        pending.setLength(0);
+        int frameGeneration = generation;
+        SwingUtilities.invokeLater(() -> {
+            if (frameGeneration == generation) {
+                outputArea.append(text);
+                trimScrollback();
+            }
+        });
+    }
+
+    @Override
+    public void visit(int kind, int id, int slot, int action, long nanoTime) {
+        EventLog.format(pending, kind, id, slot, action);
+    }
+
+    // 在已发布的事件之后追加一段文字，例如运行结束时的统计报告
+    // Append a block of text after the events published so far, e.g. the statistics at the end of a run
+    public synchronized void note(String text) {
+        while (log.drain(this, MAX_EVENTS_PER_FRAME) > 0) {
+            // 先取出所有已发布的事件，保证顺序 // Drain everything published so far first, to keep the order
+        }
+        pending.append(text);
+    }
+
+    // 删除超出保留行数的最早的文字，使内存保持平稳
+    // Remove the oldest text beyond the scrollback limit so memory stays flat
+    private void trimScrollback() {
+        int excess = outputArea.getLineCount() - maxLines;
+        if (excess > 0) {
+            try {
+                outputArea.replaceRange("", 0, outputArea.getLineStartOffset(excess));
+            } catch (BadLocationException e) {
+                outputArea.setText("");
+            }
+        }
+    }
+
+    // 清屏并丢弃尚未显示的事件，需在事件分发线程中调用
+    // Clear the output and discard events not yet shown; must be called on the EDT
+    public synchronized void clear() {
+        while (log.drain(null, MAX_EVENTS_PER_FRAME) > 0) {
+            // 丢弃所有未取出的事件 // Discard everything not yet drained
+        }
+        pending.setLength(0);
+        reportedDropped = log.dropped();
+        generation++;
+        outputArea.setText("");
+    }
+}
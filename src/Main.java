@@ -2,7 +2,44 @@ import javax.swing.*;
 
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // 第一个参数选择命令行工具：headless 为无界面的生产者-消费者运行，rw 为无界面的读者-写者运行，bench 为缓冲区基准测试，trace 查看或重放录下的轨迹，load 为开环负载扫描，stress 为压力与正确性测试，scenario 按场景文件运行参数扫描
+        // The first argument selects a command line tool: "headless" for a headless producer-consumer run, "rw" for a headless reader-writer run, "bench" for the buffer benchmark, "trace" to view or replay a recorded trace, "load" for an open-loop load sweep, "stress" for the stress and correctness harness, "scenario" for a parameter sweep from a scenario file
+        if (args.length > 0) {
+            String[] rest = java.util.Arrays.copyOfRange(args, 1, args.length);
+            switch (args[0]) {
+                case "headless" -> {
+                    HeadlessRunner.main(rest);
+                    return;
+                }
+                case "rw" -> {
+                    ReaderWriterWorkload.main(rest);
+                    return;
+                }
+                case "bench" -> {
+                    BufferBenchmark.main(rest);
+                    return;
+                }
+                case "trace" -> {
+                    TraceViewer.main(rest);
+                    return;
+                }
+                case "load" -> {
+                    LoadSweep.main(rest);
+                    return;
+                }
+                case "stress" -> {
+                    StressHarness.main(rest);
+                    return;
+                }
+                case "scenario" -> {
+                    ScenarioRunner.main(rest);
+                    return;
+                }
+                default -> {
+                }
+            }
+        }
         SwingUtilities.invokeLater(() -> {
             MainWindow app = new MainWindow();
             app.setVisible(true);
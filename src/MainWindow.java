@@ -1,12 +1,9 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class MainWindow extends JFrame {
     private JTextArea outputArea; // 用于显示输出的文本区域 // Text area for displaying output
@@ -14,9 +11,33 @@ public class MainWindow extends JFrame {
     private JTextField consumerField; // 消费者数量输入框 // Input field for the number of consumers
     private JTextField bufferField; // 缓冲区大小输入框 // Input field for buffer size
     private JTextField seconds1Field; // 模拟一的秒数输入框 // Input field for seconds in simulation 1
+    private JTextField batchField; // 每次操作的批量大小输入框 // Input field for the items per operation
+    private JTextField recordField; // 每条数据记录的字节数输入框，0 表示不携带数据 // Input field for bytes per record; 0 carries no data
+    private JComboBox<BufferEngine> engineBox; // 缓冲区实现选择框 // Selector for the buffer implementation
+    private JComboBox<WaitStrategy> waitBox; // 等待策略选择框 // Selector for the wait strategy
+    private JComboBox<String> overloadBox; // 过载策略选择框，可以直接输入 // Selector for the overload policy; it can also be typed in
     private JButton producerConsumerButton; // 启动生产者-消费者按钮 // Button to start producer-consumer simulation
     private JTextField seconds2Field; // 模拟二的秒数输入框 // Input field for seconds in simulation 2
+    private JTextField readersField; // 读者数量输入框 // Input field for the number of readers
+    private JTextField writersField; // 写者数量输入框 // Input field for the number of writers
+    private JTextField readHoldField; // 读操作持有时间分布输入框 // Input field for the read hold time distribution
+    private JTextField writeHoldField; // 写操作持有时间分布输入框 // Input field for the write hold time distribution
+    private JTextField readerGapField; // 读者到达间隔分布输入框 // Input field for the reader arrival gap distribution
+    private JTextField writerGapField; // 写者到达间隔分布输入框 // Input field for the writer arrival gap distribution
+    private JComboBox<LockPolicy> policyBox; // 读写锁策略选择框 // Selector for the read-write lock policy
+    private JComboBox<AcquireMode> acquireBox; // 轮询或阻塞等待选择框 // Selector for polling or blocking waits
     private JButton readerWriterButton; // 启动读者-写者按钮 // Button to start reader-writer simulation
+    private JButton stopButton; // 停止当前运行按钮 // Button to stop the current run
+    private JButton pauseButton; // 暂停或继续当前运行按钮 // Button to pause or resume the current run
+    private final RunController controller = new RunController(); // 管理运行的开始、暂停和停止 // Starts, pauses and stops runs
+    private JCheckBox virtualThreadsBox; // 是否用虚拟线程运行进程 // Whether processes run as virtual threads
+    private JCheckBox metricsBox; // 是否收集竞争统计 // Whether contention metrics are collected
+    private MetricsPanel metricsPanel; // 竞争统计面板 // Contention metrics panel
+    private JCheckBox traceBox; // 是否录制同步轨迹 // Whether a synchronization trace is recorded
+    private TracePanel tracePanel; // 轨迹查看面板 // Trace viewer panel
+    private PinnedCarrierMonitor pinnedMonitor; // 首次使用虚拟线程时启动 // Started the first time virtual threads are used
+    private final EventLog log = new EventLog(1 << 16); // 所有进程共享的事件日志 // Event log shared by all processes
+    private LogDrainer logDrainer; // 按固定帧率把事件刷新到输出区域 // Flushes events to the output area at a fixed frame rate
 
     public MainWindow() {
         setTitle("Process Synchronization Simulation");
@@ -29,6 +50,7 @@ public class MainWindow extends JFrame {
         outputArea = new JTextArea();
         outputArea.setEditable(false); // 设置输出区域不可编辑 // Make output area non-editable
         JScrollPane scrollPane = new JScrollPane(outputArea);
+        logDrainer = new LogDrainer(log, outputArea, 30, 5000); // 每秒 30 帧，保留 5000 行 // 30 frames per second, 5000 lines of scrollback
 
         // 构件细节设置
         // Component details setup
@@ -36,11 +58,25 @@ public class MainWindow extends JFrame {
         consumerField = new JTextField(5);
         bufferField = new JTextField(5);
         seconds1Field = new JTextField(5);
+        batchField = new JTextField("1", 5);
+        recordField = new JTextField("0", 5);
+        engineBox = new JComboBox<>(new BufferEngine[]{BufferEngine.SLOT_LOCK, BufferEngine.MONITOR, BufferEngine.RING, BufferEngine.SHARDED});
+        waitBox = new JComboBox<>(WaitStrategy.values());
+        waitBox.setSelectedItem(BufferEngine.SLOT_LOCK.defaultWait());
+        // 换缓冲区时选回它的默认策略；管程总是挂起等待，选中时禁用等待策略
+        // Switching buffers selects its default strategy again; the monitor always parks, so the wait strategy is disabled while it is selected
+        engineBox.addActionListener(e -> {
+            BufferEngine selected = (BufferEngine) engineBox.getSelectedItem();
+            waitBox.setSelectedItem(selected.defaultWait());
+            waitBox.setEnabled(selected.hasWaitStrategy());
+        });
+        overloadBox = new JComboBox<>(new String[]{"block", "timeout:100", "drop-newest", "drop-oldest", "reject", "elastic:64"});
+        overloadBox.setEditable(true);
         producerConsumerButton = new JButton("Start Producer-Consumer");
 
         // 为按钮添加动作监听器
         // Add action listener to button
-        producerConsumerButton.addActionListener(this::simulateProducerConsumer);
+        producerConsumerButton.addActionListener(e -> startAfterPrevious(() -> simulateProducerConsumer(e)));
 
         // 通过获取用户指定的各种参数（生产者个数、消费者个数和缓冲区大小，以及模拟进行的时间（秒））来保证模拟正常进行
         // The simulation is ensured by obtaining various parameters specified by the user (number of producers, number of consumers, buffer size, and simulation time in seconds)
@@ -55,144 +91,322 @@ public class MainWindow extends JFrame {
         producerConsumerPanel.add(bufferField);
         producerConsumerPanel.add(new JLabel("Seconds of Simulation 1:"));
         producerConsumerPanel.add(seconds1Field);
+        producerConsumerPanel.add(new JLabel("Buffer Engine:"));
+        producerConsumerPanel.add(engineBox);
+        producerConsumerPanel.add(new JLabel("Wait Strategy:"));
+        producerConsumerPanel.add(waitBox);
+        producerConsumerPanel.add(new JLabel("Overload Policy:"));
+        producerConsumerPanel.add(overloadBox);
+        producerConsumerPanel.add(new JLabel("Batch Size:"));
+        producerConsumerPanel.add(batchField);
+        producerConsumerPanel.add(new JLabel("Record Size (bytes, 0 = none):"));
+        producerConsumerPanel.add(recordField);
         producerConsumerPanel.add(producerConsumerButton);
 
         seconds2Field = new JTextField(5);
+        readersField = new JTextField("5", 5);
+        writersField = new JTextField("2", 5);
+        readHoldField = new JTextField("200", 5);
+        writeHoldField = new JTextField("200", 5);
+        readerGapField = new JTextField("200", 5);
+        writerGapField = new JTextField("1800", 5);
+        policyBox = new JComboBox<>(LockPolicy.values());
+        policyBox.setSelectedItem(LockPolicy.FAIR);
+        acquireBox = new JComboBox<>(AcquireMode.values());
         readerWriterButton = new JButton("Start Reader-Writer");
-        readerWriterButton.addActionListener(this::simulateReaderWriter);
+        readerWriterButton.addActionListener(e -> startAfterPrevious(() -> simulateReaderWriter(e)));
 
-        // 读者-写者问题的模拟中有5个读者、2个写者进程同时在系统中运行，用户只需要指定模拟运行时间即可进行模拟
-        // In the simulation of the reader-writer problem, there are 5 reader and 2 writer processes running simultaneously in the system. The user only needs to specify the simulation time.
+        // 读者-写者问题的模拟默认有5个读者、2个写者进程；读写持有时间和到达间隔可以是固定毫秒数或分布（uniform:50-300、exp:200、rate:5）
+        // The reader-writer simulation defaults to 5 reader and 2 writer processes; hold times and arrival gaps are fixed milliseconds or distributions (uniform:50-300, exp:200, rate:5)
         JPanel readerWriterPanel = new JPanel();
         readerWriterPanel.setBorder(BorderFactory.createTitledBorder("Reader-Writer Settings"));
         readerWriterPanel.setLayout(new GridLayout(0, 2, 1, 1));
+        readerWriterPanel.add(new JLabel("Lock Policy:"));
+        readerWriterPanel.add(policyBox);
+        readerWriterPanel.add(new JLabel("Waiting:"));
+        readerWriterPanel.add(acquireBox);
+        readerWriterPanel.add(new JLabel("Readers:"));
+        readerWriterPanel.add(readersField);
+        readerWriterPanel.add(new JLabel("Writers:"));
+        readerWriterPanel.add(writersField);
+        readerWriterPanel.add(new JLabel("Read Hold (ms):"));
+        readerWriterPanel.add(readHoldField);
+        readerWriterPanel.add(new JLabel("Write Hold (ms):"));
+        readerWriterPanel.add(writeHoldField);
+        readerWriterPanel.add(new JLabel("Reader Gap (ms):"));
+        readerWriterPanel.add(readerGapField);
+        readerWriterPanel.add(new JLabel("Writer Gap (ms):"));
+        readerWriterPanel.add(writerGapField);
         readerWriterPanel.add(new JLabel("Seconds of Simulation 2:"));
         readerWriterPanel.add(seconds2Field);
         readerWriterPanel.add(readerWriterButton);
 
+        // 两个模拟都可以选择用虚拟线程运行每个进程，以便模拟上万个进程
+        // Both simulations can run every process as a virtual thread, so tens of thousands of processes are practical
+        virtualThreadsBox = new JCheckBox("Run processes as virtual threads");
+
+        // 竞争统计默认关闭，关闭时缓冲区和读者、写者不读取时钟，没有额外开销
+        // Contention metrics are off by default; when off, buffers, readers and writers never read the clock, so there is no extra cost
+        metricsBox = new JCheckBox("Collect contention metrics");
+        metricsPanel = new MetricsPanel();
+
+        // 录制的轨迹写到当前目录下按时间命名的文件中，运行结束后在 Trace 标签页中打开
+        // Recorded traces go to a time-stamped file in the working directory and open on the Trace tab when the run ends
+        traceBox = new JCheckBox("Record synchronization trace");
+        tracePanel = new TracePanel();
+
+        // 停止和暂停作用于当前的运行；停止要等所有进程结束，放到后台线程中，不阻塞界面
+        // Stop and pause act on the current run; stopping waits for every process to end, so it runs off the event thread
+        stopButton = new JButton("Stop");
+        stopButton.addActionListener(e -> Thread.startVirtualThread(controller::stop));
+        pauseButton = new JButton("Pause");
+        pauseButton.addActionListener(e -> pauseButton.setText(controller.togglePause() ? "Resume" : "Pause"));
+        JPanel runPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        runPanel.add(stopButton);
+        runPanel.add(pauseButton);
+
         JPanel controlPanel = new JPanel();
         controlPanel.setLayout(new GridLayout(0, 1, 10, 10));
         controlPanel.add(producerConsumerPanel);
         controlPanel.add(readerWriterPanel);
+        controlPanel.add(virtualThreadsBox);
+        controlPanel.add(metricsBox);
+        controlPanel.add(traceBox);
+        controlPanel.add(runPanel);
+
+        // 输出日志和竞争统计放在两个标签页中
+        // The output log and the contention metrics live on two tabs
+        JTabbedPane outputTabs = new JTabbedPane();
+        outputTabs.addTab("Log", scrollPane);
+        outputTabs.addTab("Metrics", metricsPanel);
+        outputTabs.addTab("Trace", tracePanel);
 
         add(controlPanel, BorderLayout.NORTH);
-        add(scrollPane, BorderLayout.CENTER);
+        add(outputTabs, BorderLayout.CENTER);
     }
 
     private void simulateProducerConsumer(ActionEvent e) {
         int seconds = Integer.parseInt(seconds1Field.getText());
-        outputArea.setText(""); // 清屏 clean the output
-
         try {
             int numProducers = Integer.parseInt(producerField.getText()); // 获取生产者数量 // Get number of producers
             int numConsumers = Integer.parseInt(consumerField.getText()); // 获取消费者数量 // Get number of consumers
             int bufferSize = Integer.parseInt(bufferField.getText()); // 获取缓冲区大小 // Get buffer size
+            int batchSize = Math.max(1, Integer.parseInt(batchField.getText().trim())); // 获取批量大小 // Get batch size
+            int recordBytes = Integer.parseInt(recordField.getText().trim()); // 获取记录大小 // Get record size
+            OverloadPolicy overload = OverloadPolicy.parse(String.valueOf(overloadBox.getSelectedItem())); // 获取过载策略 // Get overload policy
+            overload.check(bufferSize);
+            // 所有参数都在开始运行之前检查，无效的参数不会留下一个开始了却永远不结束的运行
+            // Check every field before the run begins, so an invalid one never leaves behind a run that started but never finishes
+            BufferEngine engine = (BufferEngine) engineBox.getSelectedItem();
+            if (numProducers < 1 || numConsumers < 1 || bufferSize < 1) {
+                throw new IllegalArgumentException("Counts and buffer size must be positive");
+            }
+            if (recordBytes != 0) {
+                PayloadArena.checkRecordSize(recordBytes);
+            }
+            if (recordBytes > 0 && !engine.hasPositions()) {
+                outputArea.append("Engine " + engine + " has no positions and cannot carry records.\n");
+                return;
+            }
+            if (overload != OverloadPolicy.BLOCK && traceBox.isSelected()) {
+                outputArea.append("Recording a trace needs the block overload policy.\n");
+                return;
+            }
 
-            Lock[] locks = new ReentrantLock[bufferSize];
-            Condition[] conditions = new Condition[bufferSize];
-            boolean[] bufferProduced = new boolean[bufferSize];
-
-            for (int i = 0; i < bufferSize; i++) {
-                locks[i] = new ReentrantLock();
-                conditions[i] = locks[i].newCondition();
-                bufferProduced[i] = false; // 初始化为未生产状态 // Initialize as unproduced
+            // 先停止并回收上一次运行，再清屏，旧进程不会再往清空的输出区域里写
+            // Stop and reclaim the previous run before clearing the screen, so no old process writes into the cleared output
+            RunController.Run run = beginRun();
+            if (run == null) {
+                return;
             }
+            logDrainer.clear(); // 清屏 clean the output
 
-            List<Thread> producers = new ArrayList<>();
-            List<Thread> consumers = new ArrayList<>();
+            // 按选择创建缓冲区：逐位置加锁、单锁、无锁环形缓冲区或每对生产者和消费者一个分片
+            // Create the selected buffer: per-slot locks, a single lock, the lock-free ring, or one shard per producer/consumer pair
+            // 统计按实际容量分行，环形和分片缓冲区报告的位置可能超过 bufferSize
+            // Metrics rows follow the actual capacity, since the ring and sharded buffers may report positions beyond bufferSize
+            int shards = ShardedBuffer.shardsFor(numProducers, numConsumers);
+            ContentionMetrics metrics = metricsBox.isSelected() ? new ContentionMetrics(engine.capacity(overload.innerSize(bufferSize), shards)) : null;
+            metricsPanel.setMetrics(metrics);
+            TraceRecorder trace = traceBox.isSelected() ? newTrace(TraceRecorder.PRODUCER_CONSUMER, engine.ordinal(), bufferSize,
+                    engine == BufferEngine.SHARDED ? shards : 0) : null;
+            // 准备失败时停止这次运行并关闭轨迹，不留下没有结束时间的运行和打开的文件
+            // If set-up fails, stop this run and close the trace, leaving no run without an end and no file open
+            try {
+                SyncProbe probe = SyncProbe.combine(metrics != null ? metrics : SyncProbe.NONE, trace != null ? trace : SyncProbe.NONE);
+                BoundedBuffer inner = engine.create(overload.innerSize(bufferSize), shards, (WaitStrategy) waitBox.getSelectedItem(), log, probe);
+                // 按选择的过载策略包装；被拒绝的数据项记入日志
+                // Wrap it in the selected overload policy; rejected items go to the log
+                BoundedBuffer buffer = overload.wrap(inner, bufferSize, log,
+                        cursor -> log.publish(cursor.kind, cursor.id, 0, EventLog.REJECTED));
+                metricsPanel.setOverload(buffer instanceof OverloadBuffer counters ? counters : null);
 
-            // 创建生产者线程 Create producer threads
-            for (int i = 0; i < numProducers; i++) {
-                producers.add(new Thread(new Producer(locks, conditions, bufferProduced, outputArea, bufferSize, i)));
-            }
-            // 创建消费者线程 Create consumer threads
-            for (int i = 0; i < numConsumers; i++) {
-                consumers.add(new Thread(new Consumer(locks, conditions, bufferProduced, outputArea, bufferSize, i)));
-            }
+                // 按缓冲区大小分配堆外区域，生产者原地写入记录，消费者原地读取
+                // Allocate the off-heap arena from the buffer size; producers write records in place and consumers read them in place
+                PayloadArena arena = recordBytes > 0 ? new PayloadArena(buffer.capacity(), recordBytes) : null;
 
-            producers.forEach(Thread::start); // 启动所有生产者线程 // Start all producer threads
-            consumers.forEach(Thread::start); // 启动所有消费者线程 // Start all consumer threads
+                RunStats stats = new RunStats();
 
-            // 启动计时器线程 Start timer thread
-            new Thread(() -> {
-                try {
-                    Thread.sleep(seconds * 1000); // 模拟运行指定时间 // Run simulation for specified time
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
+                // 创建并启动生产者和消费者进程 Create and start producer and consumer processes
+                for (int i = 0; i < numProducers; i++) {
+                    run.execute(new Producer(buffer, arena, null, stats, run.token, batchSize, 700, i));
                 }
-
-                // 中断所有线程 Interrupt all threads
-                producers.forEach(Thread::interrupt);
-                consumers.forEach(Thread::interrupt);
-                try {
-                    Thread.sleep(500); // 等待线程终止 // Wait for threads to terminate
-                } catch (InterruptedException ex) {
-                    throw new RuntimeException(ex);
+                for (int i = 0; i < numConsumers; i++) {
+                    run.execute(new Consumer(buffer, arena, null, stats, run.token, batchSize, 700, i));
                 }
+            } catch (RuntimeException ex) {
+                run.stop();
+                abandonTrace(trace);
+                throw ex;
+            }
 
-                SwingUtilities.invokeLater(() -> outputArea.append("Time is up! Stopping all processes.\n"));
-                SwingUtilities.invokeLater(() -> outputArea.append("Simulation of Producer-Consumer is over.\n"));
-            }).start();
-        } catch (NumberFormatException ex) {
-            outputArea.append("Please enter valid numbers for producers, consumers, and buffer size.\n");
+            // 运行指定时间（暂停不计）后停止，所有进程结束之后才输出结束信息
+            // Stop after the given running time (pauses excluded); the closing messages come only after every process has ended
+            run.finishAfter(seconds * 1000L, () -> {
+                logDrainer.note(run.joinSummary());
+                log.system(EventLog.TIME_UP);
+                log.system(EventLog.PRODUCER_CONSUMER_OVER);
+                reportPinnedCarriers();
+                finishTrace(trace);
+            });
+        } catch (IllegalArgumentException ex) {
+            outputArea.append("Please enter valid numbers for producers, consumers, buffer size, batch size and record size, and a valid overload policy.\n");
         }
     }
 
     private void simulateReaderWriter(ActionEvent e) {
-        outputArea.setText(""); // 清屏
         try {
             int seconds = Integer.parseInt(seconds2Field.getText());
-            // 一个写者进程和读者进程的互斥锁，一个写优先锁，5个读者进程，2个写者进程
-            // A mutual exclusion lock for writer and reader processes, a write-priority lock, 5 reader processes, 2 writer processes
-            ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
-            ReentrantReadWriteLock writePriorityLock = new ReentrantReadWriteLock(true);
-            Thread writer1 = new Thread(new Writer(lock, writePriorityLock, outputArea, 1));
-            Thread writer2 = new Thread(new Writer(lock, writePriorityLock, outputArea, 2));
-            Thread reader1 = new Thread(new Reader(lock, writePriorityLock, outputArea, 1));
-            Thread reader2 = new Thread(new Reader(lock, writePriorityLock, outputArea, 2));
-            Thread reader3 = new Thread(new Reader(lock, writePriorityLock, outputArea, 3));
-            Thread reader4 = new Thread(new Reader(lock, writePriorityLock, outputArea, 4));
-            Thread reader5 = new Thread(new Reader(lock, writePriorityLock, outputArea, 5));
-
-            writer1.start();
-            // 因为使用线程模拟并不能完全还原系统中进程同步的情况，需要延缓短暂时间避免缓冲区第一次同一时刻被多个进程抢占，以出现显示错误
-            // Since using threads to simulate cannot fully restore the synchronization of processes in the system, it is necessary to delay for a short period of time to avoid the buffer being occupied by multiple processes at the same time for the first time, resulting in display errors
+            // 按界面上的参数构造工作负载：N 个读者、M 个写者、持有时间和到达间隔分布
+            // Build the workload from the UI: N readers, M writers, hold time and arrival gap distributions
+            ReaderWriterWorkload workload = new ReaderWriterWorkload();
+            workload.policy = (LockPolicy) policyBox.getSelectedItem();
+            workload.acquire = (AcquireMode) acquireBox.getSelectedItem();
+            workload.readers = Integer.parseInt(readersField.getText().trim());
+            workload.writers = Integer.parseInt(writersField.getText().trim());
+            workload.readHold = TimeDistribution.parse(readHoldField.getText());
+            workload.writeHold = TimeDistribution.parse(writeHoldField.getText());
+            workload.readerGap = TimeDistribution.parse(readerGapField.getText());
+            workload.writerGap = TimeDistribution.parse(writerGapField.getText());
+            workload.seconds = seconds;
+            workload.validate();
+
+            RunController.Run run = beginRun();
+            if (run == null) {
+                return;
+            }
+            logDrainer.clear(); // 清屏
+
+            ReaderWriterStats stats = new ReaderWriterStats();
+            ContentionMetrics metrics = metricsBox.isSelected() ? new ContentionMetrics(1) : null; // 只有一个共享资源 // A single shared resource
+            metricsPanel.setMetrics(metrics);
+            metricsPanel.setOverload(null);
+            TraceRecorder trace = traceBox.isSelected() ? newTrace(TraceRecorder.READER_WRITER, workload.policy.ordinal(), 1, 0) : null;
+            SyncProbe probe = SyncProbe.combine(metrics != null ? metrics : SyncProbe.NONE, trace != null ? trace : SyncProbe.NONE);
+            ReadWritePolicy lock;
             try {
-                Thread.sleep(50);
+                lock = workload.start(run, run.token, log, stats, probe, null);
             } catch (InterruptedException ex) {
                 throw new RuntimeException(ex);
             }
-            writer2.start();
-            reader1.start();
-            reader2.start();
-            reader3.start();
-            reader4.start();
-            reader5.start();
-
-            new Thread(() -> {
-                try {
-                    Thread.sleep(seconds * 1000); // 运行指定时间 // Run for specified time
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
+
+            run.finishAfter(seconds * 1000L, () -> {
+                logDrainer.note(run.joinSummary());
+                log.system(EventLog.TIME_UP);
+                reportPinnedCarriers();
+                logDrainer.note(stats.report(run.runningNanos())); // 输出吞吐量、写者饥饿时间和读者并发度，暂停时间不计 // Report throughput, writer starvation and reader concurrency, pauses excluded
+                if (lock instanceof RcuPolicy rcu) {
+                    logDrainer.note(rcu.summary()); // 版本落后和发布耗时 // Version lag and publish latency
                 }
-                // 中断所有线程 Interrupt all threads
-                writer1.interrupt();
-                writer2.interrupt();
-                reader1.interrupt();
-                reader2.interrupt();
-                reader3.interrupt();
-                reader4.interrupt();
-                reader5.interrupt();
+                finishTrace(trace);
+            });
+        } catch (IllegalArgumentException ex) {
+            outputArea.append("Please enter valid numbers of readers, writers and seconds, and valid time distributions.\n");
+        }
+    }
 
+    // 先在后台线程中停止上一次运行、等它的进程结束并输出它的结束信息，再回到事件线程开始新的运行；等待期间两个开始按钮不可用，界面不会卡住
+    // Stop the previous run, join its processes and let it report on a background thread, then start the new run back on the event thread; both start buttons stay disabled meanwhile, so the UI never freezes
+    private void startAfterPrevious(Runnable start) {
+        producerConsumerButton.setEnabled(false);
+        readerWriterButton.setEnabled(false);
+        Thread.startVirtualThread(() -> {
+            controller.stop();
+            SwingUtilities.invokeLater(() -> {
                 try {
-                    Thread.sleep(500); // 等待线程终止 // Wait for threads to terminate
-                } catch (InterruptedException ex) {
-                    throw new RuntimeException(ex);
+                    start.run();
+                } finally {
+                    producerConsumerButton.setEnabled(true);
+                    readerWriterButton.setEnabled(true);
                 }
-                SwingUtilities.invokeLater(() -> outputArea.append("Time is up! Stopping all processes.\n"));
-            }).start();
-        } catch (NumberFormatException ex) {
-            outputArea.append("Please enter a valid number of seconds.\n");
+            });
+        });
+    }
+
+    // 按照界面上的选择，用平台线程池或虚拟线程开始一次运行；上一次运行的进程还没结束时返回 null
+    // Begin a run on the platform thread pool or on virtual threads, as selected in the UI; returns null while the previous run's processes are still alive
+    private RunController.Run beginRun() {
+        ExecutionMode mode = virtualThreadsBox.isSelected() ? ExecutionMode.VIRTUAL : ExecutionMode.PLATFORM;
+        if (mode == ExecutionMode.VIRTUAL && pinnedMonitor == null) {
+            pinnedMonitor = new PinnedCarrierMonitor();
+        }
+        try {
+            RunController.Run run = controller.begin(mode);
+            pauseButton.setText("Pause");
+            return run;
+        } catch (IllegalStateException ex) {
+            outputArea.append(ex.getMessage() + ", please try again in a moment.\n");
+            return null;
+        }
+    }
+
+    // 为一次运行创建轨迹录制器；每次运行一个新文件，不会覆盖 Trace 标签页中正在查看的文件
+    // Create a trace recorder for one run; every run gets a new file, so the one open on the Trace tab is never overwritten
+    private TraceRecorder newTrace(int workload, int setting, int capacity, int shards) {
+        Path file = Path.of("trace-" + System.currentTimeMillis() + ".bin");
+        try {
+            return new TraceRecorder(file, (long) TraceRecorder.DEFAULT_MAX_MB << 20, workload, setting, capacity, shards);
+        } catch (IOException ex) {
+            outputArea.append("Cannot record a trace to " + file + ": " + ex.getMessage() + "\n");
+            return null;
+        }
+    }
+
+    // 运行没能开始时关闭轨迹并删除这个空文件
+    // Close the trace and delete the empty file when the run never got going
+    private void abandonTrace(TraceRecorder trace) {
+        if (trace == null) {
+            return;
+        }
+        try {
+            trace.close();
+            Files.deleteIfExists(trace.file);
+        } catch (IOException ex) {
+            outputArea.append("Cannot close the trace " + trace.file + ": " + ex.getMessage() + "\n");
+        }
+    }
+
+    // 运行结束后关闭轨迹，并在 Trace 标签页中打开
+    // Close the trace once the run is over and open it on the Trace tab
+    private void finishTrace(TraceRecorder trace) {
+        if (trace == null) {
+            return;
+        }
+        try {
+            trace.close();
+            logDrainer.note(trace.summary());
+            SwingUtilities.invokeLater(() -> tracePanel.open(trace.file));
+        } catch (IOException ex) {
+            logDrainer.note("Cannot finish the trace " + trace.file + ": " + ex.getMessage() + "\n");
+        }
+    }
+
+    // 输出虚拟线程钉住载体线程的累计次数
+    // Report how many times virtual threads have pinned their carrier so far
+    private void reportPinnedCarriers() {
+        PinnedCarrierMonitor monitor = pinnedMonitor;
+        if (monitor != null) {
+            log.publish(EventLog.SYSTEM, 0, (int) Math.min(Integer.MAX_VALUE, monitor.pinnedCount()), EventLog.PINNED_CARRIERS);
         }
     }
 
@@ -0,0 +1,193 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.util.List;
+
+public class MetricsPanel extends JPanel {
+    // 刷新间隔（毫秒）
+    // Refresh interval (ms)
+    private static final int REFRESH_MILLIS = 500;
+
+    // 正在显示的统计，未开启统计时为 null
+    // Metrics being shown; null when instrumentation is off
+    private volatile ContentionMetrics metrics;
+
+    // 正在显示的过载策略计数，阻塞策略时为 null
+    // Overload counters being shown; null for the block policy
+    private volatile OverloadBuffer overload;
+
+    private final SlotTableModel slotModel = new SlotTableModel();
+    private final ActorTableModel actorModel = new ActorTableModel();
+    private final JTextArea summaryArea = new JTextArea(6, 40);
+
+    public MetricsPanel() {
+        setLayout(new BorderLayout());
+
+        // 位置热力图：等待次数越多颜色越红
+        // Position heatmap: the more waits, the redder the row
+        JTable slotTable = new JTable(slotModel);
+        slotTable.setDefaultRenderer(Object.class, new HeatRenderer());
+        JTable actorTable = new JTable(actorModel);
+        actorTable.setAutoCreateRowSorter(true);
+
+        JSplitPane tables = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(slotTable), new JScrollPane(actorTable));
+        tables.setResizeWeight(0.5);
+        summaryArea.setEditable(false);
+        summaryArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+
+        add(tables, BorderLayout.CENTER);
+        add(new JScrollPane(summaryArea), BorderLayout.SOUTH);
+
+        // Swing 定时器在事件分发线程中刷新，只读取计数器，不影响被统计的进程
+        // The Swing timer refreshes on the EDT and only reads the counters, so it never gets in the measured processes' way
+        new Timer(REFRESH_MILLIS, e -> refresh()).start();
+    }
+
+    // 开始显示一次运行的统计；传入 null 表示本次运行未开启统计
+    // Start showing one run's metrics; null means instrumentation is off for this run
+    public void setMetrics(ContentionMetrics metrics) {
+        this.metrics = metrics;
+        refresh();
+    }
+
+    // 开始显示一次运行的过载计数；传入 null 表示本次运行使用阻塞策略
+    // Start showing one run's overload counters; null means this run uses the block policy
+    public void setOverload(OverloadBuffer overload) {
+        this.overload = overload;
+        refresh();
+    }
+
+    private void refresh() {
+        ContentionMetrics current = metrics;
+        OverloadBuffer counters = overload;
+        slotModel.update(current);
+        actorModel.update(current);
+        String text = current == null ? "Contention metrics are off for this run." : current.report(5);
+        summaryArea.setText(counters == null ? text : counters.summary() + text);
+    }
+
+    // 每行一个（或一组）缓冲区位置
+    // One buffer position (or group of positions) per row
+    private static class SlotTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Position", "Acquisitions", "Waits", "Mean acquire (us)", "Mean hold (us)", "Mean wait (us)", "Max wait (us)"};
+        private ContentionMetrics metrics;
+        private long maxWaits = 1;
+
+        void update(ContentionMetrics metrics) {
+            boolean changed = this.metrics != metrics;
+            this.metrics = metrics;
+            maxWaits = 1;
+            if (metrics != null) {
+                for (int i = 0; i < metrics.rows; i++) {
+                    maxWaits = Math.max(maxWaits, metrics.slotRow(i).waits.sum());
+                }
+            }
+            if (changed) {
+                fireTableDataChanged();
+            } else if (getRowCount() > 0) {
+                fireTableRowsUpdated(0, getRowCount() - 1);
+            }
+        }
+
+        // 行的热度，0 到 1
+        // Heat of a row, from 0 to 1
+        double heat(int row) {
+            return metrics == null ? 0 : (double) metrics.slotRow(row).waits.sum() / maxWaits;
+        }
+
+        @Override
+        public int getRowCount() {
+            return metrics == null ? 0 : metrics.rows;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            ContentionMetrics.Counters c = metrics.slotRow(row);
+            return switch (column) {
+                case 0 -> metrics.slotLabel(row);
+                case 1 -> c.acquisitions.sum();
+                case 2 -> c.waits.sum();
+                case 3 -> String.format("%.1f", c.meanAcquireMicros());
+                case 4 -> String.format("%.1f", c.meanHoldMicros());
+                case 5 -> String.format("%.1f", c.meanWaitMicros());
+                default -> String.format("%.1f", c.maxWaitNanos.get() / 1e3);
+            };
+        }
+    }
+
+    // 每行一个参与者
+    // One actor per row
+    private static class ActorTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Actor", "Acquisitions", "Waits", "Mean acquire (us)", "Mean hold (us)", "Mean wait (us)"};
+        private List<ContentionMetrics.ActorRow> rows = List.of();
+
+        void update(ContentionMetrics metrics) {
+            int before = rows.size();
+            rows = metrics == null ? List.of() : metrics.actors();
+            if (rows.size() != before) {
+                fireTableDataChanged();
+            } else if (!rows.isEmpty()) {
+                fireTableRowsUpdated(0, rows.size() - 1);
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 || column == 2 ? Long.class : column == 0 ? String.class : Double.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            ContentionMetrics.ActorRow actor = rows.get(row);
+            ContentionMetrics.Counters c = actor.counters();
+            return switch (column) {
+                case 0 -> ContentionMetrics.KIND_NAMES[actor.kind()] + " " + actor.id();
+                case 1 -> c.acquisitions.sum();
+                case 2 -> c.waits.sum();
+                case 3 -> Math.round(c.meanAcquireMicros() * 10) / 10.0;
+                case 4 -> Math.round(c.meanHoldMicros() * 10) / 10.0;
+                default -> Math.round(c.meanWaitMicros() * 10) / 10.0;
+            };
+        }
+    }
+
+    // 按热度从白到红着色
+    // Colour rows from white to red by heat
+    private class HeatRenderer extends DefaultTableCellRenderer {
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+            Component cell = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            if (!isSelected) {
+                int fade = 255 - (int) Math.round(slotModel.heat(row) * 180);
+                cell.setBackground(new Color(255, fade, fade));
+            }
+            return cell;
+        }
+    }
+}
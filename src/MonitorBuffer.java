@@ -0,0 +1,282 @@
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class MonitorBuffer implements BoundedBuffer {
+    // 整个缓冲区只用一把锁
+    // A single lock guards the whole buffer
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 两个条件变量：缓冲区不满、缓冲区不空
+    // Two condition variables: buffer not full and buffer not empty
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+
+    // 用于记录模拟过程的事件日志
+    // Event log recording the simulation
+    private final EventLog log;
+
+    // 竞争统计探针
+    // Contention metrics probe
+    private final SyncProbe probe;
+
+    // 缓冲区大小、下一个生产位置、下一个消费位置和当前数据项数
+    // Buffer size, next produce position, next consume position and current item count
+    private final int bufferSize;
+    private int putIndex = 0;
+    private int takeIndex = 0;
+    private int count = 0;
+
+    // 正在等待的生产者和消费者数；批量操作据此只在状态转换时按需唤醒
+    // Producers and consumers currently waiting; batched operations use them to wake only on state transitions, and only as many as needed
+    private int waitingProducers = 0;
+    private int waitingConsumers = 0;
+
+    public MonitorBuffer(int bufferSize, EventLog log, SyncProbe probe) {
+        this.bufferSize = bufferSize;
+        this.log = log;
+        this.probe = probe;
+    }
+
+    @Override
+    public int put(BufferCursor cursor) throws InterruptedException {
+        boolean timed = probe.enabled(); // 关闭统计时不读取时钟 // Skip the clock entirely when metrics are off
+        long lockAt = timed ? System.nanoTime() : 0;
+        lock.lockInterruptibly();
+        long heldAt = timed ? System.nanoTime() : 0;
+        long waited = 0;
+        int slot = putIndex;
+        if (timed) {
+            probe.acquired(cursor.kind, cursor.id, slot, heldAt - lockAt);
+        }
+        try {
+            while (count == bufferSize) {
+                log.publish(cursor.kind, cursor.id, putIndex, EventLog.WAIT_FULL);
+                cursor.waits++;
+                long waitAt = timed ? System.nanoTime() : 0;
+                waitingProducers++;
+                try {
+                    notFull.await(); // 等待消费者信号 // Wait for consumer signal
+                } finally {
+                    waitingProducers--;
+                }
+                waited += timed ? System.nanoTime() - waitAt : 0;
+            }
+            slot = putIndex;
+            putIndex = (putIndex + 1) % bufferSize;
+            count++;
+            if (cursor.visitor != null) {
+                cursor.visitor.visit(slot); // 原地读写数据 // Read or write the data in place
+            }
+            probe.transferred(cursor.kind, cursor.id, slot); // 交接之前记入轨迹 // Trace the hand-over before it happens
+            log.publish(cursor.kind, cursor.id, slot, EventLog.PRODUCED);
+            notEmpty.signal(); // 唤醒一个消费者 // Wake up one consumer
+            return slot;
+        } finally {
+            lock.unlock();
+            if (timed) {
+                if (waited > 0) {
+                    probe.waited(cursor.kind, cursor.id, slot, waited);
+                }
+                probe.released(cursor.kind, cursor.id, slot, System.nanoTime() - heldAt - waited); // 持有时间不含等待 // Hold time excludes waiting
+            }
+        }
+    }
+
+    @Override
+    public int take(BufferCursor cursor) throws InterruptedException {
+        boolean timed = probe.enabled(); // 关闭统计时不读取时钟 // Skip the clock entirely when metrics are off
+        long lockAt = timed ? System.nanoTime() : 0;
+        lock.lockInterruptibly();
+        long heldAt = timed ? System.nanoTime() : 0;
+        long waited = 0;
+        int slot = takeIndex;
+        if (timed) {
+            probe.acquired(cursor.kind, cursor.id, slot, heldAt - lockAt);
+        }
+        try {
+            while (count == 0) {
+                log.publish(cursor.kind, cursor.id, takeIndex, EventLog.WAIT_EMPTY);
+                cursor.waits++;
+                long waitAt = timed ? System.nanoTime() : 0;
+                waitingConsumers++;
+                try {
+                    notEmpty.await(); // 等待生产者信号 // Wait for producer signal
+                } finally {
+                    waitingConsumers--;
+                }
+                waited += timed ? System.nanoTime() - waitAt : 0;
+            }
+            slot = takeIndex;
+            takeIndex = (takeIndex + 1) % bufferSize;
+            count--;
+            if (cursor.visitor != null) {
+                cursor.visitor.visit(slot); // 原地读写数据 // Read or write the data in place
+            }
+            probe.transferred(cursor.kind, cursor.id, slot); // 交接之前记入轨迹 // Trace the hand-over before it happens
+            log.publish(cursor.kind, cursor.id, slot, EventLog.CONSUMED);
+            notFull.signal(); // 唤醒一个生产者 // Wake up one producer
+            return slot;
+        } finally {
+            lock.unlock();
+            if (timed) {
+                if (waited > 0) {
+                    probe.waited(cursor.kind, cursor.id, slot, waited);
+                }
+                probe.released(cursor.kind, cursor.id, slot, System.nanoTime() - heldAt - waited); // 持有时间不含等待 // Hold time excludes waiting
+            }
+        }
+    }
+
+    @Override
+    public int putBatch(BufferCursor cursor, int max) throws InterruptedException {
+        boolean timed = probe.enabled();
+        long lockAt = timed ? System.nanoTime() : 0;
+        lock.lockInterruptibly();
+        long heldAt = timed ? System.nanoTime() : 0;
+        long waited = 0;
+        int first = putIndex;
+        if (timed) {
+            probe.acquired(cursor.kind, cursor.id, first, heldAt - lockAt);
+        }
+        try {
+            while (count == bufferSize) {
+                log.publish(cursor.kind, cursor.id, putIndex, EventLog.WAIT_FULL);
+                cursor.waits++;
+                long waitAt = timed ? System.nanoTime() : 0;
+                waitingProducers++;
+                try {
+                    notFull.await();
+                } finally {
+                    waitingProducers--;
+                }
+                waited += timed ? System.nanoTime() - waitAt : 0;
+            }
+            // 一次加锁连续生产尽可能多的数据项
+            // Produce as many contiguous items as fit under this one acquisition
+            first = putIndex;
+            int n = Math.min(max, bufferSize - count);
+            for (int i = 0; i < n; i++) {
+                if (cursor.visitor != null) {
+                    cursor.visitor.visit(putIndex); // 原地读写数据 // Read or write the data in place
+                }
+                probe.transferred(cursor.kind, cursor.id, putIndex); // 交接之前记入轨迹 // Trace the hand-over before it happens
+                log.publish(cursor.kind, cursor.id, putIndex, EventLog.PRODUCED);
+                putIndex = (putIndex + 1) % bufferSize;
+            }
+            boolean wasEmpty = count == 0;
+            count += n;
+            // 只有从空变为非空时才唤醒消费者，且最多唤醒 n 个
+            // Wake consumers only on the empty-to-non-empty transition, and at most n of them
+            if (wasEmpty) {
+                for (int i = Math.min(n, waitingConsumers); i > 0; i--) {
+                    notEmpty.signal();
+                }
+            }
+            // 还有空位且有其他生产者在等待时接力唤醒一个，避免它错过转换
+            // If space remains and other producers wait, pass the wakeup on to one so it does not miss the transition
+            if (count < bufferSize && waitingProducers > 0) {
+                notFull.signal();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+            if (timed) {
+                if (waited > 0) {
+                    probe.waited(cursor.kind, cursor.id, first, waited);
+                }
+                probe.released(cursor.kind, cursor.id, first, System.nanoTime() - heldAt - waited);
+            }
+        }
+    }
+
+    @Override
+    public int takeBatch(BufferCursor cursor, int max) throws InterruptedException {
+        boolean timed = probe.enabled();
+        long lockAt = timed ? System.nanoTime() : 0;
+        lock.lockInterruptibly();
+        long heldAt = timed ? System.nanoTime() : 0;
+        long waited = 0;
+        int first = takeIndex;
+        if (timed) {
+            probe.acquired(cursor.kind, cursor.id, first, heldAt - lockAt);
+        }
+        try {
+            while (count == 0) {
+                log.publish(cursor.kind, cursor.id, takeIndex, EventLog.WAIT_EMPTY);
+                cursor.waits++;
+                long waitAt = timed ? System.nanoTime() : 0;
+                waitingConsumers++;
+                try {
+                    notEmpty.await();
+                } finally {
+                    waitingConsumers--;
+                }
+                waited += timed ? System.nanoTime() - waitAt : 0;
+            }
+            // 一次加锁取出尽可能多的数据项
+            // Drain as many items as are available under this one acquisition
+            first = takeIndex;
+            int n = Math.min(max, count);
+            for (int i = 0; i < n; i++) {
+                if (cursor.visitor != null) {
+                    cursor.visitor.visit(takeIndex); // 原地读写数据 // Read or write the data in place
+                }
+                probe.transferred(cursor.kind, cursor.id, takeIndex); // 交接之前记入轨迹 // Trace the hand-over before it happens
+                log.publish(cursor.kind, cursor.id, takeIndex, EventLog.CONSUMED);
+                takeIndex = (takeIndex + 1) % bufferSize;
+            }
+            boolean wasFull = count == bufferSize;
+            count -= n;
+            // 只有从满变为不满时才唤醒生产者，且最多唤醒 n 个
+            // Wake producers only on the full-to-not-full transition, and at most n of them
+            if (wasFull) {
+                for (int i = Math.min(n, waitingProducers); i > 0; i--) {
+                    notFull.signal();
+                }
+            }
+            // 还有数据且有其他消费者在等待时接力唤醒一个
+            // If items remain and other consumers wait, pass the wakeup on to one
+            if (count > 0 && waitingConsumers > 0) {
+                notEmpty.signal();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+            if (timed) {
+                if (waited > 0) {
+                    probe.waited(cursor.kind, cursor.id, first, waited);
+                }
+                probe.released(cursor.kind, cursor.id, first, System.nanoTime() - heldAt - waited);
+            }
+        }
+    }
+
+    // 与 take 相同，但缓冲区空时立即返回；只在缓冲区满时丢弃最旧的数据项，不计入竞争统计
+    // As take, but returns at once when the buffer is empty; only used to drop the oldest item from a full buffer, so it is left out of the contention metrics
+    @Override
+    public boolean tryTake(BufferCursor cursor) {
+        lock.lock();
+        try {
+            if (count == 0) {
+                return false;
+            }
+            int slot = takeIndex;
+            takeIndex = (takeIndex + 1) % bufferSize;
+            count--;
+            if (cursor.visitor != null) {
+                cursor.visitor.visit(slot); // 原地读写数据 // Read or write the data in place
+            }
+            probe.transferred(cursor.kind, cursor.id, slot); // 交接之前记入轨迹 // Trace the hand-over before it happens
+            log.publish(cursor.kind, cursor.id, slot, EventLog.CONSUMED);
+            notFull.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,145 @@
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class MonitorPolicy implements ReadWritePolicy {
+    // 保护读者数、写者状态的锁和两个条件变量
+    // Lock guarding the reader count and writer state, plus two condition variables
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition canRead = lock.newCondition();
+    private final Condition canWrite = lock.newCondition();
+
+    // true 为写者优先：有写者等待时新读者不能进入；false 为读者优先：只要没有写者在写，读者就能进入
+    // true for writer preference: new readers cannot enter while a writer waits; false for reader preference: readers enter whenever no writer is writing
+    private final boolean preferWriters;
+
+    // 正在读的读者数、是否有写者在写、正在等待的写者数
+    // Readers reading, whether a writer is writing, writers waiting
+    private int readers = 0;
+    private boolean writing = false;
+    private int waitingWriters = 0;
+
+    public MonitorPolicy(boolean preferWriters) {
+        this.preferWriters = preferWriters;
+    }
+
+    // 读者能否进入
+    // Whether a reader may enter
+    private boolean readable() {
+        return !writing && !(preferWriters && waitingWriters > 0);
+    }
+
+    @Override
+    public long tryAcquireRead() {
+        lock.lock();
+        try {
+            if (!readable()) {
+                return 0;
+            }
+            readers++;
+            return 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long acquireRead() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!readable()) {
+                canRead.await();
+            }
+            readers++;
+            return 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean releaseRead(long token) {
+        lock.lock();
+        try {
+            readers--;
+            if (readers == 0) {
+                canWrite.signal(); // 最后一个读者唤醒一个写者 // The last reader wakes one writer
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryAcquireWrite() {
+        lock.lock();
+        try {
+            if (writing || readers > 0) {
+                return false;
+            }
+            writing = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void acquireWrite() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            waitingWriters++;
+            try {
+                while (writing || readers > 0) {
+                    canWrite.await();
+                }
+            } finally {
+                waitingWriters--;
+            }
+            writing = true;
+        } catch (InterruptedException e) {
+            if (waitingWriters == 0 && !writing) {
+                canRead.signalAll(); // 放弃等待后不再阻挡读者 // Stop holding readers back once we give up waiting
+            }
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void releaseWrite() {
+        lock.lock();
+        try {
+            writing = false;
+            if (preferWriters && waitingWriters > 0) {
+                canWrite.signal(); // 写者优先：先交给下一个写者 // Writer preference: hand over to the next writer first
+            } else {
+                canRead.signalAll();
+                canWrite.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int readerCount() {
+        lock.lock();
+        try {
+            return readers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isWriteLocked() {
+        lock.lock();
+        try {
+            return writing;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
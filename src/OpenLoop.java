@@ -0,0 +1,37 @@
+public class OpenLoop {
+    // 到达方式和生产者数
+    // Arrival schedule and number of producers
+    final ArrivalSchedule schedule;
+    final int producers;
+
+    // 所有生产者共同的起点，突发周期从这里算起
+    // Common starting point of every producer; burst periods count from here
+    final long originNanos;
+
+    // 每个缓冲区位置上数据项的预定发送时间；生产者在交出位置之前写入，消费者占下位置之后读取，由缓冲区的交接保证可见
+    // Due time of the item at each buffer position; the producer writes it before handing the position over and the consumer reads it after claiming it, so the buffer's hand-over makes it visible
+    private final long[] dueTimes;
+
+    public OpenLoop(ArrivalSchedule schedule, int producers, int capacity) {
+        this.schedule = schedule;
+        this.producers = producers;
+        this.originNanos = System.nanoTime();
+        this.dueTimes = new long[capacity];
+    }
+
+    // 下一个数据项的预定时间
+    // Due time of the next item
+    long next(long previousDue) {
+        return schedule.next(previousDue, originNanos, producers);
+    }
+
+    void stamp(int slot, long due) {
+        dueTimes[slot] = due;
+    }
+
+    // 从预定发送时间到现在的端到端延迟；生产者落后于计划时，排队的时间也计算在内
+    // End-to-end latency from the due time until now; when producers fall behind schedule the time spent queued counts too
+    long latency(int slot) {
+        return System.nanoTime() - dueTimes[slot];
+    }
+}
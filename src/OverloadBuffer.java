@@ -0,0 +1,228 @@
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class OverloadBuffer implements BoundedBuffer {
+    // put 在数据项没有放入缓冲区（被丢弃、超时或被拒绝）时的返回值
+    // Value put returns when the item did not enter the buffer (dropped, timed out or rejected)
+    public static final int DROPPED = Integer.MIN_VALUE;
+
+    // 被拒绝的数据项交给的回调
+    // Callback receiving rejected items
+    public interface RejectHandler {
+        void rejected(BufferCursor cursor);
+    }
+
+    // 真正存放数据项的缓冲区；它的容量不小于逻辑容量，所以生产者拿到许可后放入时不会再因满而等待
+    // Buffer actually holding the items; its capacity is never below the logical capacity, so a producer holding a permit never waits on a full buffer
+    private final BoundedBuffer inner;
+
+    private final OverloadPolicy policy;
+
+    // 用于记录模拟过程的事件日志
+    // Event log recording the simulation
+    private final EventLog log;
+
+    // 拒绝回调，为 null 时只计数
+    // Reject callback; null only counts the rejections
+    private final RejectHandler onReject;
+
+    // 逻辑容量的许可：放入前取得，取走后归还；缓冲区满就是没有许可
+    // Permits for the logical capacity: taken before an item goes in and returned once it is taken out; a full buffer is one with no permits left
+    private final Semaphore space;
+
+    // 当前的逻辑容量，只有弹性策略会增长
+    // Current logical capacity; only the elastic policy grows it
+    private final AtomicInteger limit;
+
+    // 各策略的计数：丢弃的数据项（最新的或最旧的）、超时、拒绝和扩容次数
+    // Per-policy counters: dropped items (newest or oldest), timeouts, rejections and resizes
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder resized = new LongAdder();
+
+    public OverloadBuffer(BoundedBuffer inner, OverloadPolicy policy, int bufferSize, EventLog log, RejectHandler onReject) {
+        this.inner = inner;
+        this.policy = policy;
+        this.log = log;
+        this.onReject = onReject;
+        this.space = new Semaphore(bufferSize);
+        this.limit = new AtomicInteger(bufferSize);
+    }
+
+    // 按策略取得一个许可；返回 false 表示这个数据项不放入缓冲区
+    // Take one permit as the policy says; returns false when this item does not go into the buffer
+    private boolean admit(BufferCursor cursor) throws InterruptedException {
+        if (space.tryAcquire()) {
+            return true;
+        }
+        switch (policy.kind) {
+            case TIMEOUT -> {
+                cursor.waits++;
+                log.publish(cursor.kind, cursor.id, 0, EventLog.WAIT_FULL);
+                if (space.tryAcquire(policy.limit, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                timedOut.increment();
+                log.publish(cursor.kind, cursor.id, (int) policy.limit, EventLog.TIMED_OUT);
+                return false;
+            }
+            case DROP_NEWEST -> {
+                dropped.increment();
+                log.publish(cursor.kind, cursor.id, 0, EventLog.DROPPED_NEWEST);
+                return false;
+            }
+            case REJECT -> {
+                rejected.increment();
+                if (onReject != null) {
+                    onReject.rejected(cursor);
+                }
+                return false;
+            }
+            case DROP_OLDEST -> {
+                // 取走最旧的数据项，它占的许可直接归这个生产者；缓冲区里暂时没有数据项（许可都被正在放入的生产者拿着）时让出后重试
+                // Take the oldest item and keep its permit; while the buffer holds no item yet (the permits are all with producers mid-put), yield and retry
+                // 丢弃用的游标不带访问者，不会读写被丢弃的数据；它在每个生产者上只创建一次，扫描的缓冲区从上次丢弃的位置接着往后找。
+                // 逐位置加锁和分片缓冲区不是整体先进先出，丢弃的只是大致最旧的数据项
+                // The dropping cursor carries no visitor, so the dropped data is neither read nor written; it is created once per producer, so a scanning buffer carries on from the last dropped position.
+                // The slot-lock and sharded buffers are not FIFO as a whole, so there the dropped item is only roughly the oldest
+                if (cursor.dropper == null) {
+                    cursor.dropper = new BufferCursor(cursor.kind, cursor.id);
+                }
+                while (!space.tryAcquire()) {
+                    if (inner.tryTake(cursor.dropper)) {
+                        dropped.increment();
+                        return true;
+                    }
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    Thread.yield();
+                }
+                return true;
+            }
+            case ELASTIC -> {
+                // 还没到上限就扩容再取许可；刚放出的许可可能被别的生产者抢走，所以一直重试到上限为止
+                // Below the cap, grow and then take a permit; other producers may grab the permits just released, so keep at it until the cap is reached
+                while (grow()) {
+                    if (space.tryAcquire()) {
+                        return true;
+                    }
+                }
+                // 已到上限，与阻塞策略一样等待
+                // At the cap, so wait like the block policy
+                cursor.waits++;
+                log.publish(cursor.kind, cursor.id, 0, EventLog.WAIT_FULL);
+                space.acquire();
+                return true;
+            }
+            default -> {
+                space.acquire();
+                return true;
+            }
+        }
+    }
+
+    // 把逻辑容量加倍，最多到上限，多出的位置作为许可放出；返回这次调用是否扩了容，已到上限时返回 false
+    // Double the logical capacity up to the cap and release the new positions as permits; returns whether this call resized, false once the cap is reached
+    private boolean grow() {
+        while (true) {
+            int current = limit.get();
+            if (current >= policy.limit) {
+                return false;
+            }
+            int next = (int) Math.min(policy.limit, current * 2L);
+            if (limit.compareAndSet(current, next)) {
+                space.release(next - current);
+                resized.increment();
+                log.publish(EventLog.SYSTEM, 0, next, EventLog.RESIZED);
+                return true;
+            }
+        }
+    }
+
+    // 数据项没有放入时返回 DROPPED
+    // Returns DROPPED when the item did not go in
+    @Override
+    public int put(BufferCursor cursor) throws InterruptedException {
+        if (!admit(cursor)) {
+            return DROPPED;
+        }
+        return inner.put(cursor);
+    }
+
+    @Override
+    public int take(BufferCursor cursor) throws InterruptedException {
+        int slot = inner.take(cursor);
+        space.release();
+        return slot;
+    }
+
+    // 第一个数据项按策略取得许可，其余的只取现成的许可；一个都没放入时返回 0
+    // The first item takes its permit as the policy says, the rest only take permits already free; returns 0 when nothing went in
+    @Override
+    public int putBatch(BufferCursor cursor, int max) throws InterruptedException {
+        if (!admit(cursor)) {
+            return 0;
+        }
+        int permits = 1;
+        while (permits < max && space.tryAcquire()) {
+            permits++;
+        }
+        int n = inner.putBatch(cursor, permits);
+        if (n < permits) {
+            space.release(permits - n);
+        }
+        return n;
+    }
+
+    @Override
+    public int takeBatch(BufferCursor cursor, int max) throws InterruptedException {
+        int n = inner.takeBatch(cursor, max);
+        space.release(n);
+        return n;
+    }
+
+    // 丢弃最旧的数据项本身不会再套一层策略
+    // Dropping the oldest item is never itself subject to a policy
+    @Override
+    public boolean tryTake(BufferCursor cursor) {
+        if (!inner.tryTake(cursor)) {
+            return false;
+        }
+        space.release();
+        return true;
+    }
+
+    // 底层缓冲区的容量，弹性策略下就是上限，数据记录区域按它分配
+    // Capacity of the underlying buffer, the cap under the elastic policy; the record arena is sized from it
+    @Override
+    public int capacity() {
+        return inner.capacity();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long timedOut() {
+        return timedOut.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long resized() {
+        return resized.sum();
+    }
+
+    // 策略、当前逻辑容量和各项计数
+    // The policy, the current logical capacity and every counter
+    public String summary() {
+        return String.format("overload:     policy=%s capacity=%d, %d dropped, %d timed out, %d rejected, %d resizes%n",
+                policy, limit.get(), dropped(), timedOut(), rejected(), resized());
+    }
+}
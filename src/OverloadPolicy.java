@@ -0,0 +1,86 @@
+public class OverloadPolicy {
+    // 缓冲区满时生产者的做法
+    // What a producer does when the buffer is full
+    enum Kind { BLOCK, TIMEOUT, DROP_NEWEST, DROP_OLDEST, REJECT, ELASTIC }
+
+    // 不做任何处理，等同于原来的阻塞等待
+    // Do nothing special, the same as the original blocking wait
+    public static final OverloadPolicy BLOCK = new OverloadPolicy(Kind.BLOCK, 0);
+
+    final Kind kind;
+
+    // 超时策略的等待毫秒数，或弹性策略的容量上限；其他策略为 0
+    // Milliseconds to wait for the timeout policy, or the capacity cap for the elastic policy; 0 for the others
+    final long limit;
+
+    private OverloadPolicy(Kind kind, long limit) {
+        this.kind = kind;
+        this.limit = limit;
+    }
+
+    // 解析描述：
+    //   block          缓冲区满时一直等待
+    //   timeout:100    最多等待 100 毫秒，超时后放弃这个数据项
+    //   drop-newest    不等待，直接丢弃新的数据项
+    //   drop-oldest    不等待，丢弃缓冲区中最旧的数据项腾出位置
+    //   reject         不等待，交给拒绝回调处理
+    //   elastic:64     容量不够时加倍，最多到 64 个位置，之后一直等待
+    // Parse a specification:
+    //   block          wait for as long as the buffer is full
+    //   timeout:100    wait at most 100 ms, then give the item up
+    //   drop-newest    do not wait, drop the new item
+    //   drop-oldest    do not wait, drop the oldest item in the buffer to make room
+    //   reject         do not wait, hand the item to the reject callback
+    //   elastic:64     double the capacity when it runs out, up to 64 positions, then wait
+    public static OverloadPolicy parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            Kind kind = switch (parts[0]) {
+                case "block" -> Kind.BLOCK;
+                case "timeout" -> Kind.TIMEOUT;
+                case "drop-newest" -> Kind.DROP_NEWEST;
+                case "drop-oldest" -> Kind.DROP_OLDEST;
+                case "reject" -> Kind.REJECT;
+                case "elastic" -> Kind.ELASTIC;
+                default -> throw new IllegalArgumentException("Unknown overload policy " + parts[0] + " (block, timeout, drop-newest, drop-oldest, reject or elastic)");
+            };
+            boolean limited = kind == Kind.TIMEOUT || kind == Kind.ELASTIC;
+            if (parts.length != (limited ? 2 : 1)) {
+                throw new IllegalArgumentException("Invalid overload policy " + spec);
+            }
+            long limit = limited ? Long.parseLong(parts[1]) : 0;
+            if (limited && limit < 1) {
+                throw new IllegalArgumentException("Invalid overload policy " + spec);
+            }
+            return kind == Kind.BLOCK ? BLOCK : new OverloadPolicy(kind, limit);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid overload policy " + spec, e);
+        }
+    }
+
+    // 检查策略与缓冲区大小是否相容：弹性策略的上限必须大于初始大小，否则永远不会扩容
+    // Check that the policy fits the buffer size: the elastic cap must exceed the starting size, or it would never grow
+    public void check(int bufferSize) {
+        if (kind == Kind.ELASTIC && limit <= bufferSize) {
+            throw new IllegalArgumentException("The elastic cap " + limit + " must be larger than the buffer size " + bufferSize);
+        }
+    }
+
+    // 底层缓冲区的大小：弹性策略按上限一次分配好，之后只放开逻辑容量，其他策略就是 bufferSize
+    // Size of the underlying buffer: the elastic policy allocates up to the cap once and then only widens the logical capacity; otherwise bufferSize
+    public int innerSize(int bufferSize) {
+        return kind == Kind.ELASTIC ? (int) Math.max(bufferSize, limit) : bufferSize;
+    }
+
+    // 在缓冲区外面套上这个策略；阻塞策略原样返回，不增加任何开销
+    // Wrap the buffer in this policy; the block policy returns it unchanged, adding no overhead
+    public BoundedBuffer wrap(BoundedBuffer inner, int bufferSize, EventLog log, OverloadBuffer.RejectHandler onReject) {
+        return kind == Kind.BLOCK ? inner : new OverloadBuffer(inner, this, bufferSize, log, onReject);
+    }
+
+    @Override
+    public String toString() {
+        String text = kind.name().toLowerCase().replace('_', '-');
+        return limit > 0 ? text + ":" + limit : text;
+    }
+}
@@ -0,0 +1,92 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class PayloadArena {
+    // 支持的记录大小范围（字节）
+    // Supported record sizes (bytes)
+    static final int MIN_RECORD = 64;
+    static final int MAX_RECORD = 64 * 1024;
+
+    // 单个直接缓冲区最多 1 GB；更大的区域拆成多块，每块放整数个记录
+    // A single direct buffer holds at most 1 GB; larger arenas are split into chunks holding whole records
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    // 每个位置一条记录，位置 i 的记录在第 i / recordsPerChunk 块的 (i % recordsPerChunk) * recordSize 处
+    // One record per position; position i lives in chunk i / recordsPerChunk at offset (i % recordsPerChunk) * recordSize
+    final int slots;
+    final int recordSize;
+    private final int recordsPerChunk;
+
+    // 堆外内存，不占用 Java 堆，堆大小不随缓冲区增长
+    // Off-heap memory outside the Java heap, so heap usage does not grow with the buffer
+    private final ByteBuffer[] chunks;
+
+    public PayloadArena(int slots, int recordSize) {
+        checkRecordSize(recordSize);
+        this.slots = slots;
+        this.recordSize = recordSize;
+        this.recordsPerChunk = MAX_CHUNK_BYTES / recordSize;
+        int chunkCount = (slots + recordsPerChunk - 1) / recordsPerChunk;
+        this.chunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            int records = Math.min(recordsPerChunk, slots - i * recordsPerChunk);
+            chunks[i] = ByteBuffer.allocateDirect(records * recordSize).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    // 检查记录大小，让调用方在分配任何东西之前就能拒绝无效的大小
+    // Check a record size, so callers can reject an invalid one before allocating anything
+    static void checkRecordSize(int recordSize) {
+        if (recordSize < MIN_RECORD || recordSize > MAX_RECORD || recordSize % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Record size must be a multiple of 8 between " + MIN_RECORD + " and " + MAX_RECORD + " bytes");
+        }
+    }
+
+    // 堆外内存总字节数
+    // Total off-heap bytes
+    public long bytes() {
+        return (long) slots * recordSize;
+    }
+
+    // 为一个线程创建可重复使用的视图；视图不复制数据，只是指向某个位置的记录
+    // Create a reusable view for one thread; a view copies nothing, it only points at one position's record
+    public View newView() {
+        return new View();
+    }
+
+    // 享元视图：每个生产者、消费者一个，移动到某个位置后直接在原地读写，整个运行期间不再分配对象
+    // Flyweight view: one per producer or consumer; once moved to a position it reads and writes in place, allocating nothing for the rest of the run
+    public class View {
+        // 每块一个独立的副本，各自的位置和界限互不影响
+        // One duplicate per chunk, so each view has its own position and limit
+        private final ByteBuffer[] buffers = new ByteBuffer[chunks.length];
+        private ByteBuffer buffer;
+        private int offset;
+
+        private View() {
+            for (int i = 0; i < chunks.length; i++) {
+                buffers[i] = chunks[i].duplicate().order(ByteOrder.nativeOrder()); // duplicate 会重置字节序 // duplicate resets the byte order
+            }
+        }
+
+        // 移动到某个位置的记录
+        // Move to the record of a position
+        public View moveTo(int slot) {
+            buffer = buffers[slot / recordsPerChunk];
+            offset = (slot % recordsPerChunk) * recordSize;
+            return this;
+        }
+
+        public int length() {
+            return recordSize;
+        }
+
+        public void putLong(int index, long value) {
+            buffer.putLong(offset + index, value);
+        }
+
+        public long getLong(int index) {
+            return buffer.getLong(offset + index);
+        }
+    }
+}
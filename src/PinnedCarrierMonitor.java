@@ -0,0 +1,48 @@
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PinnedCarrierMonitor implements AutoCloseable {
+    // JFR 中虚拟线程阻塞时占住载体线程的事件
+    // JFR event emitted when a virtual thread blocks while pinned to its carrier
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    // 订阅 JFR 事件的流
+    // Stream subscribed to the JFR event
+    private final RecordingStream stream;
+
+    // 钉住的次数和最长的钉住时间
+    // Number of pinned events and the longest pinned duration
+    private final LongAdder pinned = new LongAdder();
+    private final AtomicLong longestNanos = new AtomicLong();
+
+    public PinnedCarrierMonitor() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ZERO);
+        stream.onEvent(PINNED_EVENT, event -> {
+            pinned.increment();
+            longestNanos.accumulateAndGet(event.getDuration().toNanos(), Math::max);
+        });
+        stream.startAsync();
+    }
+
+    // 至今记录到的钉住次数；JFR 按周期刷新，可能稍有延迟
+    // Pinned events seen so far; JFR flushes periodically, so this may lag slightly
+    public long pinnedCount() {
+        return pinned.sum();
+    }
+
+    public long longestPinnedNanos() {
+        return longestNanos.get();
+    }
+
+    // 停止记录并处理完所有缓存的事件
+    // Stop recording and process every buffered event
+    @Override
+    public void close() {
+        stream.stop();
+        stream.close();
+    }
+}
@@ -0,0 +1,440 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ProcessScheduler {
+    // 检查正在运行的进程是否已阻塞的间隔
+    // Interval between checks for running processes that have blocked
+    static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // 一个被调度的模拟进程
+    // One scheduled simulated process
+    static class Process {
+        final String group;
+        final int id;
+
+        // 优先级调度的优先级，彩票调度的彩票数
+        // Priority under priority scheduling, tickets under lottery scheduling
+        final int weight;
+
+        final Thread thread = Thread.currentThread();
+        final Condition turn;
+
+        // 是否占用处理器、是否在就绪列表中，以及进入就绪列表和得到处理器的时间
+        // Whether it holds a processor or waits in the ready list, and when it became ready and when it got a processor
+        boolean running;
+        boolean ready;
+
+        // 已被选中、还没从等待中醒来；这时线程仍处于等待状态，但不能当作阻塞收回处理器
+        // Picked but not yet awake; the thread still shows as waiting, yet its processor must not be taken back as if it had blocked
+        boolean waking;
+
+        // 正在等调度器自己的锁；时钟检查持有这把锁，这时线程显示为等待，但并没有阻塞在模拟的工作上。不持锁写入，因此是 volatile
+        // Waiting for the scheduler's own lock; the tick holds that lock while it checks, so the thread shows as waiting without having blocked in the simulated work. Written without the lock, hence volatile
+        volatile boolean entering;
+
+        // 优先级调度下得到处理器时的有效优先级（含老化的提升），运行期间保持不变，下次等待重新从权重算起
+        // Under priority scheduling, the effective priority (aging included) when it got the processor; kept while it runs, and the next wait starts again from the weight
+        double priority;
+        long readySince;
+        long dispatchedAt;
+
+        // 完成的循环次数、得到处理器的次数、等待处理器和占用处理器的总时间
+        // Loops completed, times given a processor, and total time spent waiting for and holding one
+        long operations = -1;
+        long dispatches;
+        long readyNanos;
+        long runNanos;
+
+        // 结束时从 /proc 读出的操作系统上下文切换次数（主动、被动），不可用时为 -1
+        // Operating system context switches (voluntary, involuntary) read from /proc at exit; -1 when unavailable
+        long voluntary = -1;
+        long involuntary = -1;
+
+        Process(String group, int id, int weight, Condition turn) {
+            this.group = group;
+            this.id = id;
+            this.weight = weight;
+            this.turn = turn;
+        }
+    }
+
+    private final SchedulingPolicy policy;
+
+    // 模拟的处理器个数，同一时刻最多这么多个进程在运行
+    // Number of simulated processors; at most this many processes run at once
+    private final int cpus;
+
+    // 各进程的权重按编号循环取用
+    // Weights handed to processes by id, cycling
+    private final int[] weights;
+
+    // 每组进程绑定的核心列表（taskset 的格式，例如 0-1,3），没有的组不绑定
+    // Cores each group is pinned to (taskset format, e.g. 0-1,3); groups not listed are left unpinned
+    private final Map<String, String> pins;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Process> processes = new ArrayList<>();
+    private final List<Process> ready = new ArrayList<>();
+    private final ThreadLocal<Process> current = new ThreadLocal<>();
+    private final Random random = new Random();
+    private int free;
+    private boolean stopped;
+
+    // 时间片用完或被更高优先级抢占的次数，以及阻塞后被收回处理器的次数
+    // Times a quantum ran out or a higher priority preempted, and times a processor was taken back from a blocked process
+    private long preemptions;
+    private long blocks;
+
+    // 各组绑定核心的结果，例如 "0 (verified)" 或失败原因
+    // Outcome of pinning each group, e.g. "0 (verified)" or why it failed
+    private final Map<String, String> pinned = new LinkedHashMap<>();
+
+    public ProcessScheduler(SchedulingPolicy policy, int cpus, int[] weights, Map<String, String> pins) {
+        this.policy = policy;
+        this.cpus = cpus;
+        this.weights = weights;
+        this.pins = pins;
+        this.free = cpus;
+        if (policy != SchedulingPolicy.OS) {
+            Thread.ofPlatform().daemon().name("scheduler-tick").start(this::tick);
+        }
+    }
+
+    // 把一个进程包装成受调度的进程：登记、按组绑定核心，结束时交还处理器并读出上下文切换次数
+    // Wrap a process so it is scheduled: register it, pin it by group, and on exit give back its processor and read its context switches
+    public Runnable wrap(String group, int id, Runnable process) {
+        return () -> {
+            Process self;
+            lock.lock();
+            try {
+                self = new Process(group, id, weights[Math.floorMod(id, weights.length)], lock.newCondition());
+                processes.add(self);
+            } finally {
+                lock.unlock();
+            }
+            current.set(self);
+            String cores = pins.get(group);
+            if (cores != null) {
+                pin(group, cores);
+            }
+            try {
+                process.run();
+            } finally {
+                long[] switches = contextSwitches();
+                current.remove();
+                self.entering = true;
+                lock.lock();
+                self.entering = false;
+                try {
+                    self.voluntary = switches[0];
+                    self.involuntary = switches[1];
+                    ready.remove(self);
+                    self.ready = false;
+                    if (self.running) {
+                        release(self, System.nanoTime());
+                        schedule(System.nanoTime());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    // 在进程的每次循环开头由 CancellationToken.proceed 调用：按策略继续运行，或让出处理器并等到再次被选中
+    // Called by CancellationToken.proceed at the top of each process loop: keep running as the policy allows, or give up the processor and wait to be picked again
+    void dispatch() {
+        Process self = current.get();
+        if (self == null) {
+            return; // 不受调度的线程 // Not a scheduled thread
+        }
+        if (policy == SchedulingPolicy.OS) {
+            self.operations++; // 只有本线程写，运行结束后才读 // Written only by this thread and read once the run is over
+            return;
+        }
+        self.entering = true;
+        lock.lock();
+        self.entering = false;
+        try {
+            long now = System.nanoTime();
+            self.operations++;
+            if (self.running) {
+                if (ready.isEmpty() || !policy.preempts(self, ready, now)) {
+                    return;
+                }
+                preemptions++;
+                release(self, now);
+            }
+            self.ready = true;
+            self.readySince = now;
+            ready.add(self);
+            schedule(now);
+            while (!self.running && !stopped) {
+                self.turn.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // 恢复中断状态 // Restore interrupt status
+        } finally {
+            self.waking = false;
+            if (self.ready) {
+                ready.remove(self);
+                self.ready = false;
+            }
+            lock.unlock();
+        }
+    }
+
+    // 把空闲的处理器交给策略选中的就绪进程；调用时持有锁
+    // Hand free processors to the ready processes the policy picks; called holding the lock
+    private void schedule(long now) {
+        while (free > 0 && !ready.isEmpty()) {
+            Process next = policy.pick(ready, now, random);
+            ready.remove(next);
+            next.ready = false;
+            next.running = true;
+            next.waking = true;
+            next.dispatchedAt = now;
+            next.priority = policy.priority(next, now);
+            next.dispatches++;
+            next.readyNanos += now - next.readySince;
+            free--;
+            next.turn.signal();
+        }
+    }
+
+    private void release(Process process, long now) {
+        process.running = false;
+        process.runNanos += now - process.dispatchedAt;
+        free++;
+    }
+
+    // 操作系统不让阻塞的线程占着处理器，这里也一样：每个时钟检查一次，阻塞或休眠中的进程交还处理器，醒来后在下一次循环开头重新排队；
+    // 正在等调度器锁的进程不算阻塞，否则时钟自己持锁就会让它们失去处理器
+    // An operating system never leaves a processor with a blocked thread, and neither does this: every tick, a process that is blocked or sleeping gives its processor back and queues again at the top of its next loop once awake;
+    // a process waiting for the scheduler's lock has not blocked, or the tick holding that lock would itself cost them their processor
+    private void tick() {
+        while (true) {
+            try {
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(TICK_NANOS));
+            } catch (InterruptedException e) {
+                return;
+            }
+            lock.lock();
+            try {
+                if (stopped) {
+                    return;
+                }
+                long now = System.nanoTime();
+                for (Process process : processes) {
+                    if (process.running && !process.waking && !process.entering && process.thread.getState() != Thread.State.RUNNABLE) {
+                        blocks++;
+                        release(process, now);
+                    }
+                }
+                schedule(now);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // 运行结束：唤醒所有等待处理器的进程，它们看到令牌已取消后退出
+    // The run is over: wake every process waiting for a processor, and they leave once they see the cancelled token
+    public void stop() {
+        lock.lock();
+        try {
+            stopped = true;
+            for (Process process : processes) {
+                process.turn.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 用 taskset 把当前线程绑定到给定核心，再从 /proc 读回允许的核心列表确认；只在 Linux 上可用
+    // Pin the current thread to the given cores with taskset, then read the allowed cores back from /proc to confirm; Linux only
+    private void pin(String group, String cores) {
+        String outcome;
+        try {
+            // /proc/thread-self 指向 <pid>/task/<tid>
+            // /proc/thread-self points to <pid>/task/<tid>
+            Path self = Files.readSymbolicLink(Path.of("/proc/thread-self"));
+            String tid = self.getFileName().toString();
+            java.lang.Process taskset = new ProcessBuilder("taskset", "-p", "-c", cores, tid).redirectErrorStream(true).start();
+            taskset.getInputStream().readAllBytes();
+            if (taskset.waitFor() != 0) {
+                outcome = cores + " (taskset failed)";
+            } else {
+                String allowed = status("Cpus_allowed_list");
+                outcome = allowed + (allowed.equals(cores) ? " (verified)" : " (asked for " + cores + ")");
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            outcome = "unavailable: " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+        }
+        lock.lock();
+        try {
+            pinned.putIfAbsent(group, outcome);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 当前线程的主动、被动上下文切换次数，不是 Linux 时为 -1
+    // Voluntary and involuntary context switches of the current thread; -1 when not on Linux
+    private static long[] contextSwitches() {
+        try {
+            return new long[] {Long.parseLong(status("voluntary_ctxt_switches")), Long.parseLong(status("nonvoluntary_ctxt_switches"))};
+        } catch (IOException | NumberFormatException e) {
+            return new long[] {-1, -1};
+        }
+    }
+
+    // 从 /proc/thread-self/status 读出一项
+    // Read one field from /proc/thread-self/status
+    private static String status(String field) throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc/thread-self/status"))) {
+            if (line.startsWith(field + ":")) {
+                return line.substring(field.length() + 1).trim();
+            }
+        }
+        throw new IOException("No " + field + " in /proc/thread-self/status");
+    }
+
+    // Jain 公平指数：(Σx)² / (n·Σx²)，各进程完全相同时为 1，只有一个进程有进展时为 1/n
+    // Jain's fairness index: (Σx)² / (n·Σx²); 1 when every process got the same, 1/n when only one made progress
+    static double jainIndex(List<Long> values) {
+        double sum = 0;
+        double squares = 0;
+        for (long value : values) {
+            sum += value;
+            squares += (double) value * value;
+        }
+        return squares == 0 ? 1 : sum * sum / (values.size() * squares);
+    }
+
+    // 所有进程完成循环次数的公平指数
+    // Fairness index over the loops every process completed
+    public double fairness() {
+        lock.lock();
+        try {
+            return jainIndex(processes.stream().map(p -> Math.max(0, p.operations)).toList());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 分配处理器的次数，即模拟的上下文切换次数
+    // Processors handed out, i.e. simulated context switches
+    public long switches() {
+        lock.lock();
+        try {
+            return processes.stream().mapToLong(p -> p.dispatches).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 所有进程的操作系统上下文切换次数之和，不可用时为 -1
+    // Operating system context switches summed over every process; -1 when unavailable
+    public long osSwitches() {
+        lock.lock();
+        try {
+            long total = 0;
+            for (Process process : processes) {
+                if (process.voluntary < 0) {
+                    return -1;
+                }
+                total += process.voluntary + process.involuntary;
+            }
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 策略、切换次数、公平指数，以及每组的循环次数、公平指数、等待和占用处理器的时间、权重和绑定情况
+    // The policy, switches and fairness, then per group the loops, fairness, time waiting for and holding a processor, weights and pinning
+    public String summary() {
+        lock.lock();
+        try {
+            StringBuilder out = new StringBuilder();
+            long voluntary = 0;
+            long involuntary = 0;
+            boolean os = true;
+            for (Process process : processes) {
+                os &= process.voluntary >= 0;
+                voluntary += process.voluntary;
+                involuntary += process.involuntary;
+            }
+            out.append(policy == SchedulingPolicy.OS
+                    ? String.format("scheduler:    policy=os, fairness %.3f%n", fairness())
+                    : String.format("scheduler:    policy=%s cpus=%d, %d switches (%d preempted, %d blocked), fairness %.3f%n",
+                    policy, cpus, switches(), preemptions, blocks, fairness()));
+            out.append(os ? String.format("os switches:  %d voluntary, %d involuntary%n", voluntary, involuntary)
+                    : String.format("os switches:  unavailable%n"));
+            Map<String, List<Process>> groups = new LinkedHashMap<>();
+            for (Process process : processes) {
+                groups.computeIfAbsent(process.group, g -> new ArrayList<>()).add(process);
+            }
+            for (Map.Entry<String, List<Process>> entry : groups.entrySet()) {
+                List<Process> members = entry.getValue();
+                long operations = 0;
+                long readyNanos = 0;
+                long runNanos = 0;
+                for (Process process : members) {
+                    operations += Math.max(0, process.operations);
+                    readyNanos += process.readyNanos;
+                    runNanos += process.runNanos;
+                }
+                out.append(String.format("  %-10s %4d processes %12d loops, fairness %.3f, %.1f ms ready, %.1f ms on a processor%s%n",
+                        entry.getKey(), members.size(), operations, jainIndex(members.stream().map(p -> Math.max(0, p.operations)).toList()),
+                        readyNanos / 1e6 / members.size(), runNanos / 1e6 / members.size(),
+                        pinned.containsKey(entry.getKey()) ? ", pinned to " + pinned.get(entry.getKey()) : ""));
+            }
+            return out.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 解析 --weights，例如 1,2,3,4
+    // Parse --weights, e.g. 1,2,3,4
+    static int[] parseWeights(String value) {
+        String[] parts = value.split(",");
+        int[] weights = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            weights[i] = Integer.parseInt(parts[i].trim());
+            if (weights[i] < 1) {
+                throw new IllegalArgumentException("Weights must be positive");
+            }
+        }
+        return weights;
+    }
+
+    // 解析 --pin，例如 producer=0-1;consumer=2
+    // Parse --pin, e.g. producer=0-1;consumer=2
+    static Map<String, String> parsePins(String value) {
+        Map<String, String> pins = new LinkedHashMap<>();
+        for (String part : value.split(";")) {
+            String[] pair = part.split("=");
+            if (pair.length != 2 || !pair[1].trim().matches("[0-9,-]+")) {
+                throw new IllegalArgumentException("Invalid pinning " + part + " (GROUP=CORES, e.g. producer=0-1)");
+            }
+            pins.put(pair[0].trim(), pair[1].trim());
+        }
+        return pins;
+    }
+}
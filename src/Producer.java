@@ -1,71 +1,130 @@
-import javax.swing.JTextArea;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 
 public class Producer implements Runnable {
-    // 锁数组，用于同步各个缓冲区位置
-    // Lock array used to synchronize each buffer position
-    private final Lock[] locks;
+    // 生产者和消费者共享的缓冲区
+    // Buffer shared by producers and consumers
+    private final BoundedBuffer buffer;
 
-    // 条件变量数组
-    // Condition variable array
-    private final Condition[] conditions;
+    // 运行统计
+    // Run statistics
+    private final RunStats stats;
 
-    // 标记缓冲区位置是否有生产的数据
-    // Indicates whether each buffer position has produced data
-    private final boolean[] bufferProduced;
+    // 每次操作最多生产的数据项数，为 1 时逐个生产
+    // Maximum items per operation; 1 means one item at a time
+    private final int batchSize;
 
-    // 用于显示输出的文本区域
-    // Text area used to display output
-    private final JTextArea outputArea;
-
-    // 缓冲区大小
-    // Size of the buffer
-    private final int bufferSize;
+    // 每次生产后的处理时间（毫秒），为 0 时不休眠
+    // Processing time after each item in milliseconds; 0 means no sleep
+    private final long thinkMillis;
 
     // 生产者的唯一标识符
     // Unique identifier for the producer
     private final int id;
 
-    public Producer(Lock[] locks, Condition[] conditions, boolean[] bufferProduced, JTextArea outputArea, int bufferSize, int id) {
-        this.locks = locks;
-        this.conditions = conditions;
-        this.bufferProduced = bufferProduced;
-        this.outputArea = outputArea;
-        this.bufferSize = bufferSize;
+    // 存放数据记录的堆外区域，为 null 时只传递位置不携带数据
+    // Off-heap arena holding the records; null to pass positions only, without data
+    private final PayloadArena arena;
+
+    // 本次运行的取消令牌，暂停和停止都通过它
+    // Cancellation token of this run, through which it is paused and stopped
+    private final CancellationToken cancellation;
+
+    // 开环模式下按计划的时间生产，为 null 时是闭环模式：能放就放，放完休眠 thinkMillis
+    // In open-loop mode items are produced on a schedule; null is closed-loop mode: produce as fast as positions allow, then sleep thinkMillis
+    private final OpenLoop openLoop;
+
+    public Producer(BoundedBuffer buffer, PayloadArena arena, OpenLoop openLoop, RunStats stats, CancellationToken cancellation, int batchSize, long thinkMillis, int id) {
+        this.cancellation = cancellation;
+        this.buffer = buffer;
+        this.arena = arena;
+        this.openLoop = openLoop;
+        this.stats = stats;
+        this.batchSize = batchSize;
+        this.thinkMillis = thinkMillis;
         this.id = id;
     }
 
+    // 本生产者已写入的记录数，用于给每条记录打上唯一标记
+    // Records written by this producer, used to stamp each record uniquely
+    private long sequence = 0;
+
+    // 正在生产的数据项的预定时间
+    // Due time of the item being produced
+    private long due;
+
     @Override
     public void run() {
+        // 记录本生产者扫描到的位置和等待次数
+        // Tracks where this producer's scan is and how often it waited
+        BufferCursor cursor = new BufferCursor(EventLog.PRODUCER, id);
+        PayloadArena.View view = arena != null ? arena.newView() : null;
+        if (arena != null || openLoop != null) {
+            cursor.visitor = slot -> {
+                if (view != null) {
+                    write(view.moveTo(slot));
+                }
+                if (openLoop != null) {
+                    openLoop.stamp(slot, due);
+                }
+            };
+        }
         try {
-            // 遍历缓冲区的每个位置，进行生产操作
-            // Iterate over each position in the buffer to perform production
-            for (int i = 0; i < bufferSize; i = (i + 1) % bufferSize) {
-                // 初步检查，减少锁定时间
-                // Preliminary check to reduce lock holding time
-                if (!bufferProduced[i]) {
-                    locks[i].lock(); // 锁定当前缓冲区位置 // Lock the current buffer position
-                    try {
-                        // 如果当前缓冲区位置已生产数据，则等待消费
-                        // Wait for consumption if the current buffer position has already produced data
-                        while (bufferProduced[i]) {
-                            outputArea.append("Producer " + id + " waiting, buffer of position " + i + " is full...\n");
-                            conditions[i].await(); // 等待消费者信号 // Wait for consumer signal
-                        }
-                        // 生产数据
-                        // Produce data
-                        bufferProduced[i] = true;
-                        outputArea.append("Producer " + id + " produced in position " + i + "\n");
-                        conditions[i].signalAll(); // 唤醒消费者 // Wake up consumers
-                    } finally {
-                        locks[i].unlock(); // 解锁当前缓冲区位置 // Unlock the current buffer position
+            if (openLoop != null) {
+                runOpenLoop(cursor);
+                return;
+            }
+            while (cancellation.proceed()) { // 循环直到运行被取消或线程被中断，暂停时在此等待 // Loop until the run is cancelled or the thread is interrupted, waiting here while paused
+                long start = System.nanoTime(); // 本次操作的开始时间 // Start time of the current operation
+                long waits = cursor.waits;
+                int n = 1;
+                if (batchSize > 1) {
+                    n = buffer.putBatch(cursor, batchSize); // 一次加锁生产最多 batchSize 个 // Up to batchSize items per acquisition
+                } else {
+                    if (buffer.put(cursor) == OverloadBuffer.DROPPED) { // 生产数据，缓冲区满时等待 // Produce data, waiting while the buffer is full
+                        n = 0; // 过载策略没有放入这个数据项 // The overload policy kept this item out
                     }
-                    Thread.sleep(700); // 模拟生产后处理时间 // Simulate processing time after production
+                }
+                stats.produced.add(n);
+                stats.producerWaits.add(cursor.waits - waits);
+                stats.produceLatency.record(System.nanoTime() - start);
+                if (thinkMillis > 0) {
+                    Thread.sleep(thinkMillis); // 模拟生产后处理时间 // Simulate processing time after production
                 }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // 恢复中断状态 // Restore interrupt status
         }
     }
+
+    // 开环：每个数据项有预定的发送时间，提前时等到那一刻；落后时立即发送，不跳过也不顺延，因此排队造成的延迟不会被掩盖
+    // Open loop: every item has a due time, and an early producer waits until then; a late one sends at once without skipping or shifting the schedule, so queueing delay is never hidden
+    private void runOpenLoop(BufferCursor cursor) throws InterruptedException {
+        due = openLoop.originNanos;
+        while (cancellation.proceed()) {
+            due = openLoop.next(due);
+            long early;
+            while ((early = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(early);
+                if (!cancellation.proceed()) {
+                    return;
+                }
+            }
+            long start = System.nanoTime();
+            long waits = cursor.waits;
+            if (buffer.put(cursor) != OverloadBuffer.DROPPED) {
+                stats.produced.increment();
+            }
+            stats.producerWaits.add(cursor.waits - waits);
+            stats.produceLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    // 在缓冲区位置上原地写入整条记录，每 8 个字节都写入同一个标记，消费者据此检查是否读到写了一半的记录
+    // Write the whole record in place at the buffer position; every 8 bytes carry the same stamp so consumers can detect a half-written record
+    private void write(PayloadArena.View record) {
+        long stamp = ((long) id << 40) | ++sequence;
+        for (int i = 0; i < record.length(); i += Long.BYTES) {
+            record.putLong(i, stamp);
+        }
+    }
 }
@@ -0,0 +1,100 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.Semaphore;
+
+public class QueueBuffer implements BoundedBuffer {
+    // 队列中存放的数据项，共用一个对象以免装箱
+    // Item stored in the queue; a single shared object avoids boxing
+    private static final Object ITEM = new Object();
+
+    // JDK 提供的阻塞队列
+    // Blocking queue from the JDK
+    private final BlockingQueue<Object> queue;
+
+    // 对无界队列限制容量的许可，有界队列时为 null
+    // Permits bounding an unbounded queue; null for a bounded queue
+    private final Semaphore space;
+
+    private final int bufferSize;
+
+    private QueueBuffer(BlockingQueue<Object> queue, Semaphore space, int bufferSize) {
+        this.queue = queue;
+        this.space = space;
+        this.bufferSize = bufferSize;
+    }
+
+    // 基于 ArrayBlockingQueue 的缓冲区
+    // Buffer backed by an ArrayBlockingQueue
+    public static QueueBuffer arrayBlocking(int bufferSize) {
+        return new QueueBuffer(new ArrayBlockingQueue<>(bufferSize), null, bufferSize);
+    }
+
+    // 基于 LinkedTransferQueue 的缓冲区；该队列无界，用信号量限制到相同容量
+    // Buffer backed by a LinkedTransferQueue; the queue is unbounded, so a semaphore caps it at the same capacity
+    public static QueueBuffer linkedTransfer(int bufferSize) {
+        return new QueueBuffer(new LinkedTransferQueue<>(), new Semaphore(bufferSize), bufferSize);
+    }
+
+    @Override
+    public int put(BufferCursor cursor) throws InterruptedException {
+        if (space != null) {
+            space.acquire();
+        }
+        queue.put(ITEM);
+        return -1; // 队列不暴露位置 // Queues do not expose positions
+    }
+
+    @Override
+    public int take(BufferCursor cursor) throws InterruptedException {
+        queue.take();
+        if (space != null) {
+            space.release();
+        }
+        return -1;
+    }
+
+    // 队列内部各自加锁，批量操作只是在第一个数据项之后不再等待，尽量多放入或取出
+    // The queues lock internally, so a batch only stops waiting after the first item and moves as many more as it can
+    @Override
+    public int putBatch(BufferCursor cursor, int max) throws InterruptedException {
+        put(cursor);
+        int n = 1;
+        while (n < max && (space == null || space.tryAcquire())) {
+            if (!queue.offer(ITEM)) {
+                break; // 有界队列已满 // The bounded queue is full
+            }
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public int takeBatch(BufferCursor cursor, int max) throws InterruptedException {
+        take(cursor);
+        int n = 1;
+        while (n < max && queue.poll() != null) {
+            if (space != null) {
+                space.release();
+            }
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public boolean tryTake(BufferCursor cursor) {
+        if (queue.poll() == null) {
+            return false;
+        }
+        if (space != null) {
+            space.release();
+        }
+        return true;
+    }
+
+    @Override
+    public int capacity() {
+        return bufferSize;
+    }
+}
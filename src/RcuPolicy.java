@@ -0,0 +1,223 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class RcuPolicy implements ReadWritePolicy {
+    // 模拟的共享资源有多少个 long；每个版本的所有字都等于版本号，读者据此检查读到的快照是否完整
+    // Size of the simulated resource in longs; every word of a version equals its number, so readers can check that their snapshot is whole
+    static final int WORDS = 64;
+
+    // 资源的一个不可变版本；发布之后不再修改，直到回收后数组被下一个版本重新使用
+    // One immutable version of the resource; never modified after publishing, until it is reclaimed and its array reused by a later version
+    private static class Version {
+        final long number;
+        final long[] data;
+
+        // 仍持有这个版本的读者数，只在开启回收时计数。用 AtomicLong 而不是 LongAdder：LongAdder 的 sum() 不是原子快照，
+        // 各单元相加的途中读者可能从一个单元登记、从另一个单元离开，写者就会看到假的 0，回收一个仍在被读的数组
+        // Readers still holding this version; only counted when reclamation is on. An AtomicLong rather than a LongAdder: LongAdder's sum() is no atomic snapshot,
+        // and a reader registering in one cell and leaving from another while the cells are added up could show the writer a false zero and get an array reclaimed mid-read
+        final AtomicLong readers = new AtomicLong();
+
+        // 被新版本替换的时间
+        // When a newer version replaced it
+        long retiredAt;
+
+        Version(long number, long[] data) {
+            this.number = number;
+            this.data = data;
+        }
+    }
+
+    // 当前版本，写者用一次原子替换发布新版本
+    // The current version; writers publish a new one with a single atomic swap
+    private final AtomicReference<Version> current;
+
+    // 每个读者正持有的版本
+    // The version each reader is holding
+    private final ThreadLocal<Version> held = new ThreadLocal<>();
+
+    // 正在读的读者数
+    // Readers currently reading
+    private final LongAdder active = new LongAdder();
+
+    // 写者之间互斥的锁，读者从不碰它
+    // Lock making writers mutually exclusive; readers never touch it
+    private final ReentrantLock writerLock = new ReentrantLock();
+
+    // 是否回收旧版本：开启时等到旧版本的读者全部离开（宽限期结束）后重新使用它的数组，关闭时交给垃圾回收
+    // Whether old versions are reclaimed: when on, an old version's array is reused once all its readers have left (the grace period is over); when off, it is left to the garbage collector
+    private final boolean reclaim;
+
+    // 已被替换、等待宽限期结束的版本，按替换顺序排列；只在写锁内访问
+    // Replaced versions waiting for their grace period to end, in the order they were replaced; only touched under the writer lock
+    private final ArrayDeque<Version> retired = new ArrayDeque<>();
+
+    // 读者读完时落后于当前版本的版本数之和、最大值、落后的读数，以及读到不完整快照的次数（应始终为 0）
+    // Sum and maximum of how many versions readers were behind when they finished, how many reads were behind at all, and snapshots read incomplete (always 0 when correct)
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder lagSum = new LongAdder();
+    private final AtomicLong maxLag = new AtomicLong();
+    private final LongAdder staleReads = new LongAdder();
+    private final LongAdder tornReads = new LongAdder();
+
+    // 写者从开始复制到新版本发布的耗时，以及旧版本从被替换到被回收的宽限期
+    // Writer time from starting the copy until the new version is published, and the grace period from a version's replacement to its reclamation
+    private final LatencyHistogram publishLatency = new LatencyHistogram();
+    private final LatencyHistogram gracePeriod = new LatencyHistogram();
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder reclaimed = new LongAdder();
+
+    public RcuPolicy(boolean reclaim) {
+        this.reclaim = reclaim;
+        long[] data = new long[WORDS];
+        Arrays.fill(data, 1);
+        this.current = new AtomicReference<>(new Version(1, data));
+        allocated.increment();
+    }
+
+    // 读者从不等待：取得当前版本的快照就开始读；凭据是版本号
+    // Readers never wait: take a snapshot of the current version and start reading; the token is the version number
+    @Override
+    public long tryAcquireRead() {
+        active.increment();
+        Version version = current.get();
+        if (reclaim) {
+            // 先登记再复查，与写者“先替换再检查读者数”配对：复查通过的版本一定不会在读完之前被回收
+            // Register, then re-check; paired with the writer's "swap, then check the readers", a version that passes the re-check is never reclaimed before the read ends
+            while (true) {
+                version.readers.incrementAndGet();
+                Version again = current.get();
+                if (again == version) {
+                    break;
+                }
+                version.readers.decrementAndGet();
+                version = again;
+            }
+        }
+        held.set(version);
+        return version.number;
+    }
+
+    @Override
+    public long acquireRead() {
+        return tryAcquireRead();
+    }
+
+    // 读完时检查快照，并记下这段时间里发布了多少个新版本
+    // On finishing, check the snapshot and note how many versions were published meanwhile
+    @Override
+    public boolean releaseRead(long token) {
+        Version version = held.get();
+        held.remove();
+        for (long word : version.data) {
+            if (word != version.number) {
+                tornReads.increment();
+                break;
+            }
+        }
+        long lag = current.get().number - version.number;
+        reads.increment();
+        if (lag > 0) {
+            staleReads.increment();
+            lagSum.add(lag);
+            maxLag.accumulateAndGet(lag, Math::max);
+        }
+        if (reclaim) {
+            version.readers.decrementAndGet();
+        }
+        active.decrement();
+        return true;
+    }
+
+    @Override
+    public boolean tryAcquireWrite() {
+        return writerLock.tryLock();
+    }
+
+    @Override
+    public void acquireWrite() throws InterruptedException {
+        writerLock.lockInterruptibly();
+    }
+
+    // 写完时复制当前版本、修改副本，再用一次原子替换发布；读者看到的要么是旧版本，要么是完整的新版本
+    // On finishing a write, copy the current version, change the copy and publish it with one atomic swap; readers see either the old version or the whole new one
+    @Override
+    public void releaseWrite() {
+        long startAt = System.nanoTime();
+        try {
+            Version old = current.get();
+            long[] data = reclaim ? recycle() : null;
+            if (data == null) {
+                data = new long[WORDS];
+                allocated.increment();
+            }
+            for (int i = 0; i < WORDS; i++) {
+                data[i] = old.data[i] + 1;
+            }
+            current.set(new Version(old.number + 1, data));
+            if (reclaim) {
+                old.retiredAt = System.nanoTime();
+                retired.add(old);
+            }
+            publishLatency.record(System.nanoTime() - startAt);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    // 取出最早被替换、且读者已全部离开的版本的数组；宽限期还没结束时返回 null，写者不等待
+    // Take the array of the earliest replaced version whose readers have all left; returns null while its grace period is still running, and the writer never waits
+    private long[] recycle() {
+        Version oldest = retired.peek();
+        if (oldest == null || oldest.readers.get() != 0) {
+            return null;
+        }
+        retired.poll();
+        reclaimed.increment();
+        gracePeriod.record(System.nanoTime() - oldest.retiredAt);
+        return oldest.data;
+    }
+
+    @Override
+    public int readerCount() {
+        return (int) active.sum();
+    }
+
+    // 写者从不挡住读者，因此对读者来说资源从来没有被写锁定
+    // Writers never hold readers back, so to a reader the resource is never write-locked
+    @Override
+    public boolean isWriteLocked() {
+        return false;
+    }
+
+    public long tornReads() {
+        return tornReads.sum();
+    }
+
+    // 已发布的版本数、发布耗时、版本落后情况，以及开启回收时的回收情况
+    // Versions published, publish latency, version lag and, with reclamation on, how reclamation went
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        long total = Math.max(1, reads.sum());
+        long stale = staleReads.sum();
+        out.append(String.format("versions:           %d published%n", current.get().number - 1));
+        out.append("publish:            ").append(publishLatency.summary()).append(System.lineSeparator());
+        out.append(String.format("version lag:        %.1f%% of reads stale, mean %.2f, max %d versions behind, %d torn snapshots%n",
+                100.0 * stale / total, (double) lagSum.sum() / total, maxLag.get(), tornReads.sum()));
+        if (reclaim) {
+            writerLock.lock();
+            try {
+                out.append(String.format("reclamation:        %d reclaimed, %d allocated, %d waiting for readers%n",
+                        reclaimed.sum(), allocated.sum(), retired.size()));
+            } finally {
+                writerLock.unlock();
+            }
+            out.append("grace period:       ").append(gracePeriod.summary()).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,39 @@
+public interface ReadWritePolicy {
+    // 尝试开始读，不阻塞；成功时返回非 0 的凭据，资源不可读时返回 0
+    // Try to start a read without blocking; returns a non-zero token on success, 0 when the resource is not readable
+    long tryAcquireRead();
+
+    // 开始读，必要时阻塞等待；返回非 0 的凭据
+    // Start a read, blocking if necessary; returns a non-zero token
+    long acquireRead() throws InterruptedException;
+
+    // 以加锁（非乐观）方式开始读，乐观读校验失败后用它重试
+    // Start a read with a real lock rather than optimistically; used to retry after an optimistic read failed validation
+    default long acquireReadPessimistic() throws InterruptedException {
+        return acquireRead();
+    }
+
+    // 结束读；返回 false 表示乐观读期间有写者写入，读到的数据无效需要重读
+    // Finish a read; false means a writer wrote during an optimistic read, so the data is invalid and must be re-read
+    boolean releaseRead(long token);
+
+    // 尝试开始写，不阻塞
+    // Try to start a write without blocking
+    boolean tryAcquireWrite();
+
+    // 开始写，必要时阻塞等待
+    // Start a write, blocking if necessary
+    void acquireWrite() throws InterruptedException;
+
+    // 结束写
+    // Finish a write
+    void releaseWrite();
+
+    // 当前正在读的读者数
+    // Number of readers currently reading
+    int readerCount();
+
+    // 是否有写者正在写
+    // Whether a writer is currently writing
+    boolean isWriteLocked();
+}
@@ -1,93 +1,195 @@
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import javax.swing.JTextArea;
-import javax.swing.SwingUtilities;
 
 public class Reader implements Runnable {
-    // 读写锁，用于读者进程的锁定和解锁
-    // Read-write lock used for locking and unlocking reader processes
-    private final ReentrantReadWriteLock lock;
+    // 读写锁策略，用于读者进程的锁定和解锁
+    // Read-write lock policy used for locking and unlocking reader processes
+    private final ReadWritePolicy lock;
 
     // 写优先锁，用于在有写者等待时优先处理
     // Write-priority lock used to prioritize writers when they are waiting
     private final ReentrantReadWriteLock writePriorityLock;
 
-    // 用于显示输出的文本区域
-    // Text area used to display output
-    private final JTextArea outputArea;
+    // 用于记录模拟过程的事件日志
+    // Event log recording the simulation
+    private final EventLog log;
+
+    // 运行统计
+    // Run statistics
+    private final ReaderWriterStats stats;
+
+    // 竞争统计探针
+    // Contention metrics probe
+    private final SyncProbe probe;
+
+    // 资源忙时轮询还是阻塞等待
+    // Whether to poll or block while the resource is busy
+    private final AcquireMode acquire;
+
+    // 每次读操作持有锁的时间分布
+    // Distribution of how long each read holds the lock
+    private final TimeDistribution holdTime;
+
+    // 两次操作之间的间隔分布，决定到达率
+    // Distribution of the gap between two operations, which sets the arrival rate
+    private final TimeDistribution gap;
 
     // 读者的唯一标识符
     // Unique identifier for the reader
-    private final Integer id;
+    private final int id;
 
-    public Reader(ReentrantReadWriteLock lock, ReentrantReadWriteLock writePriorityLock, JTextArea outputArea, Integer id) {
+    // 本次运行的取消令牌，暂停和停止都通过它
+    // Cancellation token of this run, through which it is paused and stopped
+    private final CancellationToken cancellation;
+
+    public Reader(ReadWritePolicy lock, ReentrantReadWriteLock writePriorityLock, EventLog log, ReaderWriterStats stats, SyncProbe probe, CancellationToken cancellation, AcquireMode acquire, TimeDistribution holdTime, TimeDistribution gap, int id) {
+        this.cancellation = cancellation;
+        this.acquire = acquire;
         this.lock = lock;
         this.writePriorityLock = writePriorityLock;
-        this.outputArea = outputArea;
+        this.log = log;
+        this.stats = stats;
+        this.probe = probe;
+        this.holdTime = holdTime;
+        this.gap = gap;
         this.id = id;
     }
 
     @Override
     public void run() {
-        while (!Thread.currentThread().isInterrupted()) { // 循环直到线程被中断 // Loop until the thread is interrupted
+        if (acquire == AcquireMode.BLOCKING) {
+            runBlocking();
+            return;
+        }
+        long wantedAt = System.nanoTime(); // 开始想要读的时间 // When this reader started wanting to read
+        while (cancellation.proceed()) { // 循环直到运行被取消或线程被中断，暂停时在此等待 // Loop until the run is cancelled or the thread is interrupted, waiting here while paused
             if (!lock.isWriteLocked()) { // 如果写锁未被上锁 // If the write lock is not locked
                 // 如果写优先锁未被上锁
                 // If the write-priority lock is not locked
                 if (!writePriorityLock.isWriteLocked()) {
+                    // 读者之间不再互相串行，多个读者可以同时持有读锁
+                    // Readers no longer serialize each other, several readers can hold the read lock at once
+                    long token = lock.tryAcquireRead();
+                    if (token == 0) {
+                        // 检查之后写者抢先拿到了锁
+                        // A writer took the lock right after the check
+                        waitForWriter();
+                        continue;
+                    }
                     try {
-                        // 有序加锁
-                        // Synchronized locking
-                        synchronized (Reader.class) {
-                            if (lock.getReadLockCount() == 0) {
-                                SwingUtilities.invokeLater(() -> outputArea.append("Reader process: Reader process " + id + " locks the resource.\n"));
-                            }
-                            lock.readLock().lock(); // 加锁读锁 // Lock the read lock
-                            SwingUtilities.invokeLater(() -> outputArea.append("Reader process: Reader process " + id + " is reading...\n"));
-                            SwingUtilities.invokeLater(() -> outputArea.append("Currently " + lock.getReadLockCount() + " readers are accessing the resource.\n"));
-
-                            Thread.sleep(200); // 模拟读取操作 // Simulate reading operation
+                        if (!read(token, wantedAt)) {
+                            // 乐观读期间有写者写入，加读锁重读一次
+                            // A writer wrote during the optimistic read, read once more under a read lock
+                            log.publish(EventLog.READER, id, 0, EventLog.READ_RETRY);
+                            read(lock.acquireReadPessimistic(), wantedAt);
                         }
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt(); // 恢复中断状态 // Restore interrupt status
-                    } finally {
-                        // 有序解锁
-                        // Synchronized unlocking
-                        synchronized (Reader.class) {
-                            SwingUtilities.invokeLater(() -> outputArea.append("Reader process: Reader process " + id + " finished reading.\n"));
-                            lock.readLock().unlock(); // 解锁读锁 // Unlock the read lock
-                            if (lock.getReadLockCount() <= 0) {
-                                SwingUtilities.invokeLater(() -> outputArea.append("Reader process: Reader process " + id + " unlocks the resource.\n"));
-                            }
-                        }
-
-                        // 进程运行完，延迟片刻后继续循环
-                        // After the process runs, delay for a moment before continuing the loop
-                        try {
-                            Thread.sleep(200);
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                        }
                     }
-                } else {
-                    // 如果写优先锁被激活，读者进程等待
-                    // If the write-priority lock is active, reader process waits
-                    SwingUtilities.invokeLater(() -> outputArea.append("Reader process: Reader process " + id + " waiting, write priority lock is active...\n"));
+
+                    // 进程运行完，延迟片刻后继续循环
+                    // After the process runs, delay for a moment before continuing the loop
                     try {
-                        Thread.sleep(200);
+                        gap.sleep();
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                     }
+                    wantedAt = System.nanoTime();
+                } else {
+                    // 如果写优先锁被激活，读者进程等待
+                    // If the write-priority lock is active, reader process waits
+                    log.publish(EventLog.READER, id, 0, EventLog.READ_WAIT_PRIORITY);
+                    pause();
                 }
 
             } else {
                 // 如果写锁被激活，读者进程等待
                 // If the write lock is active, reader process waits
-                SwingUtilities.invokeLater(() -> outputArea.append("Reader process: Reader process " + id + " waiting, write lock is active...\n"));
-                try {
-                    Thread.sleep(200);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                waitForWriter();
+            }
+        }
+    }
+
+    // 阻塞方式：拿不到读锁时挂起，由写者释放时直接唤醒，不再轮询
+    // Blocking mode: park when the read lock is unavailable and be woken directly by the releasing writer, no polling
+    private void runBlocking() {
+        try {
+            while (cancellation.proceed()) {
+                long wantedAt = System.nanoTime();
+                long token = lock.tryAcquireRead();
+                if (token == 0) {
+                    log.publish(EventLog.READER, id, 0, EventLog.READ_WAIT_WRITE); // 每次等待只记一行 // One line per wait, not per poll
+                    token = lock.acquireRead();
+                    long queued = System.nanoTime() - wantedAt;
+                    stats.readQueue.record(queued); // 排队时间 // Time spent queued
+                    if (probe.enabled()) {
+                        probe.waited(EventLog.READER, id, 0, queued);
+                    }
                 }
+                if (!read(token, wantedAt)) {
+                    log.publish(EventLog.READER, id, 0, EventLog.READ_RETRY);
+                    read(lock.acquireReadPessimistic(), wantedAt);
+                }
+                gap.sleep();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // 恢复中断状态 // Restore interrupt status
+        }
+    }
+
+    // 持有读锁完成一次读取并解锁；返回 false 表示乐观读失效，本次读取不计数
+    // Perform one read while holding the read lock, then unlock; false means the optimistic read was invalidated and is not counted
+    private boolean read(long token, long wantedAt) throws InterruptedException {
+        boolean valid = false;
+        long heldAt = System.nanoTime();
+        if (probe.enabled()) {
+            probe.acquired(EventLog.READER, id, 0, heldAt - wantedAt);
+        }
+        try {
+            int readers = lock.readerCount();
+            if (readers == 1) {
+                log.publish(EventLog.READER, id, 0, EventLog.READ_LOCK); // 第一个读者锁定资源 // The first reader locks the resource
             }
+            stats.readWait.record(heldAt - wantedAt);
+            stats.sampleConcurrency(readers);
+            log.publish(EventLog.READER, id, readers, EventLog.READING);
+
+            holdTime.sleep(); // 模拟读取操作 // Simulate reading operation
+        } finally {
+            log.publish(EventLog.READER, id, 0, EventLog.READ_DONE);
+            // 先记录再释放，与写者相同
+            // Record before releasing, as the writer does
+            if (probe.enabled()) {
+                probe.released(EventLog.READER, id, 0, System.nanoTime() - heldAt);
+            }
+            valid = lock.releaseRead(token); // 解锁读锁 // Unlock the read lock
+            if (lock.readerCount() <= 0) {
+                log.publish(EventLog.READER, id, 0, EventLog.READ_UNLOCK); // 最后一个读者解锁资源 // The last reader unlocks the resource
+            }
+        }
+        if (valid) {
+            stats.reads.increment();
+        }
+        return valid;
+    }
+
+    // 写锁被激活时等待片刻
+    // Wait a moment while the write lock is active
+    private void waitForWriter() {
+        log.publish(EventLog.READER, id, 0, EventLog.READ_WAIT_WRITE);
+        pause();
+    }
+
+    // 轮询方式下休眠 200 毫秒后再检查，休眠时间记为等待时间
+    // In polling mode sleep 200 ms before checking again; the sleep counts as waiting time
+    private void pause() {
+        long waitAt = System.nanoTime();
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (probe.enabled()) {
+            probe.waited(EventLog.READER, id, 0, System.nanoTime() - waitAt);
         }
     }
 }
@@ -0,0 +1,55 @@
+import java.util.concurrent.atomic.LongAdder;
+
+public class ReaderWriterStats {
+    // 完成的读操作和写操作数
+    // Number of completed reads and writes
+    final LongAdder reads = new LongAdder();
+    final LongAdder writes = new LongAdder();
+
+    // 读者、写者从想要访问到拿到锁的等待时间；写者的等待时间即饥饿时间
+    // Time readers and writers wait from wanting access to holding the lock; a writer's wait is its starvation time
+    final LatencyHistogram readWait = new LatencyHistogram();
+    final LatencyHistogram writeWait = new LatencyHistogram();
+
+    // 阻塞方式下，没能立即拿到锁的读者、写者挂起排队的时间
+    // In blocking mode, how long readers and writers that could not take the lock at once were parked in the queue
+    final LatencyHistogram readQueue = new LatencyHistogram();
+    final LatencyHistogram writeQueue = new LatencyHistogram();
+
+    // 每次开始读时同时在读的读者数之和与采样次数，用于计算平均并发度
+    // Sum of concurrent readers sampled at each read start and the number of samples, for the average concurrency
+    final LongAdder readerConcurrencySum = new LongAdder();
+    final LongAdder readerConcurrencySamples = new LongAdder();
+
+    // 记录一次开始读时的读者并发数
+    // Record the reader concurrency seen when a read starts
+    void sampleConcurrency(int readers) {
+        readerConcurrencySum.add(readers);
+        readerConcurrencySamples.increment();
+    }
+
+    public double averageReaderConcurrency() {
+        long samples = readerConcurrencySamples.sum();
+        return samples == 0 ? 0 : (double) readerConcurrencySum.sum() / samples;
+    }
+
+    // 生成运行结果报告
+    // Build the report of a finished run
+    public String report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("elapsed:            %.3f s%n", seconds));
+        out.append(String.format("reads:              %d (%.1f reads/s)%n", reads.sum(), reads.sum() / seconds));
+        out.append(String.format("writes:             %d (%.1f writes/s)%n", writes.sum(), writes.sum() / seconds));
+        out.append(String.format("reader concurrency: %.2f average readers per read%n", averageReaderConcurrency()));
+        out.append(String.format("writer starvation:  max %.1f ms, total %.1f ms%n",
+                writeWait.max() / 1e6, writeWait.mean() * writeWait.count() / 1e6));
+        out.append("read wait:          ").append(readWait.summary()).append(System.lineSeparator());
+        out.append("write wait:         ").append(writeWait.summary()).append(System.lineSeparator());
+        if (readQueue.count() > 0 || writeQueue.count() > 0) {
+            out.append("read queued:        ").append(readQueue.summary()).append(System.lineSeparator());
+            out.append("write queued:       ").append(writeQueue.summary()).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,317 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class ReaderWriterWorkload {
+    // 读者、写者数量；默认与原来的模拟相同：5 个读者、2 个写者
+    // Number of readers and writers; the defaults match the original simulation: 5 readers, 2 writers
+    int readers = 5;
+    int writers = 2;
+
+    // 命令行可以给出多个策略和读者数，依次运行每种组合并比较
+    // Several policies and reader counts may be given on the command line; every combination is run in turn and compared
+    LockPolicy[] policies = {LockPolicy.FAIR};
+    int[] readerCounts = {5};
+
+    // 读、写持有锁的时间分布和两次操作之间的间隔分布（毫秒）
+    // Lock hold time distributions for reads and writes, and gap distributions between operations (ms)
+    TimeDistribution readHold = TimeDistribution.fixed(200);
+    TimeDistribution writeHold = TimeDistribution.fixed(200);
+    TimeDistribution readerGap = TimeDistribution.fixed(200);
+    TimeDistribution writerGap = TimeDistribution.fixed(1800);
+
+    // 读写锁策略；默认是原来模拟使用的公平读写锁
+    // Read-write lock policy; defaults to the fair read-write lock the original simulation used
+    LockPolicy policy = LockPolicy.FAIR;
+
+    // 资源忙时轮询（原有方式）还是阻塞等待
+    // Whether processes poll (the original scheme) or block while the resource is busy
+    AcquireMode acquire = AcquireMode.POLLING;
+
+    // 无界面运行时的秒数和线程类型
+    // Seconds and thread kind for headless runs
+    double seconds = 10;
+    ExecutionMode mode = ExecutionMode.PLATFORM;
+    boolean metrics = false;
+
+    // 轨迹文件和大小上限（MB），为 null 时不录制
+    // Trace file and its size limit (MB); null records nothing
+    Path trace = null;
+    long traceMb = TraceRecorder.DEFAULT_MAX_MB;
+
+    // 进程调度策略，为 null 时不经调度器；可以给出多个，与策略和读者数组合运行
+    // Process scheduling policy; null bypasses the scheduler. Several may be given and are combined with the policies and reader counts
+    SchedulingPolicy scheduling = null;
+    SchedulingPolicy[] schedulings = {null};
+
+    // 调度器模拟的处理器个数、按进程编号循环取用的权重，以及各组绑定的核心
+    // Processors the scheduler simulates, weights handed out by process id in turn, and the cores each group is pinned to
+    int cpus = Runtime.getRuntime().availableProcessors();
+    int[] weights = {1, 2, 3, 4};
+    Map<String, String> pins = Map.of();
+
+    // 解析命令行参数，例如 --readers 200 --writers 4 --read-hold exp:20 --writer-gap rate:2
+    // Parse command line arguments, e.g. --readers 200 --writers 4 --read-hold exp:20 --writer-gap rate:2
+    static ReaderWriterWorkload parse(String[] args) {
+        ReaderWriterWorkload workload = new ReaderWriterWorkload();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + name);
+            }
+            String value = args[++i];
+            switch (name) {
+                case "--readers" -> {
+                    String[] parts = value.split(",");
+                    workload.readerCounts = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        workload.readerCounts[j] = Integer.parseInt(parts[j].trim());
+                    }
+                    workload.readers = workload.readerCounts[0];
+                }
+                case "--writers" -> workload.writers = Integer.parseInt(value);
+                case "--read-hold" -> workload.readHold = TimeDistribution.parse(value);
+                case "--write-hold" -> workload.writeHold = TimeDistribution.parse(value);
+                case "--reader-gap" -> workload.readerGap = TimeDistribution.parse(value);
+                case "--writer-gap" -> workload.writerGap = TimeDistribution.parse(value);
+                case "--policy" -> {
+                    String[] parts = value.split(",");
+                    workload.policies = new LockPolicy[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        workload.policies[j] = LockPolicy.of(parts[j].trim());
+                    }
+                    workload.policy = workload.policies[0];
+                }
+                case "--acquire" -> workload.acquire = AcquireMode.of(value);
+                case "--seconds" -> workload.seconds = Double.parseDouble(value);
+                case "--threads" -> workload.mode = ExecutionMode.of(value);
+                case "--trace" -> workload.trace = Path.of(value);
+                case "--trace-mb" -> workload.traceMb = Long.parseLong(value);
+                case "--scheduler" -> {
+                    workload.schedulings = Arrays.stream(value.split(",")).map(SchedulingPolicy::parse).toArray(SchedulingPolicy[]::new);
+                    workload.scheduling = workload.schedulings[0];
+                }
+                case "--cpus" -> workload.cpus = Integer.parseInt(value);
+                case "--weights" -> workload.weights = ProcessScheduler.parseWeights(value);
+                case "--pin" -> workload.pins = ProcessScheduler.parsePins(value);
+                case "--metrics" -> workload.metrics = switch (value) {
+                    case "on" -> true;
+                    case "off" -> false;
+                    default -> throw new IllegalArgumentException("--metrics takes on or off");
+                };
+                default -> throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+        for (int count : workload.readerCounts) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Reader counts must not be negative");
+            }
+        }
+        if (workload.trace != null && workload.policies.length * workload.readerCounts.length * workload.schedulings.length > 1) {
+            throw new IllegalArgumentException("--trace needs a single policy, reader count and scheduler");
+        }
+        // 调度器在自己的平台线程上运行进程
+        // The scheduler runs processes on its own platform threads
+        if (workload.scheduling != null && (workload.mode != ExecutionMode.PLATFORM || workload.cpus < 1)) {
+            throw new IllegalArgumentException("--scheduler needs platform threads and a positive --cpus");
+        }
+        workload.validate();
+        return workload;
+    }
+
+    void validate() {
+        if (readers < 0 || writers < 0 || readers + writers == 0 || seconds <= 0) {
+            throw new IllegalArgumentException("Need at least one reader or writer and a positive number of seconds");
+        }
+        if (traceMb < 1) {
+            throw new IllegalArgumentException("--trace-mb must be positive");
+        }
+        // RCU 的读者从不等待，轮询没有意义；写者之间用阻塞的互斥锁
+        // RCU readers never wait, so polling makes no sense; writers exclude each other with a blocking lock
+        if (policy == LockPolicy.RCU || policy == LockPolicy.RCU_REFCOUNT) {
+            acquire = AcquireMode.BLOCKING;
+        }
+    }
+
+    // 启动所有读者、写者进程；所选策略的读写锁和写优先锁由本次运行的进程共享，scheduler 不为 null 时进程经它调度。返回所用的读写锁
+    // Start every reader and writer process; the chosen policy's read-write lock and the write-priority lock are shared by this run's processes, which go through scheduler when it is not null. Returns the lock used
+    ReadWritePolicy start(Executor executor, CancellationToken cancellation, EventLog log, ReaderWriterStats stats, SyncProbe probe, ProcessScheduler scheduler) throws InterruptedException {
+        ReadWritePolicy lock = policy.create();
+        ReentrantReadWriteLock writePriorityLock = new ReentrantReadWriteLock(true);
+
+        List<Runnable> processes = new ArrayList<>();
+        for (int i = 1; i <= writers; i++) {
+            processes.add(new Writer(lock, writePriorityLock, log, stats, probe, cancellation, acquire, writeHold, writerGap, i));
+        }
+        for (int i = 1; i <= readers; i++) {
+            processes.add(new Reader(lock, writePriorityLock, log, stats, probe, cancellation, acquire, readHold, readerGap, i));
+        }
+
+        for (int i = 0; i < processes.size(); i++) {
+            Runnable process = processes.get(i);
+            if (scheduler != null) {
+                process = i < writers ? scheduler.wrap("writer", i + 1, process) : scheduler.wrap("reader", i - writers + 1, process);
+            }
+            executor.execute(process);
+            if (i == 0 && writers > 0) {
+                // 因为使用线程模拟并不能完全还原系统中进程同步的情况，需要延缓短暂时间避免缓冲区第一次同一时刻被多个进程抢占，以出现显示错误
+                // Since using threads to simulate cannot fully restore the synchronization of processes in the system, it is necessary to delay for a short period of time to avoid the buffer being occupied by multiple processes at the same time for the first time, resulting in display errors
+                Thread.sleep(50);
+            }
+        }
+        return lock;
+    }
+
+    @Override
+    public String toString() {
+        return "policy=" + policy + " acquire=" + acquire + " readers=" + readers + " writers=" + writers + " read-hold=" + readHold + " write-hold=" + writeHold
+                + " reader-gap=" + readerGap + " writer-gap=" + writerGap + " seconds=" + seconds + " threads=" + mode + " metrics=" + (metrics ? "on" : "off") + (trace != null ? " trace=" + trace : "")
+                + (scheduling != null ? " scheduler=" + scheduling + (scheduling != SchedulingPolicy.OS ? " cpus=" + cpus : "") : "");
+    }
+
+    // 一次运行的结果
+    // Result of one run
+    static class Result {
+        final ReaderWriterWorkload workload;
+        final LockPolicy policy;
+        final int readers;
+        final ReaderWriterStats stats;
+        final long elapsedNanos;
+
+        // 竞争统计，未开启时为 null
+        // Contention metrics; null when not enabled
+        final ContentionMetrics metrics;
+
+        // 轨迹录制器，未录制时为 null
+        // Trace recorder; null when nothing was recorded
+        final TraceRecorder trace;
+
+        // RCU 策略，用于报告版本落后和发布耗时；其他策略时为 null
+        // The RCU policy, for reporting version lag and publish latency; null for the other policies
+        final RcuPolicy rcu;
+
+        // 进程调度器，用于报告公平指数和上下文切换次数；不经调度器时为 null
+        // The process scheduler, for reporting fairness and context switches; null when no scheduler was used
+        final ProcessScheduler scheduler;
+        final SchedulingPolicy scheduling;
+
+        Result(ReaderWriterWorkload workload, ReaderWriterStats stats, long elapsedNanos, ContentionMetrics metrics, TraceRecorder trace, RcuPolicy rcu,
+               ProcessScheduler scheduler) {
+            this.workload = workload;
+            this.policy = workload.policy;
+            this.readers = workload.readers;
+            this.scheduling = workload.scheduling;
+            this.scheduler = scheduler;
+            this.stats = stats;
+            this.elapsedNanos = elapsedNanos;
+            this.metrics = metrics;
+            this.trace = trace;
+            this.rcu = rcu;
+        }
+
+        double readsPerSecond() {
+            return stats.reads.sum() / (elapsedNanos / 1e9);
+        }
+
+        double writesPerSecond() {
+            return stats.writes.sum() / (elapsedNanos / 1e9);
+        }
+    }
+
+    // 不使用界面运行读者-写者模拟，结束后返回统计结果
+    // Run the reader-writer simulation without any UI and return the statistics when done
+    static Result run(ReaderWriterWorkload workload) throws InterruptedException, IOException {
+        ReaderWriterStats stats = new ReaderWriterStats();
+        ContentionMetrics metrics = workload.metrics ? new ContentionMetrics(1) : null; // 只有一个共享资源 // A single shared resource
+        TraceRecorder trace = workload.trace != null
+                ? new TraceRecorder(workload.trace, workload.traceMb << 20, TraceRecorder.READER_WRITER, workload.policy.ordinal(), 1, 0)
+                : null;
+        SyncProbe probe = SyncProbe.combine(metrics != null ? metrics : SyncProbe.NONE, trace != null ? trace : SyncProbe.NONE);
+        CancellationToken cancellation = new CancellationToken();
+        ProcessScheduler scheduler = workload.scheduling != null ? new ProcessScheduler(workload.scheduling, workload.cpus, workload.weights, workload.pins) : null;
+        if (scheduler != null) {
+            cancellation.schedule(scheduler);
+        }
+        long start = System.nanoTime();
+        long elapsed;
+        ReadWritePolicy lock;
+        try (ExecutorService executor = workload.mode.newExecutor("reader-writer-")) {
+            try {
+                lock = workload.start(executor, cancellation, EventLog.DISABLED, stats, probe, scheduler);
+                Thread.sleep((long) (workload.seconds * 1000)); // 运行指定时间 // Run for the specified time
+            } finally {
+                cancellation.cancel();
+                executor.shutdownNow(); // 中断所有进程 // Interrupt every process
+            }
+            elapsed = System.nanoTime() - start;
+        }
+        if (trace != null) {
+            trace.close();
+        }
+        return new Result(workload, stats, elapsed, metrics, trace, lock instanceof RcuPolicy rcu ? rcu : null, scheduler);
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        ReaderWriterWorkload workload;
+        try {
+            workload = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: rw [--policy P[,P...]] [--acquire polling|blocking] [--readers N[,N...]] [--writers M] [--read-hold D] [--write-hold D] [--reader-gap D] [--writer-gap D]"
+                    + " [--seconds S] [--threads platform|virtual] [--metrics on|off] [--trace FILE] [--trace-mb N]"
+                    + " [--scheduler os|fifo|rr:MS|priority:MS|lottery:MS[,...]] [--cpus N] [--weights W1,W2,...] [--pin GROUP=CORES;...]");
+            System.err.println("  P is a lock policy: reader-preference, writer-preference, fair, stamped, striped, rcu or rcu-refcount");
+            System.err.println("  D is a time distribution in ms: 200, uniform:50-300, exp:200 or rate:5 (Poisson arrivals per second)");
+            System.exit(2);
+            return;
+        }
+        // 依次运行每种策略、读者数和调度策略，最后列表比较
+        // Run each policy, reader count and scheduling policy in turn, then compare them in a table
+        AcquireMode acquire = workload.acquire;
+        List<Result> results = new ArrayList<>();
+        for (LockPolicy policy : workload.policies) {
+            for (int readers : workload.readerCounts) {
+                for (SchedulingPolicy scheduling : workload.schedulings) {
+                    workload.policy = policy;
+                    workload.readers = readers;
+                    workload.scheduling = scheduling;
+                    workload.acquire = acquire;
+                    workload.validate();
+                    System.out.println("Reader-Writer headless run: " + workload);
+                    Result result = run(workload);
+                    results.add(result);
+                    System.out.print(result.stats.report(result.elapsedNanos));
+                    if (result.rcu != null) {
+                        System.out.print(result.rcu.summary());
+                    }
+                    if (result.scheduler != null) {
+                        System.out.print(result.scheduler.summary());
+                    }
+                    if (result.metrics != null) {
+                        System.out.print(result.metrics.report(1));
+                    }
+                    if (result.trace != null) {
+                        System.out.print(result.trace.summary());
+                    }
+                }
+            }
+        }
+        if (results.size() > 1) {
+            boolean scheduled = workload.scheduling != null;
+            System.out.println("policy comparison:");
+            System.out.printf("  %-18s %8s %12s %10s %14s %14s%s%n", "policy", "readers", "reads/s", "writes/s", "read wait p99", "write wait p99",
+                    scheduled ? String.format(" %-14s %9s %10s", "scheduler", "fairness", "switches") : "");
+            for (Result result : results) {
+                System.out.printf("  %-18s %8d %12.1f %10.1f %11.1f ms %11.1f ms%s%n", result.policy, result.readers, result.readsPerSecond(),
+                        result.writesPerSecond(), result.stats.readWait.percentile(99) / 1e6, result.stats.writeWait.percentile(99) / 1e6,
+                        scheduled ? String.format(" %-14s %9.3f %10d", result.scheduling, result.scheduler.fairness(), result.scheduler.switches()) : "");
+            }
+        }
+    }
+}
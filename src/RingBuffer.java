@@ -0,0 +1,303 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntSupplier;
+
+public class RingBuffer implements BoundedBuffer {
+    // 容量和下标掩码；容量不是 2 的幂时（只有分片）掩码为 -1，下标改用取余
+    // Capacity and index mask; when the capacity is not a power of two (shards only) the mask is -1 and indexes use the remainder
+    private final int capacity;
+    private final int mask;
+
+    // 对外报告的位置都加上这个偏移；分片缓冲区中各个子环形缓冲区以此共用一套全局位置编号
+    // Added to every position reported outside; the sub-rings of a sharded buffer use it to share one global numbering
+    private final int offset;
+
+    // 每个位置的序号：等于写入位置时可生产，等于写入位置 + 1 时可消费（Vyukov 有界 MPMC 队列）
+    // Per-position sequence: equal to the write cursor means producible, cursor + 1 means consumable (Vyukov's bounded MPMC queue)
+    private final AtomicLongArray sequences;
+
+    // 写入和读取游标，各自填充到独立的缓存行
+    // Write and read cursors, each padded onto its own cache line
+    private final AtomicLong tail = new PaddedAtomicLong();
+    private final AtomicLong head = new PaddedAtomicLong();
+
+    // 用于记录模拟过程的事件日志
+    // Event log recording the simulation
+    private final EventLog log;
+
+    // 竞争统计探针；快速路径无锁，只统计 CAS 抢位置的时间和挂起等待的时间
+    // Contention metrics probe; the fast path is lock-free, so only the CAS claim time and parked time are measured
+    private final SyncProbe probe;
+
+    // 缓冲区满或空时，挂起之前如何等待
+    // How to wait before parking when the buffer is full or empty
+    private final WaitStrategy wait;
+
+    // 只在缓冲区满或空时使用的等待者；快速路径完全无锁。分片没有，由分片缓冲区统一等待
+    // Waiters used only when the buffer is full or empty; the fast path takes no lock at all. Shards have none, since the sharded buffer waits for all of them
+    private final BufferWaiters waiters;
+
+    // 容量向上取整到 2 的幂，下标只需一次按位与
+    // The capacity rounds up to a power of two, so an index takes a single AND
+    public RingBuffer(int bufferSize, WaitStrategy wait, EventLog log, SyncProbe probe) {
+        this(capacityFor(bufferSize), 0, wait, new BufferWaiters(), log, probe);
+    }
+
+    // 分片使用的精确容量，至少为 2，分片缓冲区的总容量因此不会超过设定的大小；
+    // 分片只用 offer、poll 和它们的批量版本，从不等待，因此不分配等待状态
+    // The exact capacity used by shards, at least 2, so a sharded buffer's total never exceeds the configured size;
+    // shards only use offer, poll and their batch forms and never wait, so they allocate no wait state
+    RingBuffer(int capacity, int offset, EventLog log, SyncProbe probe) {
+        this(capacity, offset, WaitStrategy.BLOCKING, null, log, probe);
+    }
+
+    private RingBuffer(int capacity, int offset, WaitStrategy wait, BufferWaiters waiters, EventLog log, SyncProbe probe) {
+        this.capacity = capacity;
+        this.mask = Integer.bitCount(capacity) == 1 ? capacity - 1 : -1;
+        this.offset = offset;
+        this.log = log;
+        this.probe = probe;
+        this.wait = wait;
+        this.waiters = waiters;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // 给定大小实际分配的位置数；序号算法至少需要 2 个位置才能区分满和空
+    // Number of positions actually allocated for a given size; the sequence scheme needs at least 2 positions to tell full from empty
+    static int capacityFor(int bufferSize) {
+        return bufferSize <= 2 ? 2 : Integer.highestOneBit(bufferSize - 1) << 1;
+    }
+
+    // 游标对应的下标；掩码的分支每个缓冲区固定不变，预测总是命中
+    // Index of a cursor value; the mask branch never changes for a given buffer, so it is always predicted
+    private int index(long pos) {
+        return (int) (mask >= 0 ? pos & mask : pos % capacity);
+    }
+
+    // 尝试生产，缓冲区满时返回 -1
+    // Try to produce; returns -1 when the buffer is full
+    public int offer(BufferCursor cursor) {
+        long pos = tail.get();
+        while (true) {
+            int index = index(pos);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    if (cursor.visitor != null) {
+                        cursor.visitor.visit(offset + index); // 原地读写数据 // Read or write the data in place
+                    }
+                    probe.transferred(cursor.kind, cursor.id, offset + index); // 交接之前记入轨迹 // Trace the hand-over before it happens
+                    log.publish(cursor.kind, cursor.id, offset + index, EventLog.PRODUCED);
+                    sequences.set(index, pos + 1); // 发布给消费者 // Publish to consumers
+                    return offset + index;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return -1; // 缓冲区已满 // The buffer is full
+            } else {
+                pos = tail.get(); // 被其他生产者抢先 // Another producer got there first
+            }
+        }
+    }
+
+    // 尝试消费，缓冲区空时返回 -1
+    // Try to consume; returns -1 when the buffer is empty
+    public int poll(BufferCursor cursor) {
+        long pos = head.get();
+        while (true) {
+            int index = index(pos);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    if (cursor.visitor != null) {
+                        cursor.visitor.visit(offset + index); // 原地读写数据 // Read or write the data in place
+                    }
+                    probe.transferred(cursor.kind, cursor.id, offset + index); // 交接之前记入轨迹 // Trace the hand-over before it happens
+                    log.publish(cursor.kind, cursor.id, offset + index, EventLog.CONSUMED);
+                    sequences.set(index, pos + capacity); // 归还给生产者 // Hand back to producers
+                    return offset + index;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return -1; // 缓冲区为空 // The buffer is empty
+            } else {
+                pos = head.get(); // 被其他消费者抢先 // Another consumer got there first
+            }
+        }
+    }
+
+    // 尝试一次 CAS 连续生产最多 max 个数据项，缓冲区满时返回 -1
+    // Try to produce up to max contiguous items with a single CAS; returns -1 when the buffer is full
+    public int offerBatch(BufferCursor cursor, int max) {
+        long pos = tail.get();
+        while (true) {
+            // 从写入游标开始数出连续可生产的位置
+            // Count the contiguous producible positions starting at the write cursor
+            int n = 0;
+            while (n < max && sequences.get(index(pos + n)) == pos + n) {
+                n++;
+            }
+            if (n == 0) {
+                long diff = sequences.get(index(pos)) - pos;
+                if (diff < 0) {
+                    return -1; // 缓冲区已满 // The buffer is full
+                }
+                pos = tail.get(); // 被其他生产者抢先 // Another producer got there first
+            } else if (tail.compareAndSet(pos, pos + n)) {
+                // 一次 CAS 占下 n 个位置，再逐个发布给消费者
+                // One CAS claims n positions, which are then published to consumers one by one
+                for (int i = 0; i < n; i++) {
+                    int index = index(pos + i);
+                    if (cursor.visitor != null) {
+                        cursor.visitor.visit(offset + index); // 原地读写数据 // Read or write the data in place
+                    }
+                    probe.transferred(cursor.kind, cursor.id, offset + index); // 交接之前记入轨迹 // Trace the hand-over before it happens
+                    log.publish(cursor.kind, cursor.id, offset + index, EventLog.PRODUCED);
+                    sequences.set(index, pos + i + 1);
+                }
+                return n;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    // 尝试一次 CAS 连续消费最多 max 个数据项，缓冲区空时返回 -1
+    // Try to consume up to max contiguous items with a single CAS; returns -1 when the buffer is empty
+    public int pollBatch(BufferCursor cursor, int max) {
+        long pos = head.get();
+        while (true) {
+            int n = 0;
+            while (n < max && sequences.get(index(pos + n)) == pos + n + 1) {
+                n++;
+            }
+            if (n == 0) {
+                long diff = sequences.get(index(pos)) - (pos + 1);
+                if (diff < 0) {
+                    return -1; // 缓冲区为空 // The buffer is empty
+                }
+                pos = head.get(); // 被其他消费者抢先 // Another consumer got there first
+            } else if (head.compareAndSet(pos, pos + n)) {
+                for (int i = 0; i < n; i++) {
+                    int index = index(pos + i);
+                    if (cursor.visitor != null) {
+                        cursor.visitor.visit(offset + index); // 原地读写数据 // Read or write the data in place
+                    }
+                    probe.transferred(cursor.kind, cursor.id, offset + index); // 交接之前记入轨迹 // Trace the hand-over before it happens
+                    log.publish(cursor.kind, cursor.id, offset + index, EventLog.CONSUMED);
+                    sequences.set(index, pos + i + capacity); // 归还给生产者 // Hand back to producers
+                }
+                return n;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    @Override
+    public int put(BufferCursor cursor) throws InterruptedException {
+        boolean timed = probe.enabled(); // 关闭统计时不读取时钟 // Skip the clock entirely when metrics are off
+        long startAt = timed ? System.nanoTime() : 0;
+        int slot = offer(cursor);
+        if (slot < 0) {
+            slot = await(cursor, () -> offer(cursor), true, timed, startAt);
+        } else if (timed) {
+            probe.acquired(cursor.kind, cursor.id, slot, System.nanoTime() - startAt);
+        }
+        waiters.wake(true, 1);
+        return slot;
+    }
+
+    @Override
+    public int take(BufferCursor cursor) throws InterruptedException {
+        boolean timed = probe.enabled();
+        long startAt = timed ? System.nanoTime() : 0;
+        int slot = poll(cursor);
+        if (slot < 0) {
+            slot = await(cursor, () -> poll(cursor), false, timed, startAt);
+        } else if (timed) {
+            probe.acquired(cursor.kind, cursor.id, slot, System.nanoTime() - startAt);
+        }
+        waiters.wake(false, 1);
+        return slot;
+    }
+
+    @Override
+    public int putBatch(BufferCursor cursor, int max) throws InterruptedException {
+        boolean timed = probe.enabled();
+        long startAt = timed ? System.nanoTime() : 0;
+        int n = offerBatch(cursor, max);
+        if (n < 0) {
+            n = await(cursor, () -> offerBatch(cursor, max), true, timed, startAt);
+        } else if (timed) {
+            probe.acquired(cursor.kind, cursor.id, offset + index(tail.get() - n), System.nanoTime() - startAt);
+        }
+        waiters.wake(true, n); // 放入了 n 项，最多唤醒 n 个消费者 // n items went in, so wake up to n consumers
+        return n;
+    }
+
+    @Override
+    public int takeBatch(BufferCursor cursor, int max) throws InterruptedException {
+        boolean timed = probe.enabled();
+        long startAt = timed ? System.nanoTime() : 0;
+        int n = pollBatch(cursor, max);
+        if (n < 0) {
+            n = await(cursor, () -> pollBatch(cursor, max), false, timed, startAt);
+        } else if (timed) {
+            probe.acquired(cursor.kind, cursor.id, offset + index(head.get() - n), System.nanoTime() - startAt);
+        }
+        waiters.wake(false, n); // 腾出了 n 个位置，最多唤醒 n 个生产者 // n positions were freed, so wake up to n producers
+        return n;
+    }
+
+    // 缓冲区满（produce 为 true）或空：挂起等待，直到对方腾出位置或放入数据后直接唤醒，不再反复扫描；返回 attempt 第一次成功的结果
+    // Buffer full (produce is true) or empty: park until the other side frees a position or publishes an item and wakes us, instead of rescanning; returns attempt's first successful result
+    private int await(BufferCursor cursor, IntSupplier attempt, boolean produce, boolean timed, long startAt) throws InterruptedException {
+        AtomicLong cursorOf = produce ? tail : head;
+        // 先按等待策略自旋重试，仍未成功才挂起
+        // Spin and retry as the wait strategy says first, and park only if that fails
+        int spun = wait.spin(cursor, attempt);
+        if (spun >= 0) {
+            if (timed) {
+                probe.acquired(cursor.kind, cursor.id, offset + index(cursorOf.get() - 1), System.nanoTime() - startAt);
+            }
+            return spun;
+        }
+        cursor.waits++;
+        int slot = offset + index(cursorOf.get());
+        log.publish(cursor.kind, cursor.id, slot, produce ? EventLog.WAIT_FULL : EventLog.WAIT_EMPTY);
+        long waitAt = timed ? System.nanoTime() : 0;
+        int result = waiters.await(produce, attempt);
+        wait.finished(cursor);
+        if (timed) {
+            long now = System.nanoTime();
+            probe.acquired(cursor.kind, cursor.id, slot, waitAt - startAt);
+            probe.waited(cursor.kind, cursor.id, slot, now - waitAt);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean tryTake(BufferCursor cursor) {
+        if (poll(cursor) < 0) {
+            return false;
+        }
+        waiters.wake(false, 1);
+        return true;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    // 填充到整个缓存行的原子长整型，避免两个游标的伪共享
+    // Atomic long padded to a whole cache line so the two cursors do not false-share
+    @SuppressWarnings("unused")
+    static class PaddedAtomicLong extends AtomicLong {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
@@ -0,0 +1,229 @@
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class RunController {
+    // 停止时等待进程结束的最长时间（毫秒）
+    // Longest time to wait for processes to end when stopping (ms)
+    static final long JOIN_MILLIS = 2000;
+
+    // 每种线程一个执行器，在多次运行之间重复使用，首次使用时创建
+    // One executor per thread kind, reused across runs and created on first use
+    private final ExecutorService[] pools = new ExecutorService[ExecutionMode.values().length];
+
+    // 正在进行的运行，没有时为 null
+    // The run in progress; null when there is none
+    private Run current;
+
+    // 开始一次新的运行：先停止上一次运行并等它的所有进程结束；仍有进程未结束时拒绝开始，运行之间不会重叠。
+    // 停止可能要等待 JOIN_MILLIS，界面应先在后台线程中调用 stop()，这里就只剩检查
+    // Begin a new run: stop the previous run first and join all of its processes; refuse to begin while any are left, so runs never overlap.
+    // Stopping can take up to JOIN_MILLIS, so the UI calls stop() on a background thread first and only the check is left here
+    public synchronized Run begin(ExecutionMode mode) {
+        if (current != null) {
+            current.stop();
+            if (current.live() > 0) {
+                throw new IllegalStateException(current.live() + " processes of the previous run are still running");
+            }
+        }
+        int i = mode.ordinal();
+        if (pools[i] == null) {
+            pools[i] = mode.newPool("process-");
+        }
+        current = new Run(pools[i]);
+        return current;
+    }
+
+    // 停止正在进行的运行
+    // Stop the run in progress
+    public void stop() {
+        Run run;
+        synchronized (this) {
+            run = current;
+        }
+        if (run != null) {
+            run.stop();
+        }
+    }
+
+    // 暂停或恢复正在进行的运行；返回暂停后是否处于暂停状态
+    // Pause or resume the run in progress; returns whether it is now paused
+    public synchronized boolean togglePause() {
+        if (current == null || current.token.isCancelled()) {
+            return false;
+        }
+        if (current.token.isPaused()) {
+            current.token.resume();
+            return false;
+        }
+        current.token.pause();
+        return true;
+    }
+
+    // 一次运行：一个取消令牌和这次提交的所有进程
+    // One run: a cancellation token and every process submitted for it
+    public static class Run implements Executor {
+        final CancellationToken token = new CancellationToken();
+        private final ExecutorService pool;
+        private final AtomicBoolean stopped = new AtomicBoolean(false);
+        private final ReentrantLock stopLock = new ReentrantLock();
+        private final long startNanos = System.nanoTime();
+
+        // 仍在运行的进程数和正在执行进程的线程；进程数降到 0 时唤醒等待结束的线程
+        // Number of processes still running and the threads running them; waiters are woken when the count drops to 0
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition finished = lock.newCondition();
+        private final Set<Thread> threads = new HashSet<>();
+        private int live = 0;
+
+        // 停止并等待结束之后调用一次，用于输出统计、关闭轨迹等
+        // Called once after stopping and joining, to report statistics, close traces and so on
+        private Runnable onFinish = () -> {
+        };
+        private String joinSummary = "";
+
+        private Run(ExecutorService pool) {
+            this.pool = pool;
+        }
+
+        // 提交一个进程；结束时（无论正常、被中断还是抛出异常）计数减一。停止后才开始的进程看到令牌已取消会立即返回
+        // Submit one process; the count drops when it ends, whether normally, interrupted or by an exception. A process that only starts after the stop sees the cancelled token and returns at once
+        @Override
+        public void execute(Runnable process) {
+            lock.lock();
+            try {
+                if (stopped.get()) {
+                    return;
+                }
+                live++;
+            } finally {
+                lock.unlock();
+            }
+            pool.execute(() -> {
+                lock.lock();
+                try {
+                    threads.add(Thread.currentThread());
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    process.run();
+                } finally {
+                    // 在锁内离开并清除中断状态，stop() 的中断不会落到池中线程接下来执行的其他任务上
+                    // Leave and clear the interrupt status under the lock, so an interrupt from stop() never lands on whatever the pooled thread runs next
+                    lock.lock();
+                    try {
+                        threads.remove(Thread.currentThread());
+                        Thread.interrupted();
+                        if (--live == 0) {
+                            finished.signalAll();
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+        }
+
+        // 运行 millis 毫秒（暂停时间不计）后自动停止，随后调用 onFinish
+        // Stop automatically after millis of running time (pauses excluded), then call onFinish
+        public void finishAfter(long millis, Runnable onFinish) {
+            this.onFinish = onFinish;
+            // 计时器用平台线程：载体线程很少时，忙碌的虚拟线程进程会让定时唤醒的虚拟线程迟迟排不上队
+            // The timer is a platform thread: with few carriers, busy virtual-thread processes can keep a timed wake-up from ever being scheduled
+            Thread.ofPlatform().daemon().name("run-timer").start(() -> {
+                try {
+                    if (token.sleepRunning(millis)) {
+                        stop();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // 取消令牌、中断所有进程，并在期限内等待它们全部结束；只有第一次调用真正执行
+        // Cancel the token, interrupt every process and join them all within the deadline; only the first call does the work
+        public void stop() {
+            // 并发的调用等第一次调用做完再返回，返回时进程一定已经等待过
+            // Concurrent calls wait for the first one to finish, so on return the processes have always been joined
+            stopLock.lock();
+            try {
+                if (!stopped.compareAndSet(false, true)) {
+                    return;
+                }
+                stopAndJoin();
+            } finally {
+                stopLock.unlock();
+            }
+        }
+
+        private void stopAndJoin() {
+            long stopAt = System.nanoTime();
+            token.cancel();
+            lock.lock();
+            try {
+                for (Thread thread : threads) {
+                    thread.interrupt(); // 唤醒阻塞在锁或条件变量上的进程 // Wake processes blocked on a lock or a condition
+                }
+            } finally {
+                lock.unlock();
+            }
+            int processes = join(JOIN_MILLIS);
+            double joinedMillis = (System.nanoTime() - stopAt) / 1e6;
+            joinSummary = processes == 0
+                    ? String.format("Run stopped, every process joined in %.1f ms.%n", joinedMillis)
+                    : String.format("Run stopped, but %d processes were still running after %d ms.%n", processes, JOIN_MILLIS);
+            onFinish.run();
+        }
+
+        // 等待所有进程结束，最多 millis 毫秒；返回仍在运行的进程数
+        // Wait up to millis for every process to end; returns how many are still running
+        private int join(long millis) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            lock.lock();
+            try {
+                while (live > 0 && System.nanoTime() < deadline) {
+                    finished.await(50, TimeUnit.MILLISECONDS);
+                    // 每 50 毫秒再中断一次，吞掉了中断又进入阻塞的进程也能醒来
+                    // Interrupt again every 50 ms, so a process that swallowed the interrupt and blocked again still wakes up
+                    for (Thread thread : threads) {
+                        thread.interrupt();
+                    }
+                }
+                return live;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return live;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int live() {
+            lock.lock();
+            try {
+                return live;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // 除去暂停后的运行时间
+        // Running time excluding pauses
+        public long runningNanos() {
+            return System.nanoTime() - startNanos - token.pausedNanos();
+        }
+
+        // 最近一次停止的结果
+        // Outcome of the stop
+        public String joinSummary() {
+            return joinSummary;
+        }
+    }
+}
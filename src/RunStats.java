@@ -0,0 +1,56 @@
+import java.util.concurrent.atomic.LongAdder;
+
+public class RunStats {
+    // 已生产和已消费的数据项数
+    // Number of items produced and consumed
+    final LongAdder produced = new LongAdder();
+    final LongAdder consumed = new LongAdder();
+
+    // 生产者因缓冲区满、消费者因缓冲区空而等待的次数
+    // Number of times producers waited on a full slot and consumers on an empty one
+    final LongAdder producerWaits = new LongAdder();
+    final LongAdder consumerWaits = new LongAdder();
+
+    // 交给消费者的数据字节数，以及读到写了一半的记录数（应始终为 0）
+    // Payload bytes delivered to consumers, and records read half-written (always 0 when correct)
+    final LongAdder bytes = new LongAdder();
+    final LongAdder tornRecords = new LongAdder();
+
+    // 每次生产、消费操作的耗时
+    // Latency of each produce and consume operation
+    final LatencyHistogram produceLatency = new LatencyHistogram();
+    final LatencyHistogram consumeLatency = new LatencyHistogram();
+
+    // 开环模式下从预定发送时间到消费者取到数据的端到端延迟
+    // End-to-end latency in open-loop mode, from an item's due time until a consumer takes it
+    final LatencyHistogram endToEndLatency = new LatencyHistogram();
+
+    public long produced() {
+        return produced.sum();
+    }
+
+    public long consumed() {
+        return consumed.sum();
+    }
+
+    // 生成运行结果报告
+    // Build the report of a finished run
+    public String report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("elapsed:      %.3f s%n", seconds));
+        out.append(String.format("produced:     %d (%.0f items/s)%n", produced(), produced() / seconds));
+        out.append(String.format("consumed:     %d (%.0f items/s)%n", consumed(), consumed() / seconds));
+        if (bytes.sum() > 0) {
+            out.append(String.format("payload:      %.1f MB delivered (%.1f MB/s), %d torn records%n",
+                    bytes.sum() / 1e6, bytes.sum() / 1e6 / seconds, tornRecords.sum()));
+        }
+        out.append(String.format("waits:        producers %d, consumers %d%n", producerWaits.sum(), consumerWaits.sum()));
+        out.append("produce:      ").append(produceLatency.summary()).append(System.lineSeparator());
+        out.append("consume:      ").append(consumeLatency.summary()).append(System.lineSeparator());
+        if (endToEndLatency.count() > 0) {
+            out.append("end-to-end:   ").append(endToEndLatency.summary()).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+}
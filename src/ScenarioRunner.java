@@ -0,0 +1,506 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ScenarioRunner {
+    // 子进程输出结果的那一行的前缀
+    // Prefix of the line a child process reports its result on
+    static final String RESULT_PREFIX = "scenario-result ";
+
+    // 一个场景：工作负载、每个点的重复次数，以及每个参数的一个或多个取值（按文件中的顺序）
+    // A scenario: the workload, how often each point repeats, and one or more values per parameter, in file order
+    static class Scenario {
+        String workload = "headless";
+        int repeat = 1;
+        final Map<String, List<String>> axes = new LinkedHashMap<>();
+
+        // 读取场景文件，每行一个 key = value，# 开头为注释；value 中用 | 分隔多个取值，所有参数的取值组合成网格。
+        // workload 为 headless 或 rw，repeat 为重复次数，其余的键都是对应工作负载的命令行选项（去掉 --）
+        // Read a scenario file with one key = value per line and # for comments; | separates several values, and the values of all parameters combine into a grid.
+        // workload is headless or rw and repeat is the repetition count; every other key is a command line option of that workload, without the --
+        static Scenario load(Path file) throws IOException {
+            Scenario scenario = new Scenario();
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (int n = 0; n < lines.size(); n++) {
+                String line = lines.get(n).trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int equals = line.indexOf('=');
+                if (equals <= 0) {
+                    throw new IllegalArgumentException(file + ":" + (n + 1) + ": expected key = value");
+                }
+                String key = line.substring(0, equals).trim();
+                List<String> values = new ArrayList<>();
+                for (String value : line.substring(equals + 1).split("\\|")) {
+                    if (!value.isBlank()) {
+                        values.add(value.trim());
+                    }
+                }
+                if (values.isEmpty()) {
+                    throw new IllegalArgumentException(file + ":" + (n + 1) + ": no value for " + key);
+                }
+                switch (key) {
+                    case "workload" -> {
+                        scenario.workload = values.get(0);
+                        if (values.size() > 1 || !(scenario.workload.equals("headless") || scenario.workload.equals("rw"))) {
+                            throw new IllegalArgumentException(file + ":" + (n + 1) + ": workload is headless or rw");
+                        }
+                    }
+                    case "repeat" -> {
+                        scenario.repeat = Integer.parseInt(values.get(0));
+                        if (values.size() > 1 || scenario.repeat < 1) {
+                            throw new IllegalArgumentException(file + ":" + (n + 1) + ": repeat must be one positive number");
+                        }
+                    }
+                    default -> {
+                        if (scenario.axes.put(key, values) != null) {
+                            throw new IllegalArgumentException(file + ":" + (n + 1) + ": " + key + " given twice");
+                        }
+                    }
+                }
+            }
+            return scenario;
+        }
+
+        // 展开成网格中的所有点，最后一个参数变化最快
+        // Expand into every point of the grid, the last parameter changing fastest
+        List<Map<String, String>> expand() {
+            List<Map<String, String>> points = new ArrayList<>();
+            points.add(new LinkedHashMap<>());
+            for (Map.Entry<String, List<String>> axis : axes.entrySet()) {
+                List<Map<String, String>> next = new ArrayList<>();
+                for (Map<String, String> point : points) {
+                    for (String value : axis.getValue()) {
+                        Map<String, String> extended = new LinkedHashMap<>(point);
+                        extended.put(axis.getKey(), value);
+                        next.add(extended);
+                    }
+                }
+                points = next;
+            }
+            return points;
+        }
+    }
+
+    // 运行方式的参数
+    // Parameters of how the scenario runs
+    static class Options {
+        Path file;
+        // 同时运行的点数，为 1 时依次运行；每个点都在独立的子进程中运行
+        // Points run at once; 1 runs them one after another; every point runs in a child process of its own
+        int parallel = 1;
+        Path csv;
+        Path output;
+        // 每个子进程最多运行的秒数，超时后结束它并记为失败
+        // Longest a child process may run, in seconds; after that it is killed and recorded as failed
+        long timeoutSeconds = 600;
+
+        // 解析命令行参数，例如 sweep.properties --parallel 4 --csv sweep.csv --out sweep.json
+        // Parse command line arguments, e.g. sweep.properties --parallel 4 --csv sweep.csv --out sweep.json
+        static Options parse(String[] args) {
+            if (args.length == 0 || args[0].startsWith("--")) {
+                throw new IllegalArgumentException("Missing scenario file");
+            }
+            Options options = new Options();
+            options.file = Path.of(args[0]);
+            for (int i = 1; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--parallel" -> options.parallel = Integer.parseInt(value);
+                    case "--csv" -> options.csv = Path.of(value);
+                    case "--out" -> options.output = Path.of(value);
+                    case "--timeout-s" -> options.timeoutSeconds = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            if (options.parallel < 1 || options.timeoutSeconds < 1) {
+                throw new IllegalArgumentException("--parallel and --timeout-s must be positive");
+            }
+            // 默认与场景文件同名，放在当前目录
+            // By default named after the scenario file, in the current directory
+            String base = options.file.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+            if (options.csv == null) {
+                options.csv = Path.of(base + ".csv");
+            }
+            if (options.output == null) {
+                options.output = Path.of(base + ".json");
+            }
+            return options;
+        }
+    }
+
+    // 网格中一个点的一次运行：参数取值、各项指标，失败时的原因
+    // One run of one grid point: its parameter values, its metrics, and why it failed if it did
+    static class Row {
+        final int point;
+        final int run;
+        final Map<String, String> settings;
+        final Map<String, Double> metrics = new LinkedHashMap<>();
+        String error;
+        String cpus;
+
+        Row(int point, int run, Map<String, String> settings) {
+            this.point = point;
+            this.run = run;
+            this.settings = settings;
+        }
+    }
+
+    // 把一个点的参数变成命令行选项
+    // Turn one point's parameters into command line options
+    static String[] arguments(Map<String, String> settings) {
+        List<String> args = new ArrayList<>();
+        for (Map.Entry<String, String> entry : settings.entrySet()) {
+            args.add("--" + entry.getKey());
+            args.add(entry.getValue());
+        }
+        return args.toArray(new String[0]);
+    }
+
+    // 检查一个点能否运行，并且只对应一次运行；列表写法（例如 --batch 1,8）会在一个点里运行多次，扫描要用 |
+    // Check that a point can run and is a single run; a list (e.g. --batch 1,8) would run several times within one point, so sweeps use |
+    static void validate(String workload, String[] args) {
+        if (workload.equals("headless")) {
+            HeadlessRunner.Options options = HeadlessRunner.Options.parse(args);
+            if (options.batchSizes.length > 1 || options.schedulings.length > 1) {
+                throw new IllegalArgumentException("Use | rather than , to sweep batch sizes or schedulers");
+            }
+        } else {
+            ReaderWriterWorkload rw = ReaderWriterWorkload.parse(args);
+            if (rw.policies.length * rw.readerCounts.length * rw.schedulings.length > 1) {
+                throw new IllegalArgumentException("Use | rather than , to sweep policies, reader counts or schedulers");
+            }
+        }
+    }
+
+    // 在本进程中运行一个点，返回各项指标
+    // Run one point in this process and return its metrics
+    static Map<String, Double> runPoint(String workload, String[] args) throws InterruptedException, IOException {
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        ProcessScheduler scheduler;
+        if (workload.equals("headless")) {
+            HeadlessRunner.Result result = HeadlessRunner.run(HeadlessRunner.Options.parse(args));
+            metrics.put("items_per_s", result.itemsPerSecond());
+            metrics.put("produced", (double) result.stats.produced());
+            metrics.put("consumed", (double) result.stats.consumed());
+            metrics.put("producer_waits", (double) result.stats.producerWaits.sum());
+            metrics.put("consumer_waits", (double) result.stats.consumerWaits.sum());
+            metrics.put("produce_p99_us", result.stats.produceLatency.percentile(99) / 1e3);
+            metrics.put("consume_p99_us", result.stats.consumeLatency.percentile(99) / 1e3);
+            if (result.options.arrivals != null) {
+                metrics.put("end_to_end_p99_us", result.stats.endToEndLatency.percentile(99) / 1e3);
+            }
+            if (result.overload != null) {
+                metrics.put("dropped", (double) result.overload.dropped());
+            }
+            scheduler = result.scheduler;
+        } else {
+            ReaderWriterWorkload.Result result = ReaderWriterWorkload.run(ReaderWriterWorkload.parse(args));
+            metrics.put("reads_per_s", result.readsPerSecond());
+            metrics.put("writes_per_s", result.writesPerSecond());
+            metrics.put("read_wait_p99_ms", result.stats.readWait.percentile(99) / 1e6);
+            metrics.put("write_wait_p99_ms", result.stats.writeWait.percentile(99) / 1e6);
+            metrics.put("reader_concurrency", result.stats.averageReaderConcurrency());
+            scheduler = result.scheduler;
+        }
+        if (scheduler != null) {
+            metrics.put("fairness", scheduler.fairness());
+            metrics.put("switches", (double) scheduler.switches());
+        }
+        return metrics;
+    }
+
+    // 把核心平均分成 parallel 组，每个并行的点独占一组；核心不够时各组共用，结果会互相干扰
+    // Split the cores into parallel groups so every concurrent point has one to itself; with too few cores the groups share and results interfere
+    static List<String> cpuSets(int parallel) {
+        List<Integer> cores = allowedCores();
+        List<String> sets = new ArrayList<>();
+        for (int g = 0; g < parallel; g++) {
+            if (cores.size() < parallel) {
+                sets.add(String.valueOf(cores.get(g % cores.size())));
+                continue;
+            }
+            StringBuilder set = new StringBuilder();
+            for (int i = cores.size() * g / parallel; i < cores.size() * (g + 1) / parallel; i++) {
+                set.append(set.isEmpty() ? "" : ",").append(cores.get(i));
+            }
+            sets.add(set.toString());
+        }
+        return sets;
+    }
+
+    // 本进程允许使用的核心，从 /proc 读出；读不到时按处理器个数算
+    // Cores this process may use, read from /proc; counted from the processor count when unavailable
+    private static List<Integer> allowedCores() {
+        List<Integer> cores = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("Cpus_allowed_list:")) {
+                    for (String range : line.substring("Cpus_allowed_list:".length()).trim().split(",")) {
+                        String[] ends = range.split("-");
+                        int first = Integer.parseInt(ends[0]);
+                        int last = Integer.parseInt(ends[ends.length - 1]);
+                        for (int core = first; core <= last; core++) {
+                            cores.add(core);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            cores.clear();
+        }
+        if (cores.isEmpty()) {
+            for (int core = 0; core < Runtime.getRuntime().availableProcessors(); core++) {
+                cores.add(core);
+            }
+        }
+        return cores;
+    }
+
+    // 命令是否在 PATH 中
+    // Whether a command is on the PATH
+    private static boolean onPath(String command) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return false;
+        }
+        for (String dir : path.split(File.pathSeparator)) {
+            if (Files.isExecutable(Path.of(dir, command))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 在独立的子进程中运行一个点：有 taskset 时绑定到给定的核心，并让子进程的 JVM 按这组核心的个数配置自己
+    // Run one point in a child process of its own: pinned to the given cores when taskset is available, with the child JVM sizing itself to that many cores
+    static void runChild(Row row, String workload, String cpus, boolean pin, long timeoutSeconds) throws InterruptedException {
+        List<String> prefix = pin ? List.of("taskset", "-c", cpus) : List.of();
+        if (pin) {
+            row.cpus = cpus;
+        }
+        List<String> mainArgs = new ArrayList<>(List.of("scenario", "--point", workload));
+        mainArgs.addAll(List.of(arguments(row.settings)));
+        try {
+            ChildJvm.Result result = ChildJvm.run(ChildJvm.command(prefix, List.of("-XX:ActiveProcessorCount=" + cpus.split(",").length), mainArgs), timeoutSeconds);
+            String line = result.timedOut ? null : result.line(RESULT_PREFIX);
+            if (line != null) {
+                parseMetrics(line, row.metrics);
+            } else {
+                row.error = result.failure(timeoutSeconds);
+            }
+        } catch (IOException e) {
+            row.error = e.toString();
+        }
+    }
+
+    // 结果行的格式：name=value;name=value
+    // Result line format: name=value;name=value
+    static String formatMetrics(Map<String, Double> metrics) {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Double> entry : metrics.entrySet()) {
+            out.append(out.isEmpty() ? "" : ";").append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return out.toString();
+    }
+
+    static void parseMetrics(String text, Map<String, Double> metrics) {
+        for (String pair : text.split(";")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                metrics.put(pair.substring(0, equals), Double.parseDouble(pair.substring(equals + 1)));
+            }
+        }
+    }
+
+    // 列依次为点号、重复序号、各参数、所用核心、各项指标（所有行的并集）和错误；缺的值留空
+    // Columns are the point, the repetition, every parameter, the cores used, every metric (the union over all rows) and the error; missing values stay empty
+    static String toCsv(List<Row> rows, Scenario scenario) {
+        Set<String> metricNames = metricNames(rows);
+        StringBuilder out = new StringBuilder("point,run");
+        for (String key : scenario.axes.keySet()) {
+            out.append(',').append(key);
+        }
+        out.append(",cpus");
+        for (String name : metricNames) {
+            out.append(',').append(name);
+        }
+        out.append(",error\n");
+        for (Row row : rows) {
+            out.append(row.point).append(',').append(row.run);
+            for (String key : scenario.axes.keySet()) {
+                out.append(',').append(csvField(row.settings.get(key)));
+            }
+            out.append(',').append(csvField(row.cpus));
+            for (String name : metricNames) {
+                Double value = row.metrics.get(name);
+                out.append(',').append(value == null ? "" : value == Math.rint(value) ? String.valueOf(value.longValue()) : String.format("%.3f", value));
+            }
+            out.append(',').append(csvField(row.error)).append('\n');
+        }
+        return out.toString();
+    }
+
+    // 含逗号、引号或换行的字段加引号
+    // Quote fields containing commas, quotes or line breaks
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.matches(".*[,\"\\n].*") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
+    private static Set<String> metricNames(List<Row> rows) {
+        Set<String> names = new LinkedHashSet<>();
+        for (Row row : rows) {
+            names.addAll(row.metrics.keySet());
+        }
+        return names;
+    }
+
+    static String toJson(List<Row> rows, Scenario scenario, Options options) {
+        JsonWriter json = new JsonWriter().beginObject()
+                .name("scenario").value(options.file.toString())
+                .name("workload").value(scenario.workload)
+                .name("parallel").value(options.parallel)
+                .name("points").beginArray();
+        for (Row row : rows) {
+            json.beginObject()
+                    .name("point").value(row.point)
+                    .name("run").value(row.run)
+                    .name("settings").beginObject();
+            for (Map.Entry<String, String> entry : row.settings.entrySet()) {
+                json.name(entry.getKey()).value(entry.getValue());
+            }
+            json.endObject().name("cpus").value(row.cpus).name("metrics").beginObject();
+            for (Map.Entry<String, Double> entry : row.metrics.entrySet()) {
+                json.name(entry.getKey()).value(entry.getValue());
+            }
+            json.endObject().name("error").value(row.error).endObject();
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    // 每个点完成时输出一行：进度、参数、主要指标或错误
+    // One line as each point finishes: progress, parameters, and the headline metric or the error
+    private static synchronized void progress(Row row, int done, int total) {
+        StringBuilder line = new StringBuilder(String.format("[%d/%d] point %d run %d:", done, total, row.point, row.run));
+        for (Map.Entry<String, String> entry : row.settings.entrySet()) {
+            line.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        if (row.cpus != null) {
+            line.append(" cpus=").append(row.cpus);
+        }
+        if (row.error != null) {
+            line.append("  FAILED: ").append(row.error);
+        } else {
+            String headline = row.metrics.containsKey("items_per_s") ? "items_per_s" : "reads_per_s";
+            line.append(String.format("  %.0f %s", row.metrics.getOrDefault(headline, 0.0), headline.replace("_per_s", "/s")));
+        }
+        System.out.println(line);
+    }
+
+    // 读取场景，先检查网格中的每个点，再依次或并行地运行，最后写出 CSV 和 JSON
+    // Load the scenario, check every point of the grid first, run them one after another or in parallel, then write CSV and JSON
+    public static void main(String[] args) throws InterruptedException, IOException {
+        // 子进程以这种方式运行一个点
+        // Child processes run one point this way
+        if (args.length >= 2 && args[0].equals("--point")) {
+            String[] rest = java.util.Arrays.copyOfRange(args, 2, args.length);
+            try {
+                System.out.println(RESULT_PREFIX + formatMetrics(runPoint(args[1], rest)));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                System.exit(2);
+            }
+            System.exit(0); // 不等残留的非守护线程 // Do not wait for any leftover non-daemon threads
+            return;
+        }
+        Options options;
+        Scenario scenario;
+        List<Map<String, String>> points;
+        try {
+            options = Options.parse(args);
+            scenario = Scenario.load(options.file);
+            points = scenario.expand();
+            for (int p = 0; p < points.size(); p++) {
+                try {
+                    validate(scenario.workload, arguments(points.get(p)));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Point " + (p + 1) + " " + points.get(p) + ": " + e.getMessage(), e);
+                }
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: scenario FILE [--parallel N] [--csv FILE] [--out FILE] [--timeout-s S]");
+            System.err.println("  FILE has one key = value per line; | separates the values to sweep, e.g. engine = ring | sharded");
+            System.exit(2);
+            return;
+        }
+
+        List<Row> rows = new ArrayList<>();
+        for (int p = 0; p < points.size(); p++) {
+            for (int r = 1; r <= scenario.repeat; r++) {
+                rows.add(new Row(p + 1, r, points.get(p)));
+            }
+        }
+        System.out.printf("Scenario %s: %s workload, %d points x %d runs = %d runs, %s%n", options.file, scenario.workload, points.size(), scenario.repeat,
+                rows.size(), options.parallel == 1 ? "one after another in separate processes" : options.parallel + " at a time in separate processes");
+        long start = System.nanoTime();
+        int[] done = {0};
+        // 每个点都在新的子 JVM 中运行，JIT 编译结果、堆和残留线程不会带到下一个点，超时也同样适用；依次运行时只有一组核心，即全部允许的核心
+        // Every point runs in a fresh child JVM, so no JIT profile, heap or leftover thread carries over to the next one and the timeout always applies; one after another there is a single CPU set holding every allowed core
+        List<String> sets = cpuSets(options.parallel);
+        boolean pin = onPath("taskset") && Files.exists(Path.of("/proc/self/status"));
+        if (options.parallel > 1 && !pin) {
+            System.out.println("taskset is not available; parallel points run unpinned and may disturb each other");
+        } else if (options.parallel > 1 && allowedCores().size() < options.parallel) {
+            System.out.println("Fewer cores than parallel points; the CPU sets overlap and the points will disturb each other");
+        }
+        // 空闲的核心组，每个运行中的点拿走一组，结束后放回
+        // Idle CPU sets; every running point takes one and puts it back when done
+        BlockingQueue<String> idle = new ArrayBlockingQueue<>(sets.size(), false, sets);
+        try (ExecutorService pool = Executors.newFixedThreadPool(options.parallel, Thread.ofPlatform().name("scenario-", 0).factory())) {
+            for (Row row : rows) {
+                pool.execute(() -> {
+                    try {
+                        String cpus = idle.take();
+                        try {
+                            runChild(row, scenario.workload, cpus, pin, options.timeoutSeconds);
+                        } finally {
+                            idle.add(cpus);
+                        }
+                    } catch (InterruptedException e) {
+                        row.error = "interrupted";
+                        Thread.currentThread().interrupt();
+                    }
+                    synchronized (done) {
+                        progress(row, ++done[0], rows.size());
+                    }
+                });
+            }
+        }
+        long failed = rows.stream().filter(row -> row.error != null).count();
+        Files.writeString(options.csv, toCsv(rows, scenario));
+        Files.writeString(options.output, toJson(rows, scenario, options));
+        System.out.printf("Finished %d runs in %.1f s, %d failed. Results written to %s and %s%n", rows.size(), (System.nanoTime() - start) / 1e9,
+                failed, options.csv, options.output);
+    }
+}
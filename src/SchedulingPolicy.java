@@ -0,0 +1,129 @@
+import java.util.List;
+import java.util.Random;
+
+public class SchedulingPolicy {
+    // 调度方式
+    // Kind of scheduling
+    enum Kind { OS, FIFO, ROUND_ROBIN, PRIORITY, LOTTERY }
+
+    // 不模拟处理器，由操作系统调度，只统计各进程的循环次数，作为比较的基准
+    // No simulated processors: the operating system schedules and only each process's loops are counted, as a baseline to compare against
+    public static final SchedulingPolicy OS = new SchedulingPolicy(Kind.OS, 0);
+
+    final Kind kind;
+
+    // 轮转和彩票调度的时间片，或优先级调度中等待多久提升一级（纳秒）；先来先服务为 0
+    // Quantum for round-robin and lottery, or how long a wait raises the priority by one level for priority scheduling (ns); 0 for FIFO
+    final long nanos;
+
+    private SchedulingPolicy(Kind kind, long nanos) {
+        this.kind = kind;
+        this.nanos = nanos;
+    }
+
+    // 解析描述，时间可以省略（默认 2 毫秒时间片，50 毫秒提升一级）：
+    //   os            由操作系统调度，只统计
+    //   fifo          先来先服务，进程一直占用处理器，直到它阻塞
+    //   rr:2          轮转，时间片 2 毫秒，用完且有进程等待时让出
+    //   priority:50   按权重的优先级，高优先级就绪时抢占；每等待 50 毫秒提升一级，低优先级的进程不会饿死
+    //   lottery:2     彩票调度，按权重分配彩票，每个时间片抽一次
+    // Parse a specification; the time may be left out (a 2 ms quantum, one level per 50 ms):
+    //   os            left to the operating system, only counted
+    //   fifo          first come first served; a process keeps its processor until it blocks
+    //   rr:2          round-robin with a 2 ms quantum, given up once used when others are waiting
+    //   priority:50   priority by weight, preempting for a higher priority; every 50 ms of waiting raises one level, so low priorities never starve
+    //   lottery:2     lottery scheduling, tickets by weight, one draw per quantum
+    public static SchedulingPolicy parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            Kind kind = switch (parts[0]) {
+                case "os" -> Kind.OS;
+                case "fifo" -> Kind.FIFO;
+                case "rr" -> Kind.ROUND_ROBIN;
+                case "priority" -> Kind.PRIORITY;
+                case "lottery" -> Kind.LOTTERY;
+                default -> throw new IllegalArgumentException("Unknown scheduling policy " + parts[0] + " (os, fifo, rr, priority or lottery)");
+            };
+            double millis = parts.length > 1 ? Double.parseDouble(parts[1]) : kind == Kind.PRIORITY ? 50 : 2;
+            boolean timed = kind != Kind.OS && kind != Kind.FIFO;
+            if (parts.length > 2 || (!timed && parts.length > 1) || millis <= 0) {
+                throw new IllegalArgumentException("Invalid scheduling policy " + spec);
+            }
+            return kind == Kind.OS ? OS : new SchedulingPolicy(kind, timed ? (long) (millis * 1e6) : 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid scheduling policy " + spec, e);
+        }
+    }
+
+    // 有进程在等待时，正在运行的进程是否要在这个循环开头让出处理器
+    // Whether a running process gives up its processor at the top of this loop while others are waiting
+    boolean preempts(ProcessScheduler.Process running, List<ProcessScheduler.Process> ready, long now) {
+        return switch (kind) {
+            case OS, FIFO -> false;
+            case ROUND_ROBIN, LOTTERY -> now - running.dispatchedAt >= nanos;
+            case PRIORITY -> {
+                for (ProcessScheduler.Process waiting : ready) {
+                    if (priority(waiting, now) > running.priority) {
+                        yield true;
+                    }
+                }
+                yield false;
+            }
+        };
+    }
+
+    // 从就绪的进程中选出下一个运行的；就绪列表按进入的先后排列
+    // Pick the next process to run from the ready ones, which are listed in the order they became ready
+    ProcessScheduler.Process pick(List<ProcessScheduler.Process> ready, long now, Random random) {
+        return switch (kind) {
+            case OS, FIFO, ROUND_ROBIN -> ready.get(0);
+            case PRIORITY -> {
+                // 同一优先级时等得最久的先运行
+                // Within a priority, the longest waiting goes first
+                ProcessScheduler.Process best = ready.get(0);
+                for (ProcessScheduler.Process process : ready) {
+                    if (priority(process, now) > priority(best, now)) {
+                        best = process;
+                    }
+                }
+                yield best;
+            }
+            case LOTTERY -> {
+                long tickets = 0;
+                for (ProcessScheduler.Process process : ready) {
+                    tickets += process.weight;
+                }
+                long draw = (long) (random.nextDouble() * tickets);
+                for (ProcessScheduler.Process process : ready) {
+                    draw -= process.weight;
+                    if (draw < 0) {
+                        yield process;
+                    }
+                }
+                yield ready.get(ready.size() - 1);
+            }
+        };
+    }
+
+    // 等待中的进程的有效优先级：权重加上老化提升的级数；其他策略只用权重
+    // Effective priority of a waiting process: its weight plus the levels aging has added; other policies use the weight alone
+    double priority(ProcessScheduler.Process process, long now) {
+        return kind == Kind.PRIORITY ? process.weight + (double) (now - process.readySince) / nanos : process.weight;
+    }
+
+    @Override
+    public String toString() {
+        String text = switch (kind) {
+            case OS -> "os";
+            case FIFO -> "fifo";
+            case ROUND_ROBIN -> "rr";
+            case PRIORITY -> "priority";
+            case LOTTERY -> "lottery";
+        };
+        if (nanos == 0) {
+            return text;
+        }
+        double millis = nanos / 1e6;
+        return text + ":" + (millis == Math.rint(millis) ? String.valueOf((long) millis) : String.valueOf(millis));
+    }
+}
@@ -0,0 +1,231 @@
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+public class ShardedBuffer implements BoundedBuffer {
+    // 各个分片，每个是一个无锁的子环形缓冲区，读写游标各自填充到独立的缓存行；不同分片之间不共享任何缓存行
+    // The shards, each a lock-free sub-ring whose cursors are padded onto their own cache lines; no cache line is shared between shards
+    private final RingBuffer[] shards;
+
+    // 每个分片第一个位置的全局编号
+    // Global number of each shard's first position
+    private final int[] offsets;
+
+    private final int capacity;
+
+    // 用于记录模拟过程的事件日志
+    // Event log recording the simulation
+    private final EventLog log;
+
+    // 竞争统计探针；与环形缓冲区相同，只统计抢位置的时间和挂起等待的时间
+    // Contention metrics probe; as with the ring, only the claim time and parked time are measured
+    private final SyncProbe probe;
+
+    // 所有分片都满或都空时，挂起之前如何等待
+    // How to wait before parking when every shard is full or empty
+    private final WaitStrategy wait;
+
+    // 只在所有分片都满或都空时使用的等待者
+    // Waiters used only when every shard is full or empty
+    private final BufferWaiters waiters = new BufferWaiters();
+
+    // 消费者从别的分片偷取、生产者溢出到别的分片的数据项数
+    // Items consumers stole from other shards, and items producers spilled into other shards
+    private final LongAdder stolen = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+
+    // 容量平均分给各个分片，总容量等于 bufferSize；分片不把容量取整到 2 的幂
+    // The capacity is split evenly and adds up to bufferSize; shards do not round their capacity up to a power of two
+    public ShardedBuffer(int bufferSize, int shardCount, WaitStrategy wait, EventLog log, SyncProbe probe) {
+        int[] sizes = shardSizes(bufferSize, shardCount);
+        this.shards = new RingBuffer[sizes.length];
+        this.offsets = new int[sizes.length];
+        this.log = log;
+        this.probe = probe;
+        this.wait = wait;
+        int offset = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            offsets[i] = offset;
+            shards[i] = new RingBuffer(sizes[i], offset, log, probe);
+            offset += shards[i].capacity();
+        }
+        this.capacity = offset;
+    }
+
+    // 各个分片的容量：平均分配，总和正好是 bufferSize；每个分片至少 2 个位置，因此分片数最多为 bufferSize / 2，只有 bufferSize 为 1 时总容量会多出一个
+    // Capacity of each shard: an even split adding up to exactly bufferSize; each shard needs at least 2 positions, so there are at most bufferSize / 2 shards, and only a bufferSize of 1 ends up one over
+    static int[] shardSizes(int bufferSize, int shardCount) {
+        int count = Math.max(1, Math.min(shardCount, bufferSize / 2));
+        int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = Math.max(2, bufferSize / count + (i < bufferSize % count ? 1 : 0));
+        }
+        return sizes;
+    }
+
+    // 给定大小和分片数时实际分配的位置数
+    // Number of positions actually allocated for a given size and shard count
+    static int capacityFor(int bufferSize, int shardCount) {
+        int total = 0;
+        for (int size : shardSizes(bufferSize, shardCount)) {
+            total += size;
+        }
+        return total;
+    }
+
+    // 分片数：每对生产者和消费者一个分片
+    // Number of shards: one per producer/consumer pair
+    public static int shardsFor(int producers, int consumers) {
+        return Math.max(producers, consumers);
+    }
+
+    // 参与者的本地分片
+    // The actor's home shard
+    private int home(BufferCursor cursor) {
+        return Math.floorMod(cursor.id, shards.length);
+    }
+
+    // 先放入本地分片，满了再依次试后面的分片；返回位置，全部满时返回 -1
+    // Try the home shard first, then the following shards in turn; returns the position, or -1 when all are full
+    private int offerAny(BufferCursor cursor) {
+        int home = home(cursor);
+        for (int k = 0; k < shards.length; k++) {
+            int slot = shards[(home + k) % shards.length].offer(cursor);
+            if (slot >= 0) {
+                if (k > 0) {
+                    spilled.increment();
+                }
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // 先从本地分片取，空了再依次从后面的分片偷取；全部空时返回 -1
+    // Take from the home shard first, then steal from the following shards in turn; returns -1 when all are empty
+    private int pollAny(BufferCursor cursor) {
+        int home = home(cursor);
+        for (int k = 0; k < shards.length; k++) {
+            int slot = shards[(home + k) % shards.length].poll(cursor);
+            if (slot >= 0) {
+                if (k > 0) {
+                    stolen.increment();
+                }
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // 批量操作同样先用本地分片；一批只落在一个分片内，各分片内部仍然先进先出
+    // Batches also start at the home shard; a batch always lands in a single shard, so each shard stays FIFO
+    private int offerBatchAny(BufferCursor cursor, int max) {
+        int home = home(cursor);
+        for (int k = 0; k < shards.length; k++) {
+            int n = shards[(home + k) % shards.length].offerBatch(cursor, max);
+            if (n > 0) {
+                if (k > 0) {
+                    spilled.add(n);
+                }
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    private int pollBatchAny(BufferCursor cursor, int max) {
+        int home = home(cursor);
+        for (int k = 0; k < shards.length; k++) {
+            int n = shards[(home + k) % shards.length].pollBatch(cursor, max);
+            if (n > 0) {
+                if (k > 0) {
+                    stolen.add(n);
+                }
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int put(BufferCursor cursor) throws InterruptedException {
+        int slot = transfer(cursor, () -> offerAny(cursor), true);
+        waiters.wake(true, 1);
+        return slot;
+    }
+
+    @Override
+    public int take(BufferCursor cursor) throws InterruptedException {
+        int slot = transfer(cursor, () -> pollAny(cursor), false);
+        waiters.wake(false, 1);
+        return slot;
+    }
+
+    @Override
+    public int putBatch(BufferCursor cursor, int max) throws InterruptedException {
+        int n = transfer(cursor, () -> offerBatchAny(cursor, max), true);
+        waiters.wake(true, n); // 放入了 n 项，最多唤醒 n 个消费者 // n items went in, so wake up to n consumers
+        return n;
+    }
+
+    @Override
+    public int takeBatch(BufferCursor cursor, int max) throws InterruptedException {
+        int n = transfer(cursor, () -> pollBatchAny(cursor, max), false);
+        waiters.wake(false, n); // 腾出了 n 个位置，最多唤醒 n 个生产者 // n positions were freed, so wake up to n producers
+        return n;
+    }
+
+    // 尝试一次，失败后按等待策略自旋，仍不成功才挂起，直到对方放入或取走数据后直接唤醒；统计时都记在本地分片的第一个位置上
+    // Try once, spin as the wait strategy says on failure, and only then park until the other side wakes us; metrics are charged to the home shard's first position
+    private int transfer(BufferCursor cursor, IntSupplier attempt, boolean produce) throws InterruptedException {
+        boolean timed = probe.enabled(); // 关闭统计时不读取时钟 // Skip the clock entirely when metrics are off
+        long startAt = timed ? System.nanoTime() : 0;
+        int slot = offsets[home(cursor)];
+        int result = attempt.getAsInt();
+        if (result < 0) {
+            result = wait.spin(cursor, attempt);
+        }
+        if (result >= 0) {
+            if (timed) {
+                probe.acquired(cursor.kind, cursor.id, slot, System.nanoTime() - startAt);
+            }
+            return result;
+        }
+
+        cursor.waits++;
+        log.publish(cursor.kind, cursor.id, slot, produce ? EventLog.WAIT_FULL : EventLog.WAIT_EMPTY);
+        long waitAt = timed ? System.nanoTime() : 0;
+        result = waiters.await(produce, attempt);
+        wait.finished(cursor);
+        if (timed) {
+            probe.acquired(cursor.kind, cursor.id, slot, waitAt - startAt);
+            probe.waited(cursor.kind, cursor.id, slot, System.nanoTime() - waitAt);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean tryTake(BufferCursor cursor) {
+        if (pollAny(cursor) < 0) {
+            return false;
+        }
+        waiters.wake(false, 1);
+        return true;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public long stolen() {
+        return stolen.sum();
+    }
+
+    public long spilled() {
+        return spilled.sum();
+    }
+}
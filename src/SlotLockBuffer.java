@@ -0,0 +1,204 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class SlotLockBuffer implements BoundedBuffer {
+    // 以 acquire 语义读取标记数组，使锁外的初步检查能看到其他线程的最新写入；写入用 volatile，与等待者登记之后的复查配对
+    // Reads the flag array with acquire semantics so the unlocked pre-check sees other threads' latest writes; writes are volatile, pairing with a waiter's re-check after it registers
+    private static final VarHandle PRODUCED = MethodHandles.arrayElementVarHandle(boolean[].class);
+
+    // 锁数组，用于同步各个缓冲区位置
+    // Lock array used to synchronize each buffer position
+    private final Lock[] locks;
+
+    // 整个缓冲区满或空时使用的等待者。等待者不能只守着某一个位置：别的位置腾出或放入时不会通知它，数据就会被困住
+    // Waiters used only when the whole buffer is full or empty. A waiter cannot watch a single position, since freeing or filling any other position would never reach it and items would be stranded
+    private final BufferWaiters waiters = new BufferWaiters();
+
+    // 标记缓冲区位置是否有生产的数据
+    // Indicates whether each buffer position has produced data
+    private final boolean[] bufferProduced;
+
+    // 用于记录模拟过程的事件日志
+    // Event log recording the simulation
+    private final EventLog log;
+
+    // 竞争统计探针
+    // Contention metrics probe
+    private final SyncProbe probe;
+
+    // 扫描一整圈都落空之后如何等待
+    // How to wait after a full lap of the scan came up empty
+    private final WaitStrategy wait;
+
+    // 缓冲区大小
+    // Size of the buffer
+    private final int bufferSize;
+
+    public SlotLockBuffer(int bufferSize, WaitStrategy wait, EventLog log, SyncProbe probe) {
+        this.bufferSize = bufferSize;
+        this.log = log;
+        this.probe = probe;
+        this.wait = wait;
+        this.locks = new ReentrantLock[bufferSize];
+        this.bufferProduced = new boolean[bufferSize]; // 初始化为未生产状态 // Initialized as unproduced
+        for (int i = 0; i < bufferSize; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public int put(BufferCursor cursor) throws InterruptedException {
+        return scan(cursor, true);
+    }
+
+    @Override
+    public int take(BufferCursor cursor) throws InterruptedException {
+        return scan(cursor, false);
+    }
+
+    // 从上次的位置开始遍历缓冲区，在第一个空位生产（produce 为 true），或从第一个有数据的位置消费
+    // Walk the buffer from where the last scan stopped and produce into the first free position (produce is true), or consume from the first filled one
+    private int scan(BufferCursor cursor, boolean produce) throws InterruptedException {
+        for (int i = cursor.position, scanned = 1; ; i = (i + 1) % bufferSize, scanned++) {
+            // 线程被中断时停止扫描，否则缓冲区全满或全空时将永远无法退出
+            // Stop scanning once interrupted, otherwise a completely full or empty buffer would spin forever
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            // 扫描一整圈都落空时按等待策略自旋或让出，之前各圈的检查都算作落空的尝试；策略要求挂起时，改为在整个缓冲区的条件变量上等待
+            // After a full lap that came up empty, spin or yield as the wait strategy says, counting every check of the earlier laps as a failed attempt; once it says park, wait on the buffer-wide condition instead
+            if (scanned % bufferSize == 0 && !wait.idle(cursor, scanned - bufferSize)) {
+                i = await(cursor, produce);
+                wait.finished(cursor); // 这次经历了等待 // This call had to wait
+                cursor.position = (i + 1) % bufferSize;
+                return i;
+            }
+            // 初步检查通过后加锁交接；加锁后复查失败（被别人抢先）就接着扫描
+            // Lock and hand over once the pre-check passes; if the re-check under the lock fails (someone got there first), keep scanning
+            if (transfer(cursor, i, produce, true)) {
+                if (scanned >= bufferSize) {
+                    wait.finished(cursor); // 这次经历了等待 // This call had to wait
+                }
+                cursor.position = (i + 1) % bufferSize;
+                return i;
+            }
+        }
+    }
+
+    // 缓冲区满或空：先登记再复查一整圈，仍然落空才挂起，直到对方交接之后直接唤醒；返回交接的位置
+    // Buffer full or empty: register, then re-check a whole lap, and park only if that fails too, until the other side hands over and wakes us; returns the position handed over
+    private int await(BufferCursor cursor, boolean produce) throws InterruptedException {
+        cursor.waits++;
+        log.publish(cursor.kind, cursor.id, cursor.position, produce ? EventLog.WAIT_FULL : EventLog.WAIT_EMPTY);
+        boolean timed = probe.enabled(); // 关闭统计时不读取时钟 // Skip the clock entirely when metrics are off
+        long waitAt = timed ? System.nanoTime() : 0;
+        int slot = waiters.await(produce, () -> lap(cursor, produce));
+        if (timed) {
+            probe.waited(cursor.kind, cursor.id, slot, System.nanoTime() - waitAt);
+        }
+        return slot;
+    }
+
+    // 从上次的位置开始检查一整圈，在第一个状态合适的位置交接；一个都没有时返回 -1
+    // Check one whole lap from where the last scan stopped and hand over at the first position in the right state; returns -1 if there is none
+    private int lap(BufferCursor cursor, boolean produce) {
+        for (int k = 0, i = cursor.position; k < bufferSize; k++, i = (i + 1) % bufferSize) {
+            // 与交接之后读取等待者数配对：登记之后的这次读取一定能看到登记之前完成的交接
+            // Paired with reading the waiter count after a hand-over: this read, made after registering, always sees a hand-over completed before it
+            if ((boolean) PRODUCED.getVolatile(bufferProduced, i) != produce && transfer(cursor, i, produce, true)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // 每个位置各有一把锁，批量生产时先按 put 等到并填好第一个空位，再顺着往后用 tryLock 连续占下紧接着的空位，不再等待也不从头扫描
+    // Each position has its own lock, so a batch first fills one position as put does, then walks on and claims the directly following free positions with tryLock, never waiting or rescanning
+    @Override
+    public int putBatch(BufferCursor cursor, int max) throws InterruptedException {
+        put(cursor);
+        int n = 1;
+        while (n < max && transfer(cursor, cursor.position, true, false)) {
+            cursor.position = (cursor.position + 1) % bufferSize;
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public int takeBatch(BufferCursor cursor, int max) throws InterruptedException {
+        take(cursor);
+        int n = 1;
+        while (n < max && transfer(cursor, cursor.position, false, false)) {
+            cursor.position = (cursor.position + 1) % bufferSize;
+            n++;
+        }
+        return n;
+    }
+
+    // 在位置 i 生产（produce 为 true）或消费；block 为 true 时等待这个位置的锁，否则锁被占用就放弃。位置状态不对或放弃时返回 false
+    // Produce (produce is true) or consume at position i; with block, wait for the position's lock, otherwise give up when it is taken. Returns false if the position is in the wrong state or we gave up
+    private boolean transfer(BufferCursor cursor, int i, boolean produce, boolean block) {
+        // 初步检查，减少锁定时间
+        // Preliminary check to reduce lock holding time
+        if ((boolean) PRODUCED.getAcquire(bufferProduced, i) == produce) {
+            return false;
+        }
+        boolean timed = probe.enabled(); // 关闭统计时不读取时钟 // Skip the clock entirely when metrics are off
+        long lockAt = timed ? System.nanoTime() : 0;
+        if (block) {
+            locks[i].lock(); // 锁定当前缓冲区位置 // Lock the current buffer position
+        } else if (!locks[i].tryLock()) {
+            return false;
+        }
+        if (bufferProduced[i] == produce) {
+            // 加锁后复查失败：没有交接，也不记入统计和轨迹
+            // The re-check under the lock failed: nothing was handed over, so nothing goes into the metrics or the trace
+            locks[i].unlock();
+            return false;
+        }
+        long heldAt = timed ? System.nanoTime() : 0;
+        if (timed) {
+            probe.acquired(cursor.kind, cursor.id, i, heldAt - lockAt);
+        }
+        try {
+            if (cursor.visitor != null) {
+                cursor.visitor.visit(i); // 原地读写数据 // Read or write the data in place
+            }
+            probe.transferred(cursor.kind, cursor.id, i); // 交接之前记入轨迹 // Trace the hand-over before it happens
+            PRODUCED.setVolatile(bufferProduced, i, produce);
+            log.publish(cursor.kind, cursor.id, i, produce ? EventLog.PRODUCED : EventLog.CONSUMED);
+        } finally {
+            // 在解锁之前记下释放，轨迹中下一个拿到这把锁的参与者一定排在后面
+            // Record the release before unlocking, so the next actor to take this lock always comes later in the trace
+            if (timed) {
+                probe.released(cursor.kind, cursor.id, i, System.nanoTime() - heldAt);
+            }
+            locks[i].unlock(); // 解锁当前缓冲区位置 // Unlock the current buffer position
+        }
+        // 只有确有对方在等待时才加锁唤醒一个
+        // Lock and wake one only when someone on the other side is actually waiting
+        waiters.wake(produce, 1);
+        return true;
+    }
+
+    // 从上次的位置开始扫描一圈，用 tryLock 取走第一个有数据的位置；锁被占用的位置跳过
+    // Scan one lap from where the last scan stopped and take the first filled position with tryLock; positions whose lock is taken are skipped
+    @Override
+    public boolean tryTake(BufferCursor cursor) {
+        for (int k = 0, i = cursor.position; k < bufferSize; k++, i = (i + 1) % bufferSize) {
+            if (transfer(cursor, i, false, false)) {
+                cursor.position = (i + 1) % bufferSize;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int capacity() {
+        return bufferSize;
+    }
+}
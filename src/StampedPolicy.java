@@ -0,0 +1,80 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+public class StampedPolicy implements ReadWritePolicy {
+    // 支持乐观读的 StampedLock
+    // StampedLock, which supports optimistic reads
+    private final StampedLock lock = new StampedLock();
+
+    // 正在读的读者数（含乐观读），仅用于统计
+    // Readers currently reading, optimistic ones included; only used for statistics
+    private final AtomicInteger readers = new AtomicInteger();
+
+    @Override
+    public long tryAcquireRead() {
+        // 乐观读不加任何锁，只取一个版本戳，读者之间完全没有竞争
+        // An optimistic read takes no lock at all, only a version stamp, so readers never contend
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            readers.incrementAndGet();
+        }
+        return stamp;
+    }
+
+    @Override
+    public long acquireRead() throws InterruptedException {
+        long stamp = tryAcquireRead();
+        return stamp != 0 ? stamp : acquireReadPessimistic();
+    }
+
+    @Override
+    public long acquireReadPessimistic() throws InterruptedException {
+        long stamp = lock.readLockInterruptibly();
+        readers.incrementAndGet();
+        return stamp;
+    }
+
+    @Override
+    public boolean releaseRead(long token) {
+        readers.decrementAndGet();
+        if (StampedLock.isOptimisticReadStamp(token)) {
+            return lock.validate(token); // 期间没有写者写入时才有效 // Valid only if no writer wrote in between
+        }
+        lock.unlockRead(token);
+        return true;
+    }
+
+    // 写锁的版本戳；只有持有写锁的写者会访问
+    // Stamp of the write lock; only accessed by the writer holding it
+    private long writeStamp = 0;
+
+    @Override
+    public boolean tryAcquireWrite() {
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0) {
+            return false;
+        }
+        writeStamp = stamp;
+        return true;
+    }
+
+    @Override
+    public void acquireWrite() throws InterruptedException {
+        writeStamp = lock.writeLockInterruptibly();
+    }
+
+    @Override
+    public void releaseWrite() {
+        lock.unlockWrite(writeStamp);
+    }
+
+    @Override
+    public int readerCount() {
+        return readers.get();
+    }
+
+    @Override
+    public boolean isWriteLocked() {
+        return lock.isWriteLocked();
+    }
+}
@@ -0,0 +1,413 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StressHarness {
+    // 压力测试的参数
+    // Parameters of the stress run
+    static class Options {
+        long items = 1_000_000;
+        long rwOps = 200_000;
+        int trials = 2;
+        int maxThreads = 8;
+        BufferEngine[] engines = BufferEngine.values();
+        LockPolicy[] policies = LockPolicy.values();
+        long writerWaitMillis = 2000;
+        long stallMillis = 5000;
+        int litmus = 100_000;
+        long seed = System.nanoTime();
+
+        // 解析命令行参数，例如 --items 2000000 --trials 3 --engines ring,sharded --policies fair,rcu --seed 42
+        // Parse command line arguments, e.g. --items 2000000 --trials 3 --engines ring,sharded --policies fair,rcu --seed 42
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--items" -> options.items = Long.parseLong(value);
+                    case "--rw-ops" -> options.rwOps = Long.parseLong(value);
+                    case "--trials" -> options.trials = Integer.parseInt(value);
+                    case "--max-threads" -> options.maxThreads = Integer.parseInt(value);
+                    case "--engines" -> options.engines = Arrays.stream(value.split(",")).map(String::trim).map(BufferEngine::of).toArray(BufferEngine[]::new);
+                    case "--policies" -> options.policies = Arrays.stream(value.split(",")).map(String::trim).map(LockPolicy::of).toArray(LockPolicy[]::new);
+                    case "--writer-wait-ms" -> options.writerWaitMillis = Long.parseLong(value);
+                    case "--stall-ms" -> options.stallMillis = Long.parseLong(value);
+                    case "--litmus" -> options.litmus = Integer.parseInt(value);
+                    case "--seed" -> options.seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            if (options.items < 1 || options.rwOps < 1 || options.trials < 0 || options.maxThreads < 1 || options.writerWaitMillis < 1
+                    || options.stallMillis < 1 || options.litmus < 0) {
+                throw new IllegalArgumentException("Counts, thread limit and times must be positive");
+            }
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            return "items=" + items + " rw-ops=" + rwOps + " trials=" + trials + " max-threads=" + maxThreads + " writer-wait-ms=" + writerWaitMillis
+                    + " stall-ms=" + stallMillis + " litmus=" + litmus + " seed=" + seed;
+        }
+    }
+
+    // 一次检查的结果：随机选出的设置、操作数、耗时，以及发现的问题；没有问题即通过
+    // Result of one check: the randomly chosen settings, the operations, the time taken and the problems found; none means it passed
+    static class Check {
+        final String name;
+        final String settings;
+        long operations;
+        long elapsedNanos;
+        final List<String> problems = new ArrayList<>();
+
+        // 允许出现但需要提醒的情况，例如读者优先策略下的写者饥饿
+        // Findings that are allowed but worth a note, such as writer starvation under reader preference
+        final List<String> warnings = new ArrayList<>();
+
+        Check(String name, String settings) {
+            this.name = name;
+            this.settings = settings;
+        }
+
+        String report() {
+            StringBuilder out = new StringBuilder(String.format("%-5s %-18s %-60s %10d ops in %.3f s%n",
+                    !problems.isEmpty() ? "FAIL" : !warnings.isEmpty() ? "WARN" : "PASS", name, settings, operations, elapsedNanos / 1e9));
+            for (String problem : problems) {
+                out.append("      ").append(problem).append(System.lineSeparator());
+            }
+            for (String warning : warnings) {
+                out.append("      ").append(warning).append(System.lineSeparator());
+            }
+            return out.toString();
+        }
+    }
+
+    // 运行一组线程并监视进度：长时间没有进展时用 ThreadMXBean 找死锁，找不到就记为停滞，之后中断所有线程
+    // Run a group of threads and watch their progress: when nothing moves for too long, look for a deadlock with ThreadMXBean, call it a stall if there is none, then interrupt every thread
+    static void supervise(List<Thread> threads, LongAdder progress, long stallMillis, Check check) throws InterruptedException {
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long last = -1;
+        long lastMoved = System.nanoTime();
+        while (threads.stream().anyMatch(Thread::isAlive)) {
+            Thread.sleep(20);
+            long now = System.nanoTime();
+            long done = progress.sum();
+            if (done != last) {
+                last = done;
+                lastMoved = now;
+            } else if (now - lastMoved > stallMillis * 1_000_000) {
+                check.problems.add(diagnose(threads, stallMillis));
+                for (Thread thread : threads) {
+                    thread.interrupt();
+                }
+                for (Thread thread : threads) {
+                    thread.join(1000);
+                }
+                break;
+            }
+        }
+        check.elapsedNanos = System.nanoTime() - start;
+    }
+
+    // 死锁时列出互相等待的线程和锁；停滞时（例如丢失唤醒，所有线程都挂起在条件变量上）列出每个未结束线程停在哪里
+    // On a deadlock, list the threads and the locks they wait on; on a stall (a lost wakeup, say, with every thread parked on a condition) list where each live thread is stuck
+    private static String diagnose(List<Thread> threads, long stallMillis) {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long[] deadlocked = mx.findDeadlockedThreads();
+        StringBuilder out = new StringBuilder();
+        if (deadlocked != null) {
+            out.append("deadlock:");
+            for (ThreadInfo info : mx.getThreadInfo(deadlocked)) {
+                if (info != null) {
+                    out.append(String.format("%n        %s waits for %s held by %s", info.getThreadName(), info.getLockName(), info.getLockOwnerName()));
+                }
+            }
+            return out.toString();
+        }
+        out.append("stall: no progress for ").append(stallMillis).append(" ms, no deadlock cycle found");
+        for (Thread thread : threads) {
+            if (thread.isAlive()) {
+                StackTraceElement[] stack = thread.getStackTrace();
+                out.append(String.format("%n        %s %s at %s", thread.getName(), thread.getState(), stack.length > 0 ? stack[0] : "?"));
+            }
+        }
+        return out.toString();
+    }
+
+    // 缓冲区：随机的生产者数、消费者数、容量、批量大小和等待策略。每个数据项带着唯一编号经过缓冲区位置，消费者在位图中登记，重复的和缺失的都是错误
+    // Buffers: random producer and consumer counts, capacity, batch size and wait strategy. Every item carries a unique number through its buffer position and consumers mark it in a bitmap; duplicates and missing items are errors
+    static Check bufferTrial(BufferEngine engine, Random random, Options options) throws InterruptedException {
+        int producers = 1 + random.nextInt(options.maxThreads);
+        int consumers = 1 + random.nextInt(options.maxThreads);
+        int bufferSize = 1 + random.nextInt(64);
+        int batch = random.nextBoolean() ? 1 : 2 + random.nextInt(7);
+        WaitStrategy wait = engine.defaultWait();
+        if (engine.hasWaitStrategy()) {
+            // 处理器不够每个线程一个时不用忙等，否则只是在等时间片
+            // Busy-spinning is left out when there are fewer processors than threads, where it only waits for time slices
+            List<WaitStrategy> waits = new ArrayList<>(List.of(WaitStrategy.values()));
+            if (Runtime.getRuntime().availableProcessors() < producers + consumers) {
+                waits.remove(WaitStrategy.BUSY_SPIN);
+            }
+            wait = waits.get(random.nextInt(waits.size()));
+        }
+        long items = options.items;
+        Check check = new Check(engine.toString(), String.format("producers=%d consumers=%d buffer=%d batch=%d wait=%s",
+                producers, consumers, bufferSize, batch, wait));
+
+        BoundedBuffer buffer = engine.create(bufferSize, ShardedBuffer.shardsFor(producers, consumers), wait, EventLog.DISABLED, SyncProbe.NONE);
+        boolean positions = engine.hasPositions();
+        long[] carried = positions ? new long[buffer.capacity()] : null;
+        AtomicLongArray seen = new AtomicLongArray((int) ((items + 63) / 64));
+        LongAdder duplicates = new LongAdder();
+        LongAdder foreign = new LongAdder();
+        LongAdder produced = new LongAdder();
+        LongAdder consumed = new LongAdder();
+        LongAdder progress = new LongAdder();
+        AtomicLong unclaimed = new AtomicLong(items);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            // 编号区间 [first, first + quota) 属于这个生产者
+            // Numbers [first, first + quota) belong to this producer
+            long first = items * p / producers;
+            long quota = items * (p + 1) / producers - first;
+            BufferCursor cursor = new BufferCursor(EventLog.PRODUCER, p);
+            long[] next = {first};
+            if (positions) {
+                cursor.visitor = slot -> carried[slot] = next[0]++;
+            }
+            threads.add(Thread.ofPlatform().name("stress-producer-" + p).unstarted(() -> {
+                try {
+                    for (long left = quota; left > 0; ) {
+                        int n = batch > 1 ? buffer.putBatch(cursor, (int) Math.min(batch, left)) : 1;
+                        if (batch == 1) {
+                            buffer.put(cursor);
+                        }
+                        left -= n;
+                        produced.add(n);
+                        progress.add(n);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            BufferCursor cursor = new BufferCursor(EventLog.CONSUMER, c);
+            if (positions) {
+                cursor.visitor = slot -> {
+                    long item = carried[slot];
+                    if (item < 0 || item >= items) {
+                        foreign.increment();
+                        return;
+                    }
+                    long bit = 1L << (item & 63);
+                    if ((seen.getAndAccumulate((int) (item >>> 6), bit, (a, b) -> a | b) & bit) != 0) {
+                        duplicates.increment();
+                    }
+                };
+            }
+            threads.add(Thread.ofPlatform().name("stress-consumer-" + c).unstarted(() -> {
+                try {
+                    // 先认领要取的个数，认领的总数恰好等于生产的总数，所有消费者都能结束
+                    // Claim how many to take first; the claims add up to exactly what is produced, so every consumer can finish
+                    while (true) {
+                        long left = unclaimed.get();
+                        if (left <= 0) {
+                            return;
+                        }
+                        int claim = (int) Math.min(batch, left);
+                        if (!unclaimed.compareAndSet(left, left - claim)) {
+                            continue;
+                        }
+                        for (int got = 0; got < claim; ) {
+                            int n = batch > 1 ? buffer.takeBatch(cursor, claim - got) : 1;
+                            if (batch == 1) {
+                                buffer.take(cursor);
+                            }
+                            got += n;
+                            consumed.add(n);
+                            progress.add(n);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        supervise(threads, progress, options.stallMillis, check);
+
+        check.operations = produced.sum() + consumed.sum();
+        if (consumed.sum() != produced.sum()) {
+            check.problems.add(String.format("%d produced but %d consumed", produced.sum(), consumed.sum()));
+        }
+        if (positions) {
+            long distinct = 0;
+            for (int i = 0; i < seen.length(); i++) {
+                distinct += Long.bitCount(seen.get(i));
+            }
+            if (duplicates.sum() > 0 || foreign.sum() > 0 || distinct != consumed.sum() - duplicates.sum() - foreign.sum()) {
+                check.problems.add(String.format("%d items consumed twice, %d unknown items", duplicates.sum(), foreign.sum()));
+            }
+            if (check.problems.isEmpty() && distinct != items) {
+                check.problems.add(String.format("%d items never consumed", items - distinct));
+            }
+        } else {
+            check.warnings.add("no positions, so only the counts are checked");
+        }
+        return check;
+    }
+
+    // 读者-写者：随机的读者数和写者数。写者进出时各把计数加一（奇数表示在写），读者前后各读一次，不同或为奇数说明与写者重叠；写者之间用进入人数检查互斥；写者等锁的时间不得超过上限
+    // Reader-writer: random reader and writer counts. A writer bumps a counter on entry and on exit (odd means writing); a reader reads it before and after, and a change or an odd value means it overlapped a writer. Writers check each other with an occupancy count, and a writer may not wait longer than the bound
+    static Check rwTrial(LockPolicy policy, Random random, Options options) throws InterruptedException {
+        int readers = 1 + random.nextInt(options.maxThreads * 2);
+        int writers = 1 + random.nextInt(Math.max(1, options.maxThreads / 2));
+        Check check = new Check(policy.toString(), String.format("readers=%d writers=%d", readers, writers));
+        ReadWritePolicy lock = policy.create();
+        boolean rcu = lock instanceof RcuPolicy;
+
+        AtomicLong writeEpoch = new AtomicLong();
+        AtomicInteger writersInside = new AtomicInteger();
+        LongAdder readOverlaps = new LongAdder();
+        LongAdder writeOverlaps = new LongAdder();
+        LatencyHistogram writerWait = new LatencyHistogram();
+        LongAdder progress = new LongAdder();
+        AtomicLong unclaimed = new AtomicLong(options.rwOps);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            threads.add(Thread.ofPlatform().name("stress-reader-" + r).unstarted(() -> {
+                try {
+                    while (unclaimed.getAndDecrement() > 0) {
+                        long token = lock.acquireRead();
+                        while (true) {
+                            long before = writeEpoch.get();
+                            Thread.onSpinWait();
+                            long after = writeEpoch.get();
+                            // 乐观读失效时丢弃这次读，加读锁重读
+                            // An invalidated optimistic read is thrown away and redone under a read lock
+                            if (lock.releaseRead(token)) {
+                                if (!rcu && ((before & 1) != 0 || before != after)) {
+                                    readOverlaps.increment();
+                                }
+                                break;
+                            }
+                            token = lock.acquireReadPessimistic();
+                        }
+                        progress.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int w = 0; w < writers; w++) {
+            threads.add(Thread.ofPlatform().name("stress-writer-" + w).unstarted(() -> {
+                try {
+                    while (unclaimed.getAndDecrement() > 0) {
+                        long wantedAt = System.nanoTime();
+                        lock.acquireWrite();
+                        writerWait.record(System.nanoTime() - wantedAt);
+                        try {
+                            if (writersInside.incrementAndGet() != 1) {
+                                writeOverlaps.increment();
+                            }
+                            writeEpoch.incrementAndGet();
+                            Thread.onSpinWait();
+                            writeEpoch.incrementAndGet();
+                            writersInside.decrementAndGet();
+                        } finally {
+                            lock.releaseWrite();
+                        }
+                        progress.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        supervise(threads, progress, options.stallMillis, check);
+
+        check.operations = progress.sum();
+        if (readOverlaps.sum() > 0) {
+            check.problems.add(readOverlaps.sum() + " reads overlapped a writer");
+        }
+        if (writeOverlaps.sum() > 0) {
+            check.problems.add(writeOverlaps.sum() + " writes overlapped another writer");
+        }
+        if (rcu && ((RcuPolicy) lock).tornReads() > 0) {
+            check.problems.add(((RcuPolicy) lock).tornReads() + " torn snapshots");
+        }
+        double maxWaitMillis = writerWait.max() / 1e6;
+        if (maxWaitMillis > options.writerWaitMillis) {
+            String starved = String.format("writer starved: waited up to %.1f ms, bound %d ms", maxWaitMillis, options.writerWaitMillis);
+            // 读者优先策略本来就允许写者饥饿
+            // Reader preference allows writer starvation by design
+            if (policy == LockPolicy.READER_PREFERENCE) {
+                check.warnings.add(starved + " (allowed under reader preference)");
+            } else {
+                check.problems.add(starved);
+            }
+        }
+        return check;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: stress [--items N] [--rw-ops N] [--trials N] [--max-threads N] [--engines E1,E2,...] [--policies P1,P2,...]"
+                    + " [--writer-wait-ms T] [--stall-ms T] [--litmus ITERATIONS] [--seed S]");
+            System.exit(2);
+            return;
+        }
+        System.out.println("Stress run: " + options);
+        // 同一个种子得到同样的随机设置，便于重现失败
+        // The same seed gives the same random settings, so a failure can be reproduced
+        Random random = new Random(options.seed);
+        int failures = 0;
+        for (BufferEngine engine : options.engines) {
+            for (int t = 0; t < options.trials; t++) {
+                Check check = bufferTrial(engine, random, options);
+                System.out.print(check.report());
+                failures += check.problems.isEmpty() ? 0 : 1;
+            }
+        }
+        for (LockPolicy policy : options.policies) {
+            for (int t = 0; t < options.trials; t++) {
+                Check check = rwTrial(policy, random, options);
+                System.out.print(check.report());
+                failures += check.problems.isEmpty() ? 0 : 1;
+            }
+        }
+        if (options.litmus > 0) {
+            System.out.println("Litmus tests, " + options.litmus + " iterations each:");
+            for (LitmusTests.Test<?> test : LitmusTests.all()) {
+                LitmusTests.Result result = LitmusTests.run(test, options.litmus);
+                System.out.print(result.report());
+                failures += result.forbidden() ? 1 : 0;
+            }
+        }
+        System.out.println(failures == 0 ? "All checks passed." : failures + " checks failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
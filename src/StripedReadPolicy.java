@@ -0,0 +1,163 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class StripedReadPolicy implements ReadWritePolicy {
+    // 每个计数器占 16 个 long（128 字节），不同分片不共享缓存行
+    // Each counter takes 16 longs (128 bytes) so different stripes never share a cache line
+    private static final int STRIDE = 16;
+
+    // 分片数为 2 的幂，读者按线程号落到某个分片，只修改自己分片的计数
+    // The stripe count is a power of two; a reader is hashed to a stripe by thread id and only touches that stripe's counter
+    private final int stripes;
+    private final AtomicLongArray counters;
+
+    // 写者是否正在写（或正在等读者离开）；读者看到它后退出快速路径
+    // Whether a writer is writing (or draining readers); readers that see it leave the fast path
+    private volatile boolean writerActive = false;
+
+    // 正在等读者离开的写者线程，最后离开的读者直接唤醒它
+    // Writer thread waiting for readers to drain; the last reader to leave unparks it directly
+    private volatile Thread drainingWriter = null;
+
+    // 写者之间互斥的锁
+    // Lock making writers mutually exclusive
+    private final ReentrantLock writerLock = new ReentrantLock();
+
+    // 读者在慢速路径上等待写者结束的锁和条件变量
+    // Lock and condition on which slow-path readers wait for the writer to finish
+    private final ReentrantLock gate = new ReentrantLock();
+    private final Condition writerDone = gate.newCondition();
+
+    public StripedReadPolicy() {
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+        this.stripes = n;
+        this.counters = new AtomicLongArray(n * STRIDE);
+    }
+
+    private int stripe() {
+        long h = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L; // 打散连续的线程号 // Spread consecutive thread ids
+        return (int) (h >>> 40) & (stripes - 1);
+    }
+
+    @Override
+    public long tryAcquireRead() {
+        // 快速路径：先登记再检查写者，与写者“先置标志再检查计数”配对，两边至少有一方能看到对方
+        // Fast path: register first, then check for a writer; paired with the writer's "set flag, then check counts" so at least one side sees the other
+        int s = stripe();
+        counters.incrementAndGet(s * STRIDE);
+        if (!writerActive) {
+            return s + 1;
+        }
+        leave(s); // 有写者，撤销登记 // A writer is active, withdraw
+        return 0;
+    }
+
+    @Override
+    public long acquireRead() throws InterruptedException {
+        while (true) {
+            long token = tryAcquireRead();
+            if (token != 0) {
+                return token;
+            }
+            gate.lockInterruptibly();
+            try {
+                while (writerActive) {
+                    writerDone.await();
+                }
+            } finally {
+                gate.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean releaseRead(long token) {
+        leave((int) token - 1);
+        return true;
+    }
+
+    // 离开一个分片；有写者在等读者离开时唤醒它，由它自己重新检查计数
+    // Leave a stripe; if a writer is draining readers, wake it so it re-checks the counts itself
+    private void leave(int s) {
+        counters.decrementAndGet(s * STRIDE);
+        if (writerActive) {
+            Thread writer = drainingWriter;
+            if (writer != null) {
+                LockSupport.unpark(writer);
+            }
+        }
+    }
+
+    // 所有分片上的读者总数
+    // Total number of readers across all stripes
+    private long sum() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += counters.get(i * STRIDE);
+        }
+        return total;
+    }
+
+    @Override
+    public boolean tryAcquireWrite() {
+        if (!writerLock.tryLock()) {
+            return false;
+        }
+        writerActive = true;
+        if (sum() != 0) {
+            finishWrite(); // 仍有读者，放弃 // Readers are still inside, back off
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void acquireWrite() throws InterruptedException {
+        writerLock.lockInterruptibly();
+        drainingWriter = Thread.currentThread();
+        writerActive = true; // 撤销读者的快速路径 // Revoke the readers' fast path
+        try {
+            // 挂起等待已经进入的读者全部离开
+            // Park until the readers already inside have left
+            while (sum() != 0) {
+                if (Thread.interrupted()) {
+                    finishWrite();
+                    throw new InterruptedException();
+                }
+                LockSupport.park(this);
+            }
+        } finally {
+            drainingWriter = null;
+        }
+    }
+
+    @Override
+    public void releaseWrite() {
+        finishWrite();
+    }
+
+    // 清除写者标志，唤醒慢速路径上的读者并释放写者锁
+    // Clear the writer flag, wake slow-path readers and release the writer lock
+    private void finishWrite() {
+        writerActive = false;
+        gate.lock();
+        try {
+            writerDone.signalAll();
+        } finally {
+            gate.unlock();
+        }
+        writerLock.unlock();
+    }
+
+    @Override
+    public int readerCount() {
+        return (int) sum();
+    }
+
+    @Override
+    public boolean isWriteLocked() {
+        return writerActive;
+    }
+}
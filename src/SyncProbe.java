@@ -0,0 +1,84 @@
+public interface SyncProbe {
+    // 不做任何记录的探针；关闭统计时使用，调用方先检查 enabled() 以免读取时钟
+    // A probe that records nothing, used when instrumentation is off; callers check enabled() first so they skip reading the clock
+    SyncProbe NONE = new SyncProbe() {
+        @Override
+        public boolean enabled() {
+            return false;
+        }
+
+        @Override
+        public void acquired(int kind, int id, int slot, long acquireNanos) {
+        }
+
+        @Override
+        public void released(int kind, int id, int slot, long holdNanos) {
+        }
+
+        @Override
+        public void waited(int kind, int id, int slot, long waitNanos) {
+        }
+    };
+
+    // 是否在记录；为 false 时调用方不应计时
+    // Whether anything is recorded; when false callers should not time anything
+    boolean enabled();
+
+    // 参与者花了 acquireNanos 拿到 slot 位置的锁（不含在条件变量上等待的时间）
+    // The actor took acquireNanos to obtain the lock of position slot (excluding time parked on a condition)
+    void acquired(int kind, int id, int slot, long acquireNanos);
+
+    // 参与者持有 slot 位置的锁 holdNanos 后释放
+    // The actor released the lock of position slot after holding it for holdNanos
+    void released(int kind, int id, int slot, long holdNanos);
+
+    // 参与者因缓冲区满、空或写者占用而在 slot 位置上等待了 waitNanos
+    // The actor waited waitNanos at position slot because the buffer was full or empty, or a writer held the resource
+    void waited(int kind, int id, int slot, long waitNanos);
+
+    // 参与者在 slot 位置上完成了一次生产或消费，在位置交给对方之前调用；统计不关心它，轨迹靠它按位置重放
+    // The actor produced into or consumed from position slot; called before the position is handed over. Metrics ignore it, traces replay by it
+    default void transferred(int kind, int id, int slot) {
+    }
+
+    // 把两个探针合成一个，两者都会收到每次回调；其中一个是 NONE 时直接返回另一个
+    // Combine two probes into one that forwards every callback to both; returns the other one directly when either is NONE
+    static SyncProbe combine(SyncProbe first, SyncProbe second) {
+        if (first == NONE) {
+            return second;
+        }
+        if (second == NONE) {
+            return first;
+        }
+        return new SyncProbe() {
+            @Override
+            public boolean enabled() {
+                return true;
+            }
+
+            @Override
+            public void acquired(int kind, int id, int slot, long acquireNanos) {
+                first.acquired(kind, id, slot, acquireNanos);
+                second.acquired(kind, id, slot, acquireNanos);
+            }
+
+            @Override
+            public void released(int kind, int id, int slot, long holdNanos) {
+                first.released(kind, id, slot, holdNanos);
+                second.released(kind, id, slot, holdNanos);
+            }
+
+            @Override
+            public void waited(int kind, int id, int slot, long waitNanos) {
+                first.waited(kind, id, slot, waitNanos);
+                second.waited(kind, id, slot, waitNanos);
+            }
+
+            @Override
+            public void transferred(int kind, int id, int slot) {
+                first.transferred(kind, id, slot);
+                second.transferred(kind, id, slot);
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+public class TimeDistribution {
+    // 分布类型
+    // Kind of distribution
+    private enum Kind { FIXED, UNIFORM, EXPONENTIAL }
+
+    private final Kind kind;
+
+    // 固定值或均值、最小值、最大值（毫秒）
+    // Fixed value or mean, minimum and maximum in milliseconds
+    private final double mean;
+    private final double min;
+    private final double max;
+
+    // 原始描述，用于显示
+    // Original specification, used for display
+    private final String spec;
+
+    private TimeDistribution(Kind kind, double mean, double min, double max, String spec) {
+        this.kind = kind;
+        this.mean = mean;
+        this.min = min;
+        this.max = max;
+        this.spec = spec;
+    }
+
+    public static TimeDistribution fixed(double millis) {
+        return new TimeDistribution(Kind.FIXED, millis, millis, millis, Double.toString(millis));
+    }
+
+    // 解析描述：
+    //   200            固定 200 毫秒
+    //   uniform:50-300 在 50 到 300 毫秒之间均匀分布
+    //   exp:200        均值 200 毫秒的指数分布
+    //   rate:5         每秒 5 次的泊松到达，即均值 200 毫秒的指数间隔
+    // Parse a specification:
+    //   200            fixed 200 ms
+    //   uniform:50-300 uniform between 50 and 300 ms
+    //   exp:200        exponential with a mean of 200 ms
+    //   rate:5         Poisson arrivals at 5 per second, i.e. exponential gaps with a mean of 200 ms
+    public static TimeDistribution parse(String spec) {
+        String text = spec.trim();
+        try {
+            if (text.startsWith("uniform:")) {
+                String[] range = text.substring("uniform:".length()).split("-");
+                double low = Double.parseDouble(range[0]);
+                double high = Double.parseDouble(range[1]);
+                if (low < 0 || high < low) {
+                    throw new IllegalArgumentException("Invalid range in " + spec);
+                }
+                return new TimeDistribution(Kind.UNIFORM, (low + high) / 2, low, high, text);
+            }
+            if (text.startsWith("exp:")) {
+                double mean = Double.parseDouble(text.substring("exp:".length()));
+                return exponential(mean, text);
+            }
+            if (text.startsWith("rate:")) {
+                double rate = Double.parseDouble(text.substring("rate:".length()));
+                if (rate <= 0) {
+                    throw new IllegalArgumentException("Rate must be positive in " + spec);
+                }
+                return exponential(1000.0 / rate, text);
+            }
+            double millis = Double.parseDouble(text);
+            if (millis < 0) {
+                throw new IllegalArgumentException("Negative time in " + spec);
+            }
+            return new TimeDistribution(Kind.FIXED, millis, millis, millis, text);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid time distribution " + spec, e);
+        }
+    }
+
+    private static TimeDistribution exponential(double mean, String spec) {
+        if (mean < 0) {
+            throw new IllegalArgumentException("Negative mean in " + spec);
+        }
+        return new TimeDistribution(Kind.EXPONENTIAL, mean, 0, Double.MAX_VALUE, spec);
+    }
+
+    // 抽取一个样本（纳秒）
+    // Draw one sample in nanoseconds
+    public long sampleNanos() {
+        double millis = switch (kind) {
+            case FIXED -> mean;
+            case UNIFORM -> min + ThreadLocalRandom.current().nextDouble() * (max - min);
+            case EXPONENTIAL -> -mean * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        };
+        return (long) (millis * 1_000_000);
+    }
+
+    // 按抽取的时间休眠，时间为 0 时不休眠
+    // Sleep for a sampled time; no sleep when it is 0
+    public void sleep() throws InterruptedException {
+        long nanos = sampleNanos();
+        if (nanos > 0) {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        }
+    }
+
+    public double meanMillis() {
+        return mean;
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class TraceFile implements AutoCloseable {
+    final Path file;
+
+    // 文件头中的信息
+    // Information from the header
+    final long count;
+    final int workload;
+    final int setting;
+    final int capacity;
+    // 录制时的分片数；版本 1 的文件没有记下，为 0
+    // Shard count at recording time; 0 in version 1 files, which did not record it
+    final int shards;
+
+    // 只读映射；记录定长，第 r 条记录的位置可以直接算出，不需要逐条扫描
+    // Read-only mappings; records are fixed width, so record r is located by arithmetic rather than by scanning
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+
+    public TraceFile(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size < TraceRecorder.RECORD_BYTES) {
+            channel.close();
+            throw new IOException(file + " is not a synchronization trace");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, TraceRecorder.RECORD_BYTES);
+        header.order(ByteOrder.nativeOrder());
+        int version = header.getInt(28);
+        if (header.getLong(0) != TraceRecorder.MAGIC || version < 1 || version > TraceRecorder.VERSION) {
+            channel.close();
+            throw new IOException(file + " is not a synchronization trace");
+        }
+        this.count = Math.min(header.getLong(8), size / TraceRecorder.RECORD_BYTES - 1);
+        if (version == 1) {
+            this.workload = header.getInt(16);
+            this.setting = header.getInt(20);
+            this.capacity = header.getInt(24);
+            this.shards = 0;
+        } else {
+            this.workload = header.getShort(16);
+            this.setting = header.getShort(18);
+            this.capacity = header.getInt(20);
+            this.shards = header.getInt(24);
+        }
+
+        // 只映射写过的部分
+        // Map only the part that was written
+        long places = count + 1;
+        int chunkCount = (int) ((places + TraceRecorder.CHUNK_MASK) >>> TraceRecorder.CHUNK_SHIFT);
+        this.chunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long first = (long) i << TraceRecorder.CHUNK_SHIFT;
+            long records = Math.min(1L << TraceRecorder.CHUNK_SHIFT, places - first);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, first * TraceRecorder.RECORD_BYTES, records * TraceRecorder.RECORD_BYTES);
+            chunks[i].order(ByteOrder.nativeOrder());
+        }
+    }
+
+    // 第 r 条记录（从 0 开始）所在的块和块内偏移；第 0 个位置是文件头
+    // Chunk and offset of record r (from 0); place 0 is the header
+    private MappedByteBuffer chunk(long r) {
+        return chunks[(int) ((r + 1) >>> TraceRecorder.CHUNK_SHIFT)];
+    }
+
+    private static int offset(long r) {
+        return (int) ((r + 1) & TraceRecorder.CHUNK_MASK) * TraceRecorder.RECORD_BYTES;
+    }
+
+    // 距离运行开始的纳秒数
+    // Nanoseconds since the run started
+    long time(long r) {
+        return chunk(r).getLong(offset(r));
+    }
+
+    // 加锁、持有或等待的纳秒数
+    // Acquire, hold or wait nanoseconds
+    long nanos(long r) {
+        return chunk(r).getLong(offset(r) + 8);
+    }
+
+    int event(long r) {
+        return chunk(r).getInt(offset(r) + 16) >>> 8;
+    }
+
+    int kind(long r) {
+        return chunk(r).getInt(offset(r) + 16) & 0xFF;
+    }
+
+    int id(long r) {
+        return chunk(r).getInt(offset(r) + 20);
+    }
+
+    int slot(long r) {
+        return chunk(r).getInt(offset(r) + 24);
+    }
+
+    int thread(long r) {
+        return chunk(r).getInt(offset(r) + 28);
+    }
+
+    // 二分查找第一条时间不早于 nanos 的记录；占位和读时钟之间可能被抢占，时间只是大致有序，结果可能早几条
+    // Binary search for the first record at or after nanos; a thread may be preempted between claiming a place and reading the clock, so times are only nearly sorted and the result may be a few records early
+    long seek(long nanos) {
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (time(mid) < nanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 工作负载和设置的描述
+    // Description of the workload and its settings
+    String describe() {
+        if (workload == TraceRecorder.READER_WRITER) {
+            return "reader-writer policy=" + LockPolicy.values()[setting] + ", " + count + " records";
+        }
+        return "producer-consumer engine=" + BufferEngine.values()[setting] + " capacity=" + capacity + (shards > 0 ? " shards=" + shards : "") + ", " + count + " records";
+    }
+
+    // 一条记录的文本形式
+    // Text form of one record
+    String format(long r) {
+        return String.format("%12d %12.3f ms  %-8s %-8s %4d  slot %-5d %10.1f us  thread %d",
+                r, time(r) / 1e6, TraceRecorder.EVENT_NAMES[event(r)], ContentionMetrics.KIND_NAMES[kind(r)], id(r), slot(r), nanos(r) / 1e3, thread(r));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
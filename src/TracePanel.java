@@ -0,0 +1,148 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class TracePanel extends JPanel {
+    // 正在查看的轨迹，未打开时为 null
+    // Trace being viewed; null when none is open
+    private TraceFile trace;
+
+    private final TraceTableModel model = new TraceTableModel();
+    private final JTable table = new JTable(model);
+    private final JTextField timeField = new JTextField("0", 8);
+    private final JButton replayButton = new JButton("Replay");
+    private final JLabel statusLabel = new JLabel("No trace open.");
+
+    public TracePanel() {
+        setLayout(new BorderLayout());
+
+        JButton openButton = new JButton("Open...");
+        openButton.addActionListener(e -> choose());
+        JButton seekButton = new JButton("Go");
+        seekButton.addActionListener(e -> seek());
+        timeField.addActionListener(e -> seek());
+        replayButton.addActionListener(e -> replay());
+        replayButton.setEnabled(false);
+
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolbar.add(openButton);
+        toolbar.add(new JLabel("Go to (ms):"));
+        toolbar.add(timeField);
+        toolbar.add(seekButton);
+        toolbar.add(replayButton);
+
+        // 表格只在显示某行时读取那一条记录，几 GB 的轨迹也能立即打开和滚动
+        // The table reads a record only when its row is shown, so multi-GB traces open and scroll instantly
+        table.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+        table.setFillsViewportHeight(true);
+
+        add(toolbar, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    // 打开一个轨迹文件，关闭之前打开的
+    // Open a trace file, closing the previous one
+    public void open(Path file) {
+        try {
+            TraceFile opened = new TraceFile(file);
+            if (trace != null) {
+                trace.close();
+            }
+            trace = opened;
+            model.setTrace(opened);
+            replayButton.setEnabled(true);
+            statusLabel.setText(file + ": " + opened.describe());
+        } catch (IOException ex) {
+            statusLabel.setText("Cannot open " + file + ": " + ex.getMessage());
+        }
+    }
+
+    private void choose() {
+        JFileChooser chooser = new JFileChooser(".");
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            open(chooser.getSelectedFile().toPath());
+        }
+    }
+
+    // 按时间二分查找并滚动到该行
+    // Binary search by time and scroll to that row
+    private void seek() {
+        if (trace == null) {
+            return;
+        }
+        try {
+            long r = trace.seek((long) (Double.parseDouble(timeField.getText().trim()) * 1e6));
+            int row = (int) Math.min(r, model.getRowCount() - 1);
+            if (row >= 0) {
+                table.setRowSelectionInterval(row, row);
+                table.scrollRectToVisible(table.getCellRect(row, 0, true));
+            }
+        } catch (NumberFormatException ex) {
+            statusLabel.setText("Please enter a time in milliseconds.");
+        }
+    }
+
+    // 在后台重放，结束后显示结果
+    // Replay in the background and show the result when done
+    private void replay() {
+        TraceFile current = trace;
+        replayButton.setEnabled(false);
+        statusLabel.setText("Replaying " + current.file + "...");
+        Thread.startVirtualThread(() -> {
+            String text;
+            try {
+                text = TraceReplayer.replay(current, 5000).report().replace(System.lineSeparator(), "  ");
+            } catch (InterruptedException ex) {
+                text = "Replay interrupted.";
+            }
+            String result = text;
+            SwingUtilities.invokeLater(() -> {
+                statusLabel.setText(result);
+                replayButton.setEnabled(true);
+            });
+        });
+    }
+
+    // 每行一条记录
+    // One record per row
+    private static class TraceTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"#", "Time (ms)", "Event", "Actor", "Position", "Duration (us)", "Thread"};
+        private TraceFile trace;
+
+        void setTrace(TraceFile trace) {
+            this.trace = trace;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return trace == null ? 0 : (int) Math.min(trace.count, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return switch (column) {
+                case 0 -> row;
+                case 1 -> String.format("%.3f", trace.time(row) / 1e6);
+                case 2 -> TraceRecorder.EVENT_NAMES[trace.event(row)];
+                case 3 -> ContentionMetrics.KIND_NAMES[trace.kind(row)] + " " + trace.id(row);
+                case 4 -> trace.slot(row);
+                case 5 -> String.format("%.1f", trace.nanos(row) / 1e3);
+                default -> trace.thread(row);
+            };
+        }
+    }
+}
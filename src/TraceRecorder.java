@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TraceRecorder implements SyncProbe, AutoCloseable {
+    // 每条记录固定 32 字节：时间(8) 耗时(8) 事件和参与者类型(4) 编号(4) 位置(4) 线程(4)
+    // Every record is 32 bytes: time(8) duration(8) event and actor kind(4) id(4) position(4) thread(4)
+    static final int RECORD_BYTES = 32;
+
+    // 文件头占第 0 条记录的位置：魔数(8) 记录数(8) 工作负载(2) 缓冲区类型或锁策略(2) 容量(4) 分片数(4) 版本(4)
+    // The header takes the place of record 0: magic(8) record count(8) workload(2) buffer engine or lock policy(2) capacity(4) shard count(4) version(4)
+    // 版本 1 的文件头没有分片数，工作负载和类型各占 4 字节
+    // Version 1 headers have no shard count, and the workload and kind take 4 bytes each
+    static final long MAGIC = 0x5359_4E43_5452_4331L; // "SYNCTRC1"
+    static final int VERSION = 2;
+
+    // 工作负载类型
+    // Workload kinds
+    static final int PRODUCER_CONSUMER = 0;
+    static final int READER_WRITER = 1;
+
+    // 事件类型；TRANSFER 是生产或消费，由参与者类型区分
+    // Event kinds; TRANSFER is a produce or a consume, told apart by the actor kind
+    static final int ACQUIRE = 1;
+    static final int RELEASE = 2;
+    static final int WAIT = 3;
+    static final int TRANSFER = 4;
+    static final String[] EVENT_NAMES = {"-", "acquire", "release", "wait", "transfer"};
+
+    // 默认的文件上限（MB）
+    // Default file size limit (MB)
+    static final int DEFAULT_MAX_MB = 256;
+
+    // 每块映射 1 GB（2^25 条记录），更大的文件拆成多块
+    // Each mapping covers 1 GB (2^25 records); larger files are split into several
+    static final int CHUNK_SHIFT = 25;
+    static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+
+    // 文件能容纳的记录位置数（含文件头）
+    // Number of record places the file holds (header included)
+    private final long limit;
+
+    // 下一条记录的位置；所有线程用一次 getAndIncrement 占位，因此记录的先后就是全局顺序
+    // Place of the next record; every thread claims one with a single getAndIncrement, so record order is the global order
+    private final AtomicLong next = new AtomicLong(1);
+
+    // 文件写满后丢弃的记录数
+    // Records dropped once the file is full
+    private final LongAdder dropped = new LongAdder();
+
+    private final long startNanos = System.nanoTime();
+
+    // 创建轨迹文件并映射到内存；文件一次建到上限大小（稀疏文件，未写的部分不占磁盘），之后只追加
+    // Create the trace file and map it; the file is sized to the limit up front (sparse, so unwritten parts take no disk) and only appended to afterwards
+    // shards 是录制时分片缓冲区的分片数，重放时照此重建；其他缓冲区和读写锁为 0
+    // shards is the sharded buffer's shard count at recording time, which a replay rebuilds; 0 for other buffers and for locks
+    public TraceRecorder(Path file, long maxBytes, int workload, int setting, int capacity, int shards) throws IOException {
+        this.file = file;
+        this.limit = Math.max(2, maxBytes / RECORD_BYTES);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int chunkCount = (int) ((limit + CHUNK_MASK) >>> CHUNK_SHIFT);
+        this.chunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long first = (long) i << CHUNK_SHIFT;
+            long records = Math.min(1L << CHUNK_SHIFT, limit - first);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, first * RECORD_BYTES, records * RECORD_BYTES);
+            chunks[i].order(ByteOrder.nativeOrder());
+        }
+        MappedByteBuffer header = chunks[0];
+        header.putLong(0, MAGIC);
+        header.putLong(8, 0);
+        header.putShort(16, (short) workload);
+        header.putShort(18, (short) setting);
+        header.putInt(20, capacity);
+        header.putInt(24, shards);
+        header.putInt(28, VERSION);
+    }
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    @Override
+    public void acquired(int kind, int id, int slot, long acquireNanos) {
+        append(ACQUIRE, kind, id, slot, acquireNanos);
+    }
+
+    @Override
+    public void released(int kind, int id, int slot, long holdNanos) {
+        append(RELEASE, kind, id, slot, holdNanos);
+    }
+
+    @Override
+    public void waited(int kind, int id, int slot, long waitNanos) {
+        append(WAIT, kind, id, slot, waitNanos);
+    }
+
+    @Override
+    public void transferred(int kind, int id, int slot) {
+        append(TRANSFER, kind, id, slot, 0);
+    }
+
+    // 追加一条记录：占位后直接写入映射内存，不加锁、不分配对象
+    // Append one record: claim a place, then write straight into the mapped memory, without locking or allocating
+    private void append(int event, int kind, int id, int slot, long nanos) {
+        long place = next.getAndIncrement();
+        if (place >= limit) {
+            dropped.increment();
+            return;
+        }
+        MappedByteBuffer chunk = chunks[(int) (place >>> CHUNK_SHIFT)];
+        int at = (int) (place & CHUNK_MASK) * RECORD_BYTES;
+        chunk.putLong(at, System.nanoTime() - startNanos);
+        chunk.putLong(at + 8, nanos);
+        chunk.putInt(at + 16, event << 8 | kind);
+        chunk.putInt(at + 20, id);
+        chunk.putInt(at + 24, slot);
+        chunk.putInt(at + 28, (int) Thread.currentThread().threadId());
+    }
+
+    // 已写入的记录数
+    // Number of records written
+    public long count() {
+        return Math.min(next.get(), limit) - 1;
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    // 一行摘要，用于无界面输出和日志
+    // One-line summary for headless output and the log
+    public String summary() {
+        return String.format("trace:        %d records written to %s (%d dropped)%n", count(), file, dropped());
+    }
+
+    // 在文件头写入记录数并刷到磁盘；之后仍在运行的线程写入的记录不计入
+    // Write the record count into the header and flush to disk; records from threads still running afterwards are not counted
+    @Override
+    public void close() throws IOException {
+        chunks[0].putLong(8, count());
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,236 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+public class TraceReplayer {
+    // 每个参与者一个线程；锁属于线程，读写锁必须由获取它的线程释放
+    // One thread per actor; locks are owned by threads, so a read-write lock must be released by the thread that took it
+    private class Actor implements Runnable {
+        final int kind;
+        final int id;
+        final BufferCursor cursor;
+        Thread thread;
+
+        // 读者持有的读锁凭证，以及上一次乐观读是否失效
+        // Read token held by a reader, and whether its last optimistic read was invalidated
+        long token = 0;
+        boolean retry = false;
+        boolean holdsWrite = false;
+
+        Actor(int kind, int id) {
+            this.kind = kind;
+            this.id = id;
+            this.cursor = new BufferCursor(kind, id);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long r = turn;
+                    if (r >= trace.count) {
+                        return;
+                    }
+                    if (owner(r) != this) {
+                        LockSupport.park(this); // 等上一个参与者交出轮次 // Wait for the previous actor to pass the turn
+                        continue;
+                    }
+                    perform(r);
+                    long next = nextReplayable(r + 1);
+                    turn = next;
+                    replayed++;
+                    if (next < trace.count) {
+                        LockSupport.unpark(owner(next).thread);
+                    } else {
+                        for (Actor actor : actors.values()) {
+                            LockSupport.unpark(actor.thread);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // 重做第 r 条记录的操作；结果与记录不一致时计为一次偏离
+        // Redo the operation of record r; a result that differs from the record counts as a divergence
+        private void perform(long r) throws InterruptedException {
+            if (trace.workload == TraceRecorder.PRODUCER_CONSUMER) {
+                // 逐位置加锁的缓冲区从 position 开始扫描，把记录的位置作为起点；其他缓冲区的位置由操作顺序决定
+                // The slot-lock buffer scans from position, so start it at the recorded position; the other buffers' positions follow from the order of operations
+                int slot = trace.slot(r);
+                cursor.position = slot;
+                int got = kind == EventLog.PRODUCER ? buffer.put(cursor) : buffer.take(cursor);
+                if (got != slot) {
+                    diverged++;
+                }
+            } else if (kind == EventLog.READER) {
+                if (trace.event(r) == TraceRecorder.ACQUIRE) {
+                    // 与读者相同：乐观读失效后的下一次获取加读锁
+                    // As the reader does: after an invalidated optimistic read the next acquire takes the read lock
+                    token = retry ? lock.acquireReadPessimistic() : lock.tryAcquireRead();
+                    if (token == 0) {
+                        diverged++;
+                        token = lock.acquireRead();
+                    }
+                } else if (token != 0) {
+                    retry = !lock.releaseRead(token);
+                    token = 0;
+                }
+            } else {
+                if (trace.event(r) == TraceRecorder.ACQUIRE) {
+                    if (!lock.tryAcquireWrite()) {
+                        diverged++;
+                        lock.acquireWrite();
+                    }
+                    holdsWrite = true;
+                } else if (holdsWrite) {
+                    lock.releaseWrite();
+                    holdsWrite = false;
+                }
+            }
+        }
+    }
+
+    // 重放的结果
+    // Result of a replay
+    static class Result {
+        final long records;
+
+        // 需要重放的记录数；等待等其他记录只用于查看，不计在内
+        // Records that are replayed; waits and the other records are only for viewing and are not counted
+        final long replayable;
+        final long replayed;
+        final long diverged;
+        final long elapsedNanos;
+
+        // 停在哪条记录上，-1 表示完整重放
+        // Record the replay stalled at; -1 means it ran to the end
+        final long stalledAt;
+
+        Result(long records, long replayable, long replayed, long diverged, long elapsedNanos, long stalledAt) {
+            this.records = records;
+            this.replayable = replayable;
+            this.replayed = replayed;
+            this.diverged = diverged;
+            this.elapsedNanos = elapsedNanos;
+            this.stalledAt = stalledAt;
+        }
+
+        String report() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("replayed:     %d of %d operations (%d records in the trace) in %.3f s (%.0f operations/s)%n",
+                    replayed, replayable, records, elapsedNanos / 1e9, replayed / Math.max(1e-9, elapsedNanos / 1e9)));
+            out.append(String.format("diverged:     %d operations landed elsewhere or had to wait%n", diverged));
+            if (stalledAt >= 0) {
+                out.append(String.format("stalled:      no progress at record %d, replay stopped%n", stalledAt));
+            }
+            return out.toString();
+        }
+    }
+
+    private final TraceFile trace;
+    private final Map<Long, Actor> actors = new HashMap<>();
+    private BoundedBuffer buffer;
+    private ReadWritePolicy lock;
+
+    // 当前轮到的记录；只有它的参与者可以操作，做完后交给下一条记录的参与者
+    // Record whose turn it is; only its actor may act, then it hands the turn to the next record's actor
+    private volatile long turn;
+    private volatile long replayed = 0;
+    private volatile long diverged = 0;
+
+    private TraceReplayer(TraceFile trace) {
+        this.trace = trace;
+    }
+
+    private static long key(int kind, int id) {
+        return (long) kind << 32 | (id & 0xFFFFFFFFL);
+    }
+
+    private Actor owner(long r) {
+        return actors.get(key(trace.kind(r), trace.id(r)));
+    }
+
+    // 生产者-消费者按生产、消费重放；读者-写者按获取、释放重放；等待只是记录，不重放
+    // Producer-consumer traces replay produces and consumes, reader-writer traces replay acquires and releases; waits are only recorded, not replayed
+    private boolean replayable(long r) {
+        int event = trace.event(r);
+        return trace.workload == TraceRecorder.PRODUCER_CONSUMER ? event == TraceRecorder.TRANSFER
+                : event == TraceRecorder.ACQUIRE || event == TraceRecorder.RELEASE;
+    }
+
+    private long nextReplayable(long r) {
+        while (r < trace.count && !replayable(r)) {
+            r++;
+        }
+        return r;
+    }
+
+    // 在新建的同类缓冲区或读写锁上，按记录的全局顺序重做每个参与者的操作；同一轨迹每次重放的交错都相同
+    // Redo every actor's operations on a fresh buffer or lock of the same kind, in the recorded global order; every replay of a trace has the same interleaving
+    // stallMillis 内没有进展时停止，例如轨迹被截断、某个操作永远等不到对方
+    // Stops when no progress is made for stallMillis, e.g. when the trace was cut short and an operation would wait forever
+    static Result replay(TraceFile trace, long stallMillis) throws InterruptedException {
+        return new TraceReplayer(trace).run(stallMillis);
+    }
+
+    private Result run(long stallMillis) throws InterruptedException {
+        int producers = 0;
+        int consumers = 0;
+        long replayable = 0;
+        for (long r = 0; r < trace.count; r++) {
+            if (replayable(r)) {
+                replayable++;
+                int kind = trace.kind(r);
+                int id = trace.id(r);
+                if (!actors.containsKey(key(kind, id))) {
+                    actors.put(key(kind, id), new Actor(kind, id));
+                    producers += kind == EventLog.PRODUCER ? 1 : 0;
+                    consumers += kind == EventLog.CONSUMER ? 1 : 0;
+                }
+            }
+        }
+        // 分片数取文件头中录制时的值；没有交接记录的参与者不会出现在上面的计数里，只有版本 1 的文件才按计数推算
+        // The shard count comes from the header, as recorded; actors without hand-overs are missing from the counts above, so only version 1 files fall back to them
+        if (trace.workload == TraceRecorder.PRODUCER_CONSUMER) {
+            int shards = trace.shards > 0 ? trace.shards : ShardedBuffer.shardsFor(producers, consumers);
+            buffer = BufferEngine.values()[trace.setting].create(trace.capacity, shards, WaitStrategy.BLOCKING, EventLog.DISABLED, SyncProbe.NONE);
+        } else {
+            lock = LockPolicy.values()[trace.setting].create();
+        }
+
+        long start = System.nanoTime();
+        turn = nextReplayable(0);
+        for (Actor actor : actors.values()) {
+            actor.thread = Thread.ofPlatform().name("replay-" + ContentionMetrics.KIND_NAMES[actor.kind] + "-" + actor.id).unstarted(actor);
+        }
+        for (Actor actor : actors.values()) {
+            actor.thread.start();
+        }
+
+        // 监视进度，长时间没有进展就中断所有参与者
+        // Watch progress and interrupt every actor when nothing moves for too long
+        long stalledAt = -1;
+        long lastTurn = -1;
+        long lastProgress = System.nanoTime();
+        while (turn < trace.count) {
+            Thread.sleep(50);
+            long now = System.nanoTime();
+            if (turn != lastTurn) {
+                lastTurn = turn;
+                lastProgress = now;
+            } else if (now - lastProgress > stallMillis * 1_000_000) {
+                stalledAt = turn;
+                break;
+            }
+        }
+        for (Actor actor : actors.values()) {
+            if (stalledAt >= 0) {
+                actor.thread.interrupt();
+            }
+            actor.thread.join(1000);
+        }
+        return new Result(trace.count, replayable, replayed, diverged, System.nanoTime() - start, stalledAt);
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class TraceViewer {
+    // 查看和重放轨迹的参数
+    // Parameters for viewing and replaying a trace
+    static class Options {
+        Path file;
+        long from = 0;
+        long count = 50;
+
+        // 按时间跳转（毫秒），为负时不按时间跳转
+        // Seek by time (ms); negative means no time seek
+        double atMillis = -1;
+
+        // 只显示某个参与者，例如 producer:3；为 null 时显示全部
+        // Show one actor only, e.g. producer:3; null shows everyone
+        int kind = -1;
+        int id = -1;
+
+        boolean replay = false;
+        long stallMillis = 5000;
+
+        // 解析命令行参数，例如 sync-trace.bin --at-ms 1500 --count 20 --actor consumer:2
+        // Parse command line arguments, e.g. sync-trace.bin --at-ms 1500 --count 20 --actor consumer:2
+        static Options parse(String[] args) {
+            if (args.length == 0) {
+                throw new IllegalArgumentException("Missing trace file");
+            }
+            Options options = new Options();
+            options.file = Path.of(args[0]);
+            for (int i = 1; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--from" -> options.from = Long.parseLong(value);
+                    case "--count" -> options.count = Long.parseLong(value);
+                    case "--at-ms" -> options.atMillis = Double.parseDouble(value);
+                    case "--actor" -> {
+                        String[] parts = value.split(":");
+                        if (parts.length != 2) {
+                            throw new IllegalArgumentException("--actor takes kind:id, e.g. producer:3");
+                        }
+                        options.kind = kindOf(parts[0]);
+                        options.id = Integer.parseInt(parts[1]);
+                    }
+                    case "--replay" -> options.replay = switch (value) {
+                        case "on" -> true;
+                        case "off" -> false;
+                        default -> throw new IllegalArgumentException("--replay takes on or off");
+                    };
+                    case "--stall-ms" -> options.stallMillis = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            if (options.from < 0 || options.count < 0 || options.stallMillis <= 0) {
+                throw new IllegalArgumentException("--from and --count must not be negative, --stall-ms must be positive");
+            }
+            return options;
+        }
+
+        // 按名称查找参与者类型
+        // Look up an actor kind by name
+        static int kindOf(String name) {
+            for (int i = 1; i < ContentionMetrics.KIND_NAMES.length; i++) {
+                if (ContentionMetrics.KIND_NAMES[i].equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Unknown actor kind " + name);
+        }
+    }
+
+    // 打印从某条记录或某个时间开始的若干条记录；定长记录可以直接定位，不用从头读
+    // Print a number of records from a record index or a point in time; fixed-width records are located directly, never read from the start
+    static void print(TraceFile trace, Options options) {
+        long r = options.atMillis >= 0 ? trace.seek((long) (options.atMillis * 1e6)) : options.from;
+        long shown = 0;
+        for (; r < trace.count && shown < options.count; r++) {
+            if (options.kind >= 0 && (trace.kind(r) != options.kind || trace.id(r) != options.id)) {
+                continue;
+            }
+            System.out.println(trace.format(r));
+            shown++;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: trace FILE [--from N] [--at-ms T] [--count N] [--actor kind:id] [--replay on|off] [--stall-ms M]");
+            System.exit(2);
+            return;
+        }
+        try (TraceFile trace = new TraceFile(options.file)) {
+            System.out.println("Trace " + options.file + ": " + trace.describe());
+            if (options.replay) {
+                System.out.print(TraceReplayer.replay(trace, options.stallMillis).report());
+            } else {
+                print(trace, options);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.util.function.IntSupplier;
+
+public enum WaitStrategy {
+    // 立即挂起，等对方唤醒；不占用处理器
+    // Park at once and wait to be woken; uses no processor time
+    BLOCKING("blocking"),
+
+    // 一直自旋重试，从不挂起；唤醒延迟最低，但一直占满一个处理器
+    // Keep spinning and retrying, never park; lowest wake-up latency, but holds a whole processor
+    BUSY_SPIN("busy-spin"),
+
+    // 先自旋一小段，之后每次重试前让出处理器
+    // Spin briefly, then yield the processor before every retry
+    SPIN_YIELD("spin-yield"),
+
+    // 先自旋再挂起，自旋时长按该参与者最近的等待时间调整
+    // Spin, then park; the spin length follows this actor's recent wait times
+    ADAPTIVE("adaptive");
+
+    // 自旋-让出策略开始让出之前的重试次数；单处理器上自旋只会占用对方的时间片，因此很短
+    // Failed attempts before the spin-yield strategy starts yielding; on a single processor spinning only eats the other side's time slice, so this is short
+    static final int SPINS_BEFORE_YIELD = 10;
+
+    // 自适应自旋的最短和最长时长（纳秒）；等待时间超过最长时长时只做最短的试探
+    // Shortest and longest adaptive spin (ns); when waits run longer than the longest spin, only the shortest probe is made
+    static final long MIN_SPIN_NANOS = 1_000;
+    static final long MAX_SPIN_NANOS = 50_000;
+
+    // 命令行和结果中使用的名称
+    // Name used on the command line and in results
+    private final String label;
+
+    WaitStrategy(String label) {
+        this.label = label;
+    }
+
+    // 缓冲区满或空时，在挂起之前按策略反复调用 attempt；返回第一次成功的结果，应当挂起等待时返回 -1
+    // When the buffer is full or empty, call attempt repeatedly as the strategy dictates before parking; returns the first successful result, or -1 when the caller should park
+    public int spin(BufferCursor cursor, IntSupplier attempt) throws InterruptedException {
+        if (this == BLOCKING) {
+            return -1;
+        }
+        for (int spins = 0; ; spins++) {
+            // 忙等的线程只有在这里才能响应中断
+            // A spinning thread can only notice an interrupt here
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!idle(cursor, spins)) {
+                return -1;
+            }
+            int result = attempt.getAsInt();
+            if (result >= 0) {
+                finished(cursor);
+                return result;
+            }
+        }
+    }
+
+    // spins 次尝试都落空后等待一下，第一次调用时 spins 为 0；返回 false 表示不再重试，应当挂起等待
+    // Pause after spins failed attempts, spins being 0 on the first call; returns false when the caller should stop retrying and park
+    public boolean idle(BufferCursor cursor, int spins) {
+        return switch (this) {
+            case BLOCKING -> false;
+            case BUSY_SPIN -> {
+                // 虚拟线程不会被抢占，自旋一阵之后改为让出，否则会饿死同一载体上的对方
+                // Virtual threads are not preempted, so after a while switch to yielding or the other side on the same carrier starves
+                if (spins >= 64 && Thread.currentThread().isVirtual()) {
+                    Thread.yield();
+                } else {
+                    Thread.onSpinWait();
+                }
+                yield true;
+            }
+            case SPIN_YIELD -> {
+                if (spins < SPINS_BEFORE_YIELD) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+                yield true;
+            }
+            case ADAPTIVE -> {
+                long now = System.nanoTime();
+                if (spins == 0) {
+                    cursor.waitStartedAt = now;
+                } else if (now - cursor.waitStartedAt >= cursor.spinNanos) {
+                    yield false;
+                }
+                Thread.onSpinWait();
+                yield true;
+            }
+        };
+    }
+
+    // 一次等待结束（无论靠自旋还是挂起）；自适应策略据此更新等待时间的估计和自旋时长
+    // A wait ended, whether by spinning or by parking; the adaptive strategy updates its wait estimate and spin length from it
+    public void finished(BufferCursor cursor) {
+        if (this != ADAPTIVE) {
+            return;
+        }
+        long waited = System.nanoTime() - cursor.waitStartedAt;
+        // 指数加权平均，最近一次占 1/8
+        // Exponentially weighted average, the latest wait weighing 1/8
+        cursor.waitEstimate += (waited - cursor.waitEstimate) >> 3;
+        // 自旋到估计值的两倍；等待通常比最长自旋还久时，自旋只是浪费，只做最短的试探就挂起
+        // Spin up to twice the estimate; when waits usually outlast the longest spin, spinning is wasted, so park after the shortest probe
+        long spin = cursor.waitEstimate * 2;
+        cursor.spinNanos = spin > MAX_SPIN_NANOS ? MIN_SPIN_NANOS : Math.max(MIN_SPIN_NANOS, spin);
+    }
+
+    // 按名称查找
+    // Look up by name
+    public static WaitStrategy of(String label) {
+        for (WaitStrategy wait : values()) {
+            if (wait.label.equals(label)) {
+                return wait;
+            }
+        }
+        throw new IllegalArgumentException("Unknown wait strategy " + label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
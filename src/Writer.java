@@ -1,11 +1,9 @@
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import javax.swing.JTextArea;
-import javax.swing.SwingUtilities;
 
 public class Writer implements Runnable {
-    // 读写锁，用于写者进程的锁定和解锁
-    // Read-write lock used for locking and unlocking writer processes
-    private final ReentrantReadWriteLock lock;
+    // 读写锁策略，用于写者进程的锁定和解锁
+    // Read-write lock policy used for locking and unlocking writer processes
+    private final ReadWritePolicy lock;
 
     // 写优先锁，用于在有写者等待时优先处理
     // Write-priority lock used to prioritize writers when they are waiting
@@ -13,70 +11,173 @@ public class Writer implements Runnable {
 
     // 写者的唯一标识符
     // Unique identifier for the writer
-    private final Integer id;
+    private final int id;
 
-    // 用于显示输出的文本区域
-    // Text area used to display output
-    private final JTextArea outputArea;
+    // 用于记录模拟过程的事件日志
+    // Event log recording the simulation
+    private final EventLog log;
+
+    // 运行统计
+    // Run statistics
+    private final ReaderWriterStats stats;
+
+    // 竞争统计探针
+    // Contention metrics probe
+    private final SyncProbe probe;
+
+    // 资源忙时轮询还是阻塞等待
+    // Whether to poll or block while the resource is busy
+    private final AcquireMode acquire;
+
+    // 每次写操作持有锁的时间分布
+    // Distribution of how long each write holds the lock
+    private final TimeDistribution holdTime;
+
+    // 两次操作之间的间隔分布，决定到达率
+    // Distribution of the gap between two operations, which sets the arrival rate
+    private final TimeDistribution gap;
 
     // 标志是否持有优先锁
     // Flag indicating whether the priority lock is held
     private boolean hasPriorityLock = false;
 
-    public Writer(ReentrantReadWriteLock lock, ReentrantReadWriteLock writePriorityLock, JTextArea outputArea, Integer id) {
+    // 本次运行的取消令牌，暂停和停止都通过它
+    // Cancellation token of this run, through which it is paused and stopped
+    private final CancellationToken cancellation;
+
+    public Writer(ReadWritePolicy lock, ReentrantReadWriteLock writePriorityLock, EventLog log, ReaderWriterStats stats, SyncProbe probe, CancellationToken cancellation, AcquireMode acquire, TimeDistribution holdTime, TimeDistribution gap, int id) {
+        this.cancellation = cancellation;
+        this.acquire = acquire;
         this.lock = lock;
         this.writePriorityLock = writePriorityLock;
         this.id = id;
-        this.outputArea = outputArea;
+        this.log = log;
+        this.stats = stats;
+        this.probe = probe;
+        this.holdTime = holdTime;
+        this.gap = gap;
     }
 
     @Override
     public void run() {
-        while (!Thread.currentThread().isInterrupted()) { // 循环直到线程被中断 // Loop until the thread is interrupted
+        if (acquire == AcquireMode.BLOCKING) {
+            runBlocking();
+            return;
+        }
+        long wantedAt = System.nanoTime(); // 开始想要写的时间 // When this writer started wanting to write
+        while (cancellation.proceed()) { // 循环直到运行被取消或线程被中断，暂停时在此等待 // Loop until the run is cancelled or the thread is interrupted, waiting here while paused
             if (!hasPriorityLock) {
                 // 写进程想访问资源，上优先锁
                 // Writer process wants to access resources, locks the priority lock
-                SwingUtilities.invokeLater(() -> outputArea.append("Writer process: Writer process " + id + " locks the priority lock.\n"));
+                log.publish(EventLog.WRITER, id, 0, EventLog.PRIORITY_LOCK);
                 writePriorityLock.writeLock().lock();
                 hasPriorityLock = true; // 更新状态 // Update status
             }
-            // 检查是否可以锁定写锁
-            // Check if the write lock can be locked
-            if (!lock.isWriteLocked() && lock.getReadLockCount() < 1) {
-                SwingUtilities.invokeLater(() -> outputArea.append("Writer process: Writer process " + id + " locks the resource.\n"));
-                lock.writeLock().lock(); // 加锁写锁 // Lock the write lock
+            // 没有读者和其他写者时锁定写锁
+            // Lock the write lock when there are no readers and no other writer
+            if (lock.tryAcquireWrite()) {
+                log.publish(EventLog.WRITER, id, 0, EventLog.WRITE_LOCK);
+                long heldAt = System.nanoTime();
+                stats.writeWait.record(heldAt - wantedAt); // 写者饥饿时间 // Writer starvation time
+                if (probe.enabled()) {
+                    probe.acquired(EventLog.WRITER, id, 0, heldAt - wantedAt);
+                }
 
                 if (hasPriorityLock) {
-                    SwingUtilities.invokeLater(() -> outputArea.append("Writer process: Writer process " + id + " unlocks the priority lock.\n"));
+                    log.publish(EventLog.WRITER, id, 0, EventLog.PRIORITY_UNLOCK);
                     writePriorityLock.writeLock().unlock(); // 解锁优先锁 // Unlock the priority lock
                     hasPriorityLock = false; // 更新状态 // Update status
                 }
 
                 try {
-                    SwingUtilities.invokeLater(() -> outputArea.append("Writer process: Writer process " + id + " is writing...\n"));
-                    Thread.sleep(200); // 模拟写入操作 // Simulate writing operation
-                    SwingUtilities.invokeLater(() -> outputArea.append("Writer process: Writer process " + id + " finished writing.\n"));
+                    log.publish(EventLog.WRITER, id, 0, EventLog.WRITING);
+                    holdTime.sleep(); // 模拟写入操作 // Simulate writing operation
+                    stats.writes.increment();
+                    log.publish(EventLog.WRITER, id, 0, EventLog.WRITE_DONE);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt(); // 恢复中断状态 // Restore interrupt status
                 } finally {
-                    SwingUtilities.invokeLater(() -> outputArea.append("Writer process: Writer process " + id + " unlocks the resource.\n"));
-                    lock.writeLock().unlock(); // 解锁写锁 // Unlock the write lock
+                    log.publish(EventLog.WRITER, id, 0, EventLog.WRITE_UNLOCK);
+                    // 先记录再释放，轨迹中的释放总在下一次获取之前
+                    // Record before releasing, so in a trace the release always comes before the next acquire
+                    if (probe.enabled()) {
+                        probe.released(EventLog.WRITER, id, 0, System.nanoTime() - heldAt);
+                    }
+                    lock.releaseWrite(); // 解锁写锁 // Unlock the write lock
                 }
                 try {
-                    Thread.sleep(1800); // 增加写者在操作后休眠时间 // Increase sleep time after operation
+                    gap.sleep(); // 增加写者在操作后休眠时间 // Increase sleep time after operation
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 }
+                wantedAt = System.nanoTime();
             } else {
                 // 如果读锁或其他写锁被激活，写者进程等待
                 // If read locks or another write lock are active, writer process waits
-                SwingUtilities.invokeLater(() -> outputArea.append("Writer process: Writer process " + id + " waiting, read locks or another write lock are active...\n"));
+                log.publish(EventLog.WRITER, id, 0, EventLog.WRITE_WAIT);
+                pause();
+            }
+        }
+        // 被中断退出时释放仍持有的优先锁，否则其他写者会永远阻塞在优先锁上
+        // Release the priority lock if still held on exit, otherwise the other writers would block on it forever
+        if (hasPriorityLock) {
+            log.publish(EventLog.WRITER, id, 0, EventLog.PRIORITY_UNLOCK);
+            writePriorityLock.writeLock().unlock();
+            hasPriorityLock = false;
+        }
+    }
+
+    // 阻塞方式：拿不到写锁时挂起，由最后一个离开的读者或上一个写者直接唤醒；读写之间的优先关系由锁策略决定
+    // Blocking mode: park when the write lock is unavailable and be woken directly by the last leaving reader or the previous writer; the lock policy decides who goes first
+    private void runBlocking() {
+        try {
+            while (cancellation.proceed()) {
+                long wantedAt = System.nanoTime();
+                if (!lock.tryAcquireWrite()) {
+                    log.publish(EventLog.WRITER, id, 0, EventLog.WRITE_WAIT); // 每次等待只记一行 // One line per wait, not per poll
+                    lock.acquireWrite();
+                    long queued = System.nanoTime() - wantedAt;
+                    stats.writeQueue.record(queued); // 排队时间 // Time spent queued
+                    if (probe.enabled()) {
+                        probe.waited(EventLog.WRITER, id, 0, queued);
+                    }
+                }
+                log.publish(EventLog.WRITER, id, 0, EventLog.WRITE_LOCK);
+                long heldAt = System.nanoTime();
+                stats.writeWait.record(heldAt - wantedAt);
+                if (probe.enabled()) {
+                    probe.acquired(EventLog.WRITER, id, 0, heldAt - wantedAt);
+                }
                 try {
-                    Thread.sleep(200);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    log.publish(EventLog.WRITER, id, 0, EventLog.WRITING);
+                    holdTime.sleep(); // 模拟写入操作 // Simulate writing operation
+                    stats.writes.increment();
+                    log.publish(EventLog.WRITER, id, 0, EventLog.WRITE_DONE);
+                } finally {
+                    log.publish(EventLog.WRITER, id, 0, EventLog.WRITE_UNLOCK);
+                    if (probe.enabled()) {
+                        probe.released(EventLog.WRITER, id, 0, System.nanoTime() - heldAt);
+                    }
+                    lock.releaseWrite();
                 }
+                gap.sleep();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // 恢复中断状态 // Restore interrupt status
+        }
+    }
+
+    // 轮询方式下休眠 200 毫秒后再检查，休眠时间记为等待时间
+    // In polling mode sleep 200 ms before checking again; the sleep counts as waiting time
+    private void pause() {
+        long waitAt = System.nanoTime();
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (probe.enabled()) {
+            probe.waited(EventLog.WRITER, id, 0, System.nanoTime() - waitAt);
         }
     }
 }